@@ -0,0 +1,122 @@
+package coen448.computablefuture.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the three failure policies of {@link AsyncProcessor}. <br>
+ * Every benchmark processes one batch of {@link FixedLatencyMicroservice}s and waits for its result.  Throughput
+ * mode reports batches per millisecond, and sample-time mode the latency percentiles of a batch.  Run with the
+ * {@code benchmark} Maven profile, e.g.:
+ * <pre>
+ * mvn -P benchmark test-compile exec:exec -Djmh.args="AsyncProcessorBenchmark -p batchSize=1000 -prof gc"
+ * </pre>
+ * The {@code gc} profiler adds the allocation rate ({@code gc.alloc.rate.norm} is bytes per batch).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsyncProcessorBenchmark {
+	/**
+	 * The executor running the microservice calls.
+	 */
+	public enum ExecutorChoice {
+		COMMON_POOL, VIRTUAL_THREADS, BOUNDED_POOL
+	}
+
+	@Param({"10", "100", "1000", "10000", "100000"})
+	public int batchSize;
+
+	// The share of the batch's microservices that fail, spread evenly across the batch.
+	@Param({"0.0", "0.01", "0.1"})
+	public double failureRatio;
+
+	@Param({"COMMON_POOL", "VIRTUAL_THREADS", "BOUNDED_POOL"})
+	public ExecutorChoice executor;
+
+	// The latency of every call.  Zero measures the processor's own overhead; a non-zero latency (e.g., 1000)
+	// measures how well each executor overlaps blocking calls.
+	@Param({"0"})
+	public long latencyMicros;
+
+	// The maximum number of calls of a batch in flight at once, or 0 for no limit.
+	@Param({"0"})
+	public int maxInFlight;
+
+	// The number of platform threads of the BOUNDED_POOL executor.
+	@Param({"16"})
+	public int poolThreads;
+
+	private ExecutorService pool;
+	private AsyncProcessor processor;
+	private List<Microservice> services;
+	private List<String> messages;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Executor callExecutor = switch (executor) {
+			case COMMON_POOL -> MicroserviceExecutors.commonPool();
+			case VIRTUAL_THREADS -> MicroserviceExecutors.virtualThreads();
+			case BOUNDED_POOL -> pool = MicroserviceExecutors.newBoundedPlatformPool(poolThreads);
+		};
+		processor = new AsyncProcessor(
+				ProcessingOptions.defaults().withExecutor(callExecutor).withMaxInFlight(maxInFlight));
+		services = new ArrayList<>(batchSize);
+		messages = new ArrayList<>(batchSize);
+		long latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+		for (int i = 0; i < batchSize; i++) {
+			// Deterministic failures: call i fails whenever it crosses the next multiple of 1 / failureRatio.
+			boolean failing = (long) ((i + 1) * failureRatio) > (long) (i * failureRatio);
+			services.add(new FixedLatencyMicroservice("Service-" + i, callExecutor, latencyNanos, failing));
+			messages.add("msg-" + i);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (pool != null) {
+			pool.shutdownNow();
+		}
+	}
+
+	@Benchmark
+	public Object failFast() {
+		try {
+			return processor.processAsyncFailFast(services, messages).join();
+		} catch (CompletionException e) {
+			// The expected outcome whenever the batch contains a failure.
+			return e;
+		}
+	}
+
+	@Benchmark
+	public String failPartial() {
+		return processor.processAsyncFailPartial(services, messages).join();
+	}
+
+	@Benchmark
+	public String failSoft() {
+		return processor.processAsyncFailSoft(services, messages, "FALLBACK").join();
+	}
+}
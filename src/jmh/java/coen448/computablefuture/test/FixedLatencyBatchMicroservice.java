@@ -0,0 +1,58 @@
+package coen448.computablefuture.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark stand-in for {@link BatchMicroservice} with a fixed, deterministic latency per call. <br>
+ * Every call, single or batched, takes exactly the configured latency (the per-call overhead that batching
+ * amortizes), regardless of the number of messages it carries.
+ */
+class FixedLatencyBatchMicroservice extends BatchMicroservice {
+	private final long latencyNanos;
+
+	/**
+	 * Create a stand-in batch microservice.
+	 * @param serviceId The service identifier.
+	 * @param executor The executor running the calls (unless the processor supplies its own).
+	 * @param latencyNanos The latency of every call, in nanoseconds.
+	 */
+	FixedLatencyBatchMicroservice(String serviceId, Executor executor, long latencyNanos) {
+		super(serviceId, executor);
+		this.latencyNanos = latencyNanos;
+	}
+
+	@Override
+	public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+		return InterruptibleFuture.submit(() -> {
+			pause();
+			return getServiceId() + ":OK";
+		}, executor);
+	}
+
+	@Override
+	public CompletableFuture<List<String>> retrieveBatchAsync(List<String> inputs, Executor executor) {
+		return InterruptibleFuture.submit(() -> {
+			pause();
+			List<String> replies = new ArrayList<>(inputs.size());
+			for (int i = 0; i < inputs.size(); i++) {
+				replies.add(getServiceId() + ":OK");
+			}
+			return replies;
+		}, executor);
+	}
+
+	private void pause() {
+		if (latencyNanos > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(latencyNanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package coen448.computablefuture.test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark stand-in for {@link Microservice} with a fixed, deterministic latency. <br>
+ * {@link Microservice#retrieveAsync(String)} sleeps for a random 0-30 ms, which makes the benchmark results depend on
+ * the random draws rather than on the processor.  This stand-in instead sleeps for exactly the configured latency
+ * (or not at all, for a latency of zero), and then either replies or fails, as configured.
+ */
+class FixedLatencyMicroservice extends Microservice {
+	// Shared, and without a stack trace, so that failing calls do not dominate the allocation profile.
+	private static final RuntimeException FAILURE = new RuntimeException("Benchmark failure", null, false, false) {
+		private static final long serialVersionUID = 1L;
+	};
+
+	private final long latencyNanos;
+	private final boolean failing;
+	private final String reply;
+
+	/**
+	 * Create a stand-in microservice.
+	 * @param serviceId The service identifier.
+	 * @param executor The executor running the calls (unless the processor supplies its own).
+	 * @param latencyNanos The latency of every call, in nanoseconds.
+	 * @param failing Whether every call fails instead of replying.
+	 */
+	FixedLatencyMicroservice(String serviceId, Executor executor, long latencyNanos, boolean failing) {
+		super(serviceId, executor);
+		this.latencyNanos = latencyNanos;
+		this.failing = failing;
+		// Precomputed, so that the benchmark measures the processor rather than the reply's construction.
+		this.reply = serviceId + ":OK";
+	}
+
+	@Override
+	public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+		return InterruptibleFuture.submit(() -> {
+			if (latencyNanos > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(latencyNanos);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}
+			if (failing) {
+				throw FAILURE;
+			}
+			return reply;
+		}, executor);
+	}
+}
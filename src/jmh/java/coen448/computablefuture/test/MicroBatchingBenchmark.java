@@ -0,0 +1,98 @@
+package coen448.computablefuture.test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of the {@link MicroBatcher}: the throughput gained against the latency added by its window. <br>
+ * Every benchmark thread is a caller sending a few messages to the same {@link FixedLatencyBatchMicroservice},
+ * whose calls all take the same latency however many messages they carry, and which only serves as many calls at
+ * once as it has threads.  Sweeping {@code maxDelayMicros} traces
+ * the curve: throughput mode reports batches per millisecond, and sample-time mode the latency percentiles a
+ * caller sees.  A delay of zero runs without a micro-batcher (each caller's own messages are still sent together).
+ * Run with the {@code benchmark} Maven profile, e.g.:
+ * <pre>
+ * mvn -P benchmark test-compile exec:exec -Djmh.args="MicroBatchingBenchmark -t 64"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class MicroBatchingBenchmark {
+	// The maximum delay of a window, or 0 for no micro-batcher.
+	@Param({"0", "100", "500", "2000"})
+	public long maxDelayMicros;
+
+	// The maximum number of requests in a batched call.
+	@Param({"64"})
+	public int maxSize;
+
+	// The latency of every call, single or batched.
+	@Param({"1000"})
+	public long latencyMicros;
+
+	// The number of messages each caller sends per batch.
+	@Param({"4"})
+	public int messagesPerCaller;
+
+	// The number of calls the microservice serves at once.
+	@Param({"2"})
+	public int serviceThreads;
+
+	private ExecutorService pool;
+	private AsyncProcessor processor;
+	private List<Microservice> services;
+	private List<String> messages;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		// The microservice's capacity, which batching makes better use of.
+		Executor callExecutor = pool = MicroserviceExecutors.newBoundedPlatformPool(serviceThreads);
+		ProcessingOptions options = ProcessingOptions.defaults().withExecutor(callExecutor);
+		if (maxDelayMicros > 0) {
+			options = options.withMicroBatcher(new MicroBatcher(maxSize, Duration.ofNanos(maxDelayMicros * 1000)));
+		}
+		processor = new AsyncProcessor(options);
+		Microservice service = new FixedLatencyBatchMicroservice(
+				"Service-0", callExecutor, TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+		services = new ArrayList<>(messagesPerCaller);
+		messages = new ArrayList<>(messagesPerCaller);
+		for (int i = 0; i < messagesPerCaller; i++) {
+			services.add(service);
+			messages.add("msg-" + i);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	@Benchmark
+	public String failPartial() {
+		return processor.processAsyncFailPartial(services, messages).join();
+	}
+}
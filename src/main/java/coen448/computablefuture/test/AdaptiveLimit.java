@@ -0,0 +1,177 @@
+package coen448.computablefuture.test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A limit on the number of microservice calls in flight at once, tuned from the latency and failures of the calls
+ * it lets through. <br>
+ * Unlike the fixed limit of {@link ProcessingOptions#withMaxInFlight(int)}, which applies to each batch, this limit
+ * is shared by every batch using it.  A call beyond the limit waits in a queue (without holding a thread) until an
+ * earlier call completes.  Each completed call adjusts the limit, between its minimum and maximum:
+ * <ul>
+ *   <li>{@link #aimd(int, int, int, Duration)}: additive increase, multiplicative decrease.  The limit grows by
+ *       about one per round of calls completing within the latency target, and shrinks by 10% on each failure
+ *       (including a timeout) or call slower than the target.</li>
+ *   <li>{@link #gradient(int, int, int)}: the limit follows the ratio between the lowest latency seen (the latency
+ *       of an idle microservice) and the latency of each call, plus a small allowance for queueing, so that it
+ *       shrinks as soon as the calls start to queue up.  Failures shrink it by 10%, as with AIMD.</li>
+ * </ul>
+ * Cancellations and calls rejected by an open circuit (see {@link CircuitBreaker}) or a full bulkhead (see
+ * {@link Bulkheads}) do not adjust the limit.
+ * The limit is set with {@link ProcessingOptions#withAdaptiveLimit(AdaptiveLimit)}.
+ */
+public final class AdaptiveLimit {
+	private static final double BACKOFF_RATIO = 0.9;
+	// The weight of each new estimate of the gradient limit, which smooths out the latency noise.
+	private static final double SMOOTHING = 0.2;
+
+	private final boolean gradient;
+	private final int minLimit;
+	private final int maxLimit;
+	private final long latencyTargetNanos;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final ConcurrentLinkedQueue<ServiceCall> waiting = new ConcurrentLinkedQueue<>();
+	// Trampolines drain(): only one thread starts waiting calls, however they complete.
+	private final AtomicInteger draining = new AtomicInteger();
+	// Guarded by this; read without the lock for the fast path of acquire.
+	private volatile double limit;
+	private long minLatencyNanos = Long.MAX_VALUE;
+
+	private AdaptiveLimit(boolean gradient, int initialLimit, int minLimit, int maxLimit, long latencyTargetNanos) {
+		if (minLimit <= 0) {
+			throw new IllegalArgumentException("Minimum limit must be positive!");
+		}
+		if (maxLimit < minLimit) {
+			throw new IllegalArgumentException("Maximum limit cannot be below the minimum limit!");
+		}
+		if (initialLimit < minLimit || initialLimit > maxLimit) {
+			throw new IllegalArgumentException("Initial limit must be between the minimum and maximum limits!");
+		}
+		this.gradient = gradient;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyTargetNanos = latencyTargetNanos;
+		this.limit = initialLimit;
+	}
+
+	/**
+	 * Create an additive-increase, multiplicative-decrease limit.
+	 * @param initialLimit  The limit before any call completes.
+	 * @param minLimit      The lowest limit.
+	 * @param maxLimit      The highest limit.
+	 * @param latencyTarget The latency above which a call shrinks the limit.
+	 * @return A new adaptive limit.
+	 */
+	public static AdaptiveLimit aimd(int initialLimit, int minLimit, int maxLimit, Duration latencyTarget) {
+		if (latencyTarget == null || latencyTarget.isNegative() || latencyTarget.isZero()) {
+			throw new IllegalArgumentException("Latency target must be positive!");
+		}
+		return new AdaptiveLimit(false, initialLimit, minLimit, maxLimit, latencyTarget.toNanos());
+	}
+
+	/**
+	 * Create a limit following the latency gradient (Vegas style).
+	 * @param initialLimit The limit before any call completes.
+	 * @param minLimit     The lowest limit.
+	 * @param maxLimit     The highest limit.
+	 * @return A new adaptive limit.
+	 */
+	public static AdaptiveLimit gradient(int initialLimit, int minLimit, int maxLimit) {
+		return new AdaptiveLimit(true, initialLimit, minLimit, maxLimit, 0);
+	}
+
+	/**
+	 * Start a call once the limit allows it.
+	 * @param call The call to be started, which releases its permit once it settles.
+	 */
+	void acquire(ServiceCall call) {
+		waiting.add(call);
+		drain();
+	}
+
+	/**
+	 * Release the permit of a completed call, and adjust the limit with its outcome.
+	 * @param latencyNanos The latency of the call.
+	 * @param error        The cause of the failure, or null if successful.
+	 */
+	void release(long latencyNanos, Throwable error) {
+		if (!(error instanceof CancellationException) && !(error instanceof CircuitOpenException)
+				&& !(error instanceof BulkheadFullException)) {
+			update(latencyNanos, error != null);
+		}
+		inFlight.decrementAndGet();
+		drain();
+	}
+
+	private synchronized void update(long latencyNanos, boolean failed) {
+		double current = limit;
+		double next;
+		if (failed) {
+			next = current * BACKOFF_RATIO;
+		} else if (!gradient) {
+			next = latencyNanos <= latencyTargetNanos ? current + 1 / current : current * BACKOFF_RATIO;
+		} else {
+			minLatencyNanos = Math.min(minLatencyNanos, Math.max(latencyNanos, 1));
+			// Between 0.5 and 1: a call twice as slow as the idle latency halves the estimate, at most.
+			double ratio = Math.max(0.5, Math.min(1.0, (double) minLatencyNanos / Math.max(latencyNanos, 1)));
+			double estimate = current * ratio + Math.sqrt(current);
+			next = current * (1 - SMOOTHING) + estimate * SMOOTHING;
+		}
+		limit = Math.max(minLimit, Math.min(maxLimit, next));
+	}
+
+	private void drain() {
+		if (draining.getAndIncrement() != 0) {
+			return;
+		}
+		do {
+			while (!waiting.isEmpty() && tryAcquire()) {
+				ServiceCall next = waiting.poll();
+				if (next == null) {
+					inFlight.decrementAndGet();
+					break;
+				}
+				next.begin();
+			}
+		} while (draining.decrementAndGet() != 0);
+	}
+
+	private boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= (int) limit) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * The current limit, rounded down to the number of calls it lets through.
+	 * @return The number of calls allowed in flight at once.
+	 */
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	/**
+	 * The number of calls currently in flight under this limit.
+	 * @return The count of calls in flight.
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * The number of calls waiting for the limit, including those cancelled while waiting.
+	 * @return The count of waiting calls.
+	 */
+	public int getWaiting() {
+		return waiting.size();
+	}
+}
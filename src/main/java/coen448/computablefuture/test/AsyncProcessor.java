@@ -1,12 +1,49 @@
 package coen448.computablefuture.test;
 
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class AsyncProcessor {
+	// Default options, used by every policy call that does not provide its own.
+	private final ProcessingOptions options;
+
+	/**
+	 * Create a processor with the default options (see {@link ProcessingOptions#defaults()}).
+	 */
+	public AsyncProcessor() {
+		this(ProcessingOptions.defaults());
+	}
+
+	/**
+	 * Create a processor that runs every microservice call on the given executor, regardless of the
+	 * executor the microservice was created with.
+	 * @param executor Executor for the microservice calls (see {@link MicroserviceExecutors}).
+	 */
+	public AsyncProcessor(Executor executor) {
+		this(ProcessingOptions.defaults().withExecutor(executor));
+	}
+
+	/**
+	 * Create a processor with the given default options.
+	 * @param options Options used by every policy call that does not provide its own.
+	 */
+	public AsyncProcessor(ProcessingOptions options) {
+		if (options == null) {
+			throw new IllegalArgumentException("Options cannot be null!");
+		}
+		this.options = options;
+	}
+
 	// Professor's Original Code (Kept as Reference)
 //	/**
 //	 * Teacher's base code for processAsync
@@ -24,7 +61,7 @@ public class AsyncProcessor {
 //            .map(client -> client.retrieveAsync(message))
 //            .collect(Collectors.toList());
 //        
-//        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+//        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
 //            .thenApply(v -> futures.stream()
 //                .map(CompletableFuture::join)
 //                .collect(Collectors.joining(" ")));
@@ -49,14 +86,16 @@ public class AsyncProcessor {
 //                .thenAccept(completionOrder::add))
 //            .collect(Collectors.toList());
 //
-//        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+//        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
 //            .thenApply(v -> completionOrder);
 //    }
 
 	// Failure Semantic Policies
 	/**
 	 * Fail-Fast Policy <br>
-	 * If any microservice fails, the entire computation fails immediately.
+	 * If any microservice fails, the entire computation fails immediately, and every
+	 * microservice call still in flight is cancelled (interrupting its worker thread).
+	 * A call that misses its deadline fails the computation with a TimeoutException.
 	 * @param services List of Microservice objects to be processed.
 	 * @param messages List of messages to be sent to the corresponding microservices.
 	 * @return A CompletableFuture of type String that contains the concatenation of the
@@ -65,6 +104,22 @@ public class AsyncProcessor {
 	public CompletableFuture<String> processAsyncFailFast(
 			List<Microservice> services, 
 			List<String> messages) {
+		return processAsyncFailFast(services, messages, options);
+	}
+
+	/**
+	 * Fail-Fast Policy, with options for this call only <br>
+	 * See {@link #processAsyncFailFast(List, List)}.
+	 * @param services List of Microservice objects to be processed.
+	 * @param messages List of messages to be sent to the corresponding microservices.
+	 * @param options  Options replacing the processor's default options for this call.
+	 * @return A CompletableFuture of type String that contains the concatenation of the
+	 *         messages returned by all the microservices.
+	 */
+	public CompletableFuture<String> processAsyncFailFast(
+			List<Microservice> services, 
+			List<String> messages,
+			ProcessingOptions options) {
 
 		// Check if the number of messages received and number of microservices being processed match.
 		if (services.size() != messages.size()) {
@@ -72,47 +127,14 @@ public class AsyncProcessor {
 					new IllegalArgumentException("Number of messages received and microservices being processed do not match!"));
 		}
 
-		// Print the number of microservices being processed.
-		System.out.println("[Fail-Fast] Processing " + services.size() + " microservices...");
-
-		// Launch the microservices concurrently.
-		List<CompletableFuture<String>> futures = new ArrayList<>();
-		for (int i = 0; i < services.size(); i++) {
-			futures.add(services.get(i).retrieveAsync(messages.get(i)));
-		}
-
-		// Create a future that we can complete immediately upon the first failure.
-		CompletableFuture<String> resultFuture = new CompletableFuture<>();
-
-		// Attach listeners to fail the resultFuture immediately if any single service fails.
-		for (CompletableFuture<String> future : futures) {
-			future.exceptionally(ex -> {
-				// completeExceptionnaly will throw the exception in the resultFuture.
-				System.out.println("[Fail-Fast] Failure Detected: " + ex.getMessage());
-				resultFuture.completeExceptionally(ex);
-				return null;
-			});
-		}
-
-		// Use allOf only to handle the success case. 
-		// If resultFuture was already failed by a listener, resultFuture.complete() will do nothing.
-		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-				.thenAccept(v -> {
-					if (!resultFuture.isCompletedExceptionally()) {
-						String result = futures.stream()
-								.map(CompletableFuture::join)
-								.collect(Collectors.joining(", "));
-						resultFuture.complete(result);
-					}
-				});
-
-		return resultFuture;
+		// Launch the microservices concurrently, failing the result immediately if any single service fails.
+		return aggregate(FailurePolicy.FAIL_FAST, services, messages, null, ResultAggregator.JOINING, options);
 	}
 
 	/**
 	 * Fail-Partial Policy <br>
 	 * All failures are ignored. The computation returns only the successful
-	 * results.
+	 * results.  A call that misses its deadline is dropped like any other failure.
 	 * @param services List of Microservice objects to be processed.
 	 * @param messages List of messages to be sent to the corresponding
 	 *                 microservices.
@@ -122,6 +144,23 @@ public class AsyncProcessor {
 	public CompletableFuture<String> processAsyncFailPartial(
 			List<Microservice> services,
 			List<String> messages) {
+		return processAsyncFailPartial(services, messages, options);
+	}
+
+	/**
+	 * Fail-Partial Policy, with options for this call only <br>
+	 * See {@link #processAsyncFailPartial(List, List)}.
+	 * @param services List of Microservice objects to be processed.
+	 * @param messages List of messages to be sent to the corresponding
+	 *                 microservices.
+	 * @param options  Options replacing the processor's default options for this call.
+	 * @return A CompletableFuture of type String that contains the concatenation of
+	 *         the messages returned by all the successful microservices.
+	 */
+	public CompletableFuture<String> processAsyncFailPartial(
+			List<Microservice> services,
+			List<String> messages,
+			ProcessingOptions options) {
 
 		// Check if the number of messages received and number of microservices being processed match.
 		if (services.size() != messages.size()) {
@@ -129,45 +168,14 @@ public class AsyncProcessor {
 					new IllegalArgumentException("Number of messages received and microservices being processed do not match!"));
 		}
 
-		// Print the number of microservices being processed.
-		System.out.println("[Fail-Partial] Processing " + services.size() + " microservices...");
-
-		// Create a list to hold the future microservice results.
-		List<CompletableFuture<String>> futures = new ArrayList<>();
-
-		// Loop through the received messages, adding them to the list of futures.
-		for (int i = 0; i < messages.size(); i++) {
-			Microservice service = services.get(i);
-			String message = messages.get(i);
-
-			// Add the future microservice result to the list of futures.
-			futures.add(
-					service.retrieveAsync(message)
-					.exceptionally(ex -> {
-						// If a failure occurs, log it and return null, converting this stage to a successful completion whose null result will be ignored later.
-						System.out.println("[Fail-Partial] Failure Detected: " + ex.getMessage());
-						return null;
-					}));
-		}
-
-		// Create a barrier for all the microservices to reach using the allOf() method.
-		return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-				.thenApply(v -> {
-					// Once all microservices have completed (successfully or with null), notify the user.
-					System.out.println("[Fail-Partial] All microservices completed (successfully or ignored).");
-
-					// Create a single CompletableFuture<String> containing only successful microservice results.
-					return futures.stream()
-							.map(CompletableFuture::join)
-							.filter(result -> result != null) // Filter out the nulls from failed services.
-							.collect(Collectors.joining(", "));
-				});
+		// Launch the microservices concurrently, ignoring the failed services.
+		return aggregate(FailurePolicy.FAIL_PARTIAL, services, messages, null, ResultAggregator.JOINING, options);
 	}
 	
 	/**
 	 * Fail-Soft Policy <br>
 	 * All failures are replaced with a pre-defined fallback value. The computation
-	 * never fails.
+	 * never fails.  A call that misses its deadline is replaced by the fallback value too.
 	 * @param services      List of Microservice objects to be processed.
 	 * @param messages      List of messages to be sent to the corresponding microservices.
 	 * @param fallbackValue The value the microservices should return if failure
@@ -179,6 +187,200 @@ public class AsyncProcessor {
 			List<Microservice> services, 
 			List<String> messages,
 			String fallbackValue) {
+		return processAsyncFailSoft(services, messages, fallbackValue, options);
+	}
+
+	/**
+	 * Fail-Soft Policy, with options for this call only <br>
+	 * See {@link #processAsyncFailSoft(List, List, String)}.
+	 * @param services      List of Microservice objects to be processed.
+	 * @param messages      List of messages to be sent to the corresponding microservices.
+	 * @param fallbackValue The value the microservices should return if failure
+	 *                      occurs.
+	 * @param options       Options replacing the processor's default options for this call.
+	 * @return A CompletableFuture of type String that contains the concatenation of the
+	 *         messages returned by all the microservices.
+	 */
+	public CompletableFuture<String> processAsyncFailSoft(
+			List<Microservice> services, 
+			List<String> messages,
+			String fallbackValue,
+			ProcessingOptions options) {
+
+		// Check if the number of messages received and number of microservices being processed match.
+		if (services.size() != messages.size()) {
+			return CompletableFuture.failedFuture(
+					new IllegalArgumentException("Number of messages received and microservices being processed do not match!"));
+		}
+
+		// Launch the microservices concurrently, replacing the failed services by the fallback value.
+		return aggregate(FailurePolicy.FAIL_SOFT, services, messages, fallbackValue, ResultAggregator.JOINING, options);
+	}
+
+	/**
+	 * Quorum Policy <br>
+	 * The computation completes as soon as {@code quorum} microservices have succeeded, and every microservice
+	 * call still in flight is cancelled; with a quorum of 1, the first successful replica wins.  It fails with a
+	 * {@link QuorumNotReachedException} as soon as too many microservices have failed for the quorum to be reached.
+	 * @param services List of Microservice objects to be processed.
+	 * @param messages List of messages to be sent to the corresponding microservices.
+	 * @param quorum   The number of successes completing the computation, between 1 and the number of microservices.
+	 * @param order    Whether the results keep the order of the microservices, or the order they completed in.
+	 * @return A CompletableFuture of type String that contains the concatenation of the
+	 *         messages returned by the first {@code quorum} successful microservices.
+	 */
+	public CompletableFuture<String> processAsyncQuorum(
+			List<Microservice> services,
+			List<String> messages,
+			int quorum,
+			ResultOrder order) {
+		return processAsyncQuorum(services, messages, quorum, order, options);
+	}
+
+	/**
+	 * Quorum Policy, with options for this call only <br>
+	 * See {@link #processAsyncQuorum(List, List, int, ResultOrder)}.
+	 * @param services List of Microservice objects to be processed.
+	 * @param messages List of messages to be sent to the corresponding microservices.
+	 * @param quorum   The number of successes completing the computation, between 1 and the number of microservices.
+	 * @param order    Whether the results keep the order of the microservices, or the order they completed in.
+	 * @param options  Options replacing the processor's default options for this call.
+	 * @return A CompletableFuture of type String that contains the concatenation of the
+	 *         messages returned by the first {@code quorum} successful microservices.
+	 */
+	public CompletableFuture<String> processAsyncQuorum(
+			List<Microservice> services,
+			List<String> messages,
+			int quorum,
+			ResultOrder order,
+			ProcessingOptions options) {
+		if (order == null) {
+			throw new IllegalArgumentException("Result order cannot be null!");
+		}
+
+		// Check if the number of messages received and number of microservices being processed match.
+		if (services.size() != messages.size()) {
+			return CompletableFuture.failedFuture(
+					new IllegalArgumentException("Number of messages received and microservices being processed do not match!"));
+		}
+		if (quorum < 1 || quorum > services.size()) {
+			return CompletableFuture.failedFuture(
+					new IllegalArgumentException("Quorum must be between 1 and the number of microservices!"));
+		}
+
+		// Launch the microservices concurrently, completing on the quorum-th success.
+		FailurePolicy policy = FailurePolicy.QUORUM;
+		long start = startBatch(policy, services.size(), options);
+		CompletableFuture<String> resultFuture = new QuorumAggregator(services.size(), quorum, order)
+				.aggregate(launchAll(policy, services, messages, options));
+		return endBatch(resultFuture, policy, services.size(), start, options);
+	}
+
+	// Reduced Failure Semantic Policies
+	/**
+	 * Any Policy, reduced <br>
+	 * Process a batch under the given policy, exactly as the corresponding {@code processAsync...} method, but
+	 * reduce the result of every call (see {@link BatchResults}) with the given reducer instead of joining them
+	 * into a single string, e.g., {@link ResultReducer#toList()} for the values in order, or
+	 * {@link ResultReducer#results()} for the outcome of each call.
+	 * @param policy        The failure policy of the batch (Fail-Fast, Fail-Partial or Fail-Soft).
+	 * @param services      List of Microservice objects to be processed.
+	 * @param messages      List of messages to be sent to the corresponding microservices.
+	 * @param fallbackValue The value replacing failed microservices (Fail-Soft only, ignored otherwise).
+	 * @param reducer       Reduces the results of the batch once every call has completed.
+	 * @return A CompletableFuture of the reduced results.
+	 */
+	public <R> CompletableFuture<R> processAsync(
+			FailurePolicy policy,
+			List<Microservice> services,
+			List<String> messages,
+			String fallbackValue,
+			ResultReducer<R> reducer) {
+		return processAsync(policy, services, messages, fallbackValue, reducer, options);
+	}
+
+	/**
+	 * Any Policy, reduced, with options for this call only <br>
+	 * See {@link #processAsync(FailurePolicy, List, List, String, ResultReducer)}.
+	 * @param policy        The failure policy of the batch (Fail-Fast, Fail-Partial or Fail-Soft).
+	 * @param services      List of Microservice objects to be processed.
+	 * @param messages      List of messages to be sent to the corresponding microservices.
+	 * @param fallbackValue The value replacing failed microservices (Fail-Soft only, ignored otherwise).
+	 * @param reducer       Reduces the results of the batch once every call has completed.
+	 * @param options       Options replacing the processor's default options for this call.
+	 * @return A CompletableFuture of the reduced results.
+	 */
+	public <R> CompletableFuture<R> processAsync(
+			FailurePolicy policy,
+			List<Microservice> services,
+			List<String> messages,
+			String fallbackValue,
+			ResultReducer<R> reducer,
+			ProcessingOptions options) {
+		if (policy == null || policy == FailurePolicy.QUORUM) {
+			throw new IllegalArgumentException("Failure policy must be Fail-Fast, Fail-Partial or Fail-Soft!");
+		}
+		if (reducer == null) {
+			throw new IllegalArgumentException("Reducer cannot be null!");
+		}
+
+		// Check if the number of messages received and number of microservices being processed match.
+		if (services.size() != messages.size()) {
+			return CompletableFuture.failedFuture(
+					new IllegalArgumentException("Number of messages received and microservices being processed do not match!"));
+		}
+
+		return aggregate(policy, services, messages, policy == FailurePolicy.FAIL_SOFT ? fallbackValue : null, reducer, options);
+	}
+
+	// Spilled Failure Semantic Policies
+	/**
+	 * Any Policy, spilled <br>
+	 * Process a very large batch under the given policy, exactly as the corresponding {@code processAsync...}
+	 * method, but write each result into the given spill as soon as its call completes, instead of keeping it on
+	 * the heap until the final join (see {@link SpilledResults}).  The output is then streamed with
+	 * {@link SpilledResults#writeTo(java.nio.channels.WritableByteChannel)}, without building a single string.
+	 * The spilled results must be closed once written; they are closed right away if the batch fails.
+	 * @param policy        The failure policy of the batch (Fail-Fast, Fail-Partial or Fail-Soft).
+	 * @param services      List of Microservice objects to be processed.
+	 * @param messages      List of messages to be sent to the corresponding microservices.
+	 * @param fallbackValue The value replacing failed microservices (Fail-Soft only, ignored otherwise).
+	 * @param spill         Where the results are spilled (off-heap or memory-mapped).
+	 * @return A CompletableFuture of the spilled results.
+	 */
+	public CompletableFuture<SpilledResults> processAsyncSpilled(
+			FailurePolicy policy,
+			List<Microservice> services,
+			List<String> messages,
+			String fallbackValue,
+			ResultSpill spill) {
+		return processAsyncSpilled(policy, services, messages, fallbackValue, spill, options);
+	}
+
+	/**
+	 * Any Policy, spilled, with options for this call only <br>
+	 * See {@link #processAsyncSpilled(FailurePolicy, List, List, String, ResultSpill)}.
+	 * @param policy        The failure policy of the batch (Fail-Fast, Fail-Partial or Fail-Soft).
+	 * @param services      List of Microservice objects to be processed.
+	 * @param messages      List of messages to be sent to the corresponding microservices.
+	 * @param fallbackValue The value replacing failed microservices (Fail-Soft only, ignored otherwise).
+	 * @param spill         Where the results are spilled (off-heap or memory-mapped).
+	 * @param options       Options replacing the processor's default options for this call.
+	 * @return A CompletableFuture of the spilled results.
+	 */
+	public CompletableFuture<SpilledResults> processAsyncSpilled(
+			FailurePolicy policy,
+			List<Microservice> services,
+			List<String> messages,
+			String fallbackValue,
+			ResultSpill spill,
+			ProcessingOptions options) {
+		if (policy == null || policy == FailurePolicy.QUORUM) {
+			throw new IllegalArgumentException("Failure policy must be Fail-Fast, Fail-Partial or Fail-Soft!");
+		}
+		if (spill == null) {
+			throw new IllegalArgumentException("Spill cannot be null!");
+		}
 
 		// Check if the number of messages received and number of microservices being processed match.
 		if (services.size() != messages.size()) {
@@ -186,40 +388,408 @@ public class AsyncProcessor {
 					new IllegalArgumentException("Number of messages received and microservices being processed do not match!"));
 		}
 
-		// Print the number of microservices being processed.
-		System.out.println("[Fail-Soft] Processing " + services.size() + " microservices...");
+		String fallback = policy == FailurePolicy.FAIL_SOFT ? fallbackValue : null;
+		SpilledResults spilled;
+		try {
+			spilled = spill.open(services.size(), fallback);
+		} catch (UncheckedIOException e) {
+			return CompletableFuture.failedFuture(e.getCause());
+		}
+		return aggregate(policy, services, messages,
+				ResultAggregator.spilling(policy, services, fallback, spilled, options), options);
+	}
+
+	// Streaming Failure Semantic Policies
+	/**
+	 * Fail-Fast Policy, streamed <br>
+	 * Emit each microservice reply as soon as its call completes.  The first failure cancels the remaining
+	 * calls and terminates the stream with {@code onError}; replies emitted before it cannot be taken back.
+	 * The microservices are called when the (single) subscriber subscribes.
+	 * @param services List of Microservice objects to be processed.
+	 * @param messages List of messages to be sent to the corresponding microservices.
+	 * @return A Publisher of the microservice replies, in completion order.
+	 */
+	public Flow.Publisher<String> streamAsyncFailFast(
+			List<Microservice> services,
+			List<String> messages) {
+		return streamAsyncFailFast(services, messages, options);
+	}
+
+	/**
+	 * Fail-Fast Policy, streamed, with options for this call only <br>
+	 * See {@link #streamAsyncFailFast(List, List)}.
+	 * @param services List of Microservice objects to be processed.
+	 * @param messages List of messages to be sent to the corresponding microservices.
+	 * @param options  Options replacing the processor's default options for this call.
+	 * @return A Publisher of the microservice replies, in completion order.
+	 */
+	public Flow.Publisher<String> streamAsyncFailFast(
+			List<Microservice> services,
+			List<String> messages,
+			ProcessingOptions options) {
+		return new CompletionPublisher(FailurePolicy.FAIL_FAST, services, messages, null, options);
+	}
 
-		// Create a stream of the future microservice results.
-		List<CompletableFuture<String>> futures = new ArrayList<>();
+	/**
+	 * Fail-Partial Policy, streamed <br>
+	 * Emit each successful microservice reply as soon as its call completes.  Failed calls emit nothing, and
+	 * the stream completes normally once every call is done.
+	 * The microservices are called when the (single) subscriber subscribes.
+	 * @param services List of Microservice objects to be processed.
+	 * @param messages List of messages to be sent to the corresponding microservices.
+	 * @return A Publisher of the successful microservice replies, in completion order.
+	 */
+	public Flow.Publisher<String> streamAsyncFailPartial(
+			List<Microservice> services,
+			List<String> messages) {
+		return streamAsyncFailPartial(services, messages, options);
+	}
 
-		// Loop through the received messages, adding them to the list of futures.
-		for (int i = 0; i < messages.size(); i++) {
-			Microservice service = services.get(i);
-			String message = messages.get(i);
+	/**
+	 * Fail-Partial Policy, streamed, with options for this call only <br>
+	 * See {@link #streamAsyncFailPartial(List, List)}.
+	 * @param services List of Microservice objects to be processed.
+	 * @param messages List of messages to be sent to the corresponding microservices.
+	 * @param options  Options replacing the processor's default options for this call.
+	 * @return A Publisher of the successful microservice replies, in completion order.
+	 */
+	public Flow.Publisher<String> streamAsyncFailPartial(
+			List<Microservice> services,
+			List<String> messages,
+			ProcessingOptions options) {
+		return new CompletionPublisher(FailurePolicy.FAIL_PARTIAL, services, messages, null, options);
+	}
 
-			// Add the future microservice result to the list of futures.
-			futures.add(
-					// If no failure has occurred, the microservice will return the message as expected.
-					service.retrieveAsync(message)
-							.exceptionally(ex -> {
-								// If a failure has occurred, print the error message and return the fallback value.
-								System.out.println("[Fail-Soft] Failure Detected: " + ex.getMessage());
-								System.out.println("[Fail-Soft] WARNING: Failure masked with fallback value: " + fallbackValue);
-								return fallbackValue;
-							}));
+	/**
+	 * Fail-Soft Policy, streamed <br>
+	 * Emit each microservice reply as soon as its call completes, or the fallback value as soon as it fails.
+	 * The stream always completes normally once every call is done.
+	 * The microservices are called when the (single) subscriber subscribes.
+	 * @param services      List of Microservice objects to be processed.
+	 * @param messages      List of messages to be sent to the corresponding microservices.
+	 * @param fallbackValue The value the microservices should return if failure occurs.
+	 * @return A Publisher of the microservice replies and fallback values, in completion order.
+	 */
+	public Flow.Publisher<String> streamAsyncFailSoft(
+			List<Microservice> services,
+			List<String> messages,
+			String fallbackValue) {
+		return streamAsyncFailSoft(services, messages, fallbackValue, options);
+	}
 
+	/**
+	 * Fail-Soft Policy, streamed, with options for this call only <br>
+	 * See {@link #streamAsyncFailSoft(List, List, String)}.
+	 * @param services      List of Microservice objects to be processed.
+	 * @param messages      List of messages to be sent to the corresponding microservices.
+	 * @param fallbackValue The value the microservices should return if failure occurs.
+	 * @param options       Options replacing the processor's default options for this call.
+	 * @return A Publisher of the microservice replies and fallback values, in completion order.
+	 */
+	public Flow.Publisher<String> streamAsyncFailSoft(
+			List<Microservice> services,
+			List<String> messages,
+			String fallbackValue,
+			ProcessingOptions options) {
+		if (fallbackValue == null) {
+			throw new IllegalArgumentException("Fallback value cannot be null when streaming!");
 		}
+		return new CompletionPublisher(FailurePolicy.FAIL_SOFT, services, messages, fallbackValue, options);
+	}
+
+	// Helper Methods
+	/**
+	 * Process a batch under the given policy, and reduce the results in the same order as {@code services}.
+	 * @param policy        The failure policy of the batch.
+	 * @param services      List of Microservice objects to be processed.
+	 * @param messages      List of messages to be sent to the corresponding microservices.
+	 * @param fallbackValue The value replacing failed microservices (Fail-Soft only).
+	 * @param reducer       Reduces the results (e.g., {@link ResultAggregator#JOINING} for the concatenation).
+	 * @param options       Options of this batch.
+	 * @return A CompletableFuture of the reduced results.
+	 */
+	private static <R> CompletableFuture<R> aggregate(
+			FailurePolicy policy,
+			List<Microservice> services,
+			List<String> messages,
+			String fallbackValue,
+			ResultReducer<R> reducer,
+			ProcessingOptions options) {
+		return aggregate(policy, services, messages,
+				new ResultAggregator<>(policy, services, fallbackValue, reducer, options), options);
+	}
+
+	/**
+	 * Launch every microservice of a batch, and aggregate their results with the given aggregator.
+	 * @param policy     The failure policy of the batch.
+	 * @param services   List of Microservice objects to be processed.
+	 * @param messages   List of messages to be sent to the corresponding microservices.
+	 * @param aggregator Collects the results of the calls (into slots, or into a spill).
+	 * @param options    Options of this batch.
+	 * @return A CompletableFuture of the aggregated results.
+	 */
+	private static <R> CompletableFuture<R> aggregate(
+			FailurePolicy policy,
+			List<Microservice> services,
+			List<String> messages,
+			ResultAggregator<R> aggregator,
+			ProcessingOptions options) {
+
+		// Notify the listener of the number of microservices being processed.
+		long start = startBatch(policy, services.size(), options);
 
-		// Create a barrier for all the microservices to reach using the allOf() method.
-		return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-				.thenApply(v -> {
-					// Once all microservices have completed (successfully or with fallback values), notify the user.
-					System.out.println("[Fail-Soft] All microservices completed (successfully or with fallback values).");
+		// Write each result into its slot as it completes, and reduce them once all have completed.
+		CompletableFuture<R> resultFuture = aggregator.aggregate(launchAll(policy, services, messages, options));
 
-					// Create a single CompletableFuture<String> containing the microservice results.
-					return futures.stream()
-							.map(CompletableFuture::join)
-							.collect(Collectors.joining(", "));
-				});
+		// Once all microservices have completed (or the first has failed, under Fail-Fast), notify the listener.
+		return endBatch(resultFuture, policy, services.size(), start, options);
+	}
+
+	/**
+	 * Notify the listener (if any) that a batch is starting.
+	 * @param policy  The failure policy of the batch.
+	 * @param size    The number of microservices in the batch.
+	 * @param options Options of this batch.
+	 * @return The start time of the batch, or 0 if there is no listener.
+	 */
+	static long startBatch(FailurePolicy policy, int size, ProcessingOptions options) {
+		ProcessingListener listener = options.getListener();
+		if (listener == ProcessingListener.NONE) {
+			return 0;
+		}
+		listener.onBatchStart(policy, size);
+		return options.getScheduler().nanoTime();
+	}
+
+	/**
+	 * Notify the listener (if any) once a batch has completed.
+	 * @param result  The future result of the batch.
+	 * @param policy  The failure policy of the batch.
+	 * @param size    The number of microservices in the batch.
+	 * @param start   The start time of the batch (see {@link #startBatch}).
+	 * @param options Options of this batch.
+	 * @return A future with the same result, completing only after the listener has been notified.
+	 */
+	static <T> CompletableFuture<T> endBatch(
+			CompletableFuture<T> result,
+			FailurePolicy policy,
+			int size,
+			long start,
+			ProcessingOptions options) {
+
+		ProcessingListener listener = options.getListener();
+		if (listener == ProcessingListener.NONE) {
+			return result;
+		}
+		Scheduler scheduler = options.getScheduler();
+		return result.whenComplete((value, ex) ->
+				listener.onBatchEnd(policy, size, scheduler.nanoTime() - start, ex == null ? null : unwrap(ex)));
+	}
+
+	/**
+	 * Start every microservice call of a batch, applying the in-flight limit, the retry and hedge policies, the
+	 * per-call and batch deadlines of the options, and reporting each outcome to the listener of the options.  A
+	 * call that misses a deadline (after its retries, if any) completes exceptionally with a TimeoutException, and
+	 * the underlying microservice call is cancelled.  A batch shed by the load shedder of the options starts no
+	 * call: each one fails right away with a {@link BatchShedException}.
+	 * @param policy   The failure policy of the batch.
+	 * @param services List of Microservice objects to be processed.
+	 * @param messages List of messages to be sent to the corresponding microservices.
+	 * @param options  Options of this batch.
+	 * @return The future results of the microservice calls, in the same order as {@code services}.
+	 */
+	static List<CompletableFuture<String>> launchAll(
+			FailurePolicy policy,
+			List<Microservice> services,
+			List<String> messages,
+			ProcessingOptions options) {
+
+		LoadShedder loadShedder = options.getLoadShedder();
+		if (loadShedder != null && loadShedder.shed(options.getPriority())) {
+			// One exception shared by every call of the shed batch, as for the batch deadline.
+			CompletableFuture<String> shed = CompletableFuture.failedFuture(new BatchShedException(options.getPriority()));
+			return new ArrayList<>(Collections.nCopies(services.size(), shed));
+		}
+
+		// Beyond the in-flight limit, each call gets its slot now, but only starts once an earlier call completes.
+		int maxInFlight = options.getMaxInFlight();
+		boolean bounded = maxInFlight > 0 && maxInFlight < services.size();
+		// With a latency estimator, the calls are started from the expected-slowest, rather than in order.
+		LatencyEstimator latencyEstimator = options.getLatencyEstimator();
+		boolean dispatched = bounded || latencyEstimator != null;
+		// Without deadlines, retries, hedging, a listener, a limit or a load shedder, the microservice futures are
+		// used as they are.
+		boolean observed = dispatched
+				|| loadShedder != null
+				|| options.getAdaptiveLimit() != null
+				|| options.getPerCallTimeout() != null
+				|| options.getBatchTimeout() != null
+				|| options.getRetry() != RetryPolicy.none()
+				|| options.getHedge() != HedgePolicy.none()
+				|| options.getListener() != ProcessingListener.NONE;
+		long batchStart = options.getBatchTimeout() == null ? 0 : options.getScheduler().nanoTime();
+
+		// The messages to a batch microservice appearing more than once are sent together, once all are launched
+		// (a micro-batcher already merges them with those of concurrent batches).
+		Map<Microservice, MessageBatch> batches = options.getMicroBatcher() == null
+				? MessageBatch.group(services, options.getExecutor())
+				: Map.of();
+
+		List<CompletableFuture<String>> futures = new ArrayList<>(services.size());
+		for (int i = 0; i < services.size(); i++) {
+			MessageBatch batch = batches.isEmpty() ? null : batches.get(services.get(i));
+			Microservice service = batch == null ? services.get(i) : batch.member();
+			futures.add(newCall(policy, service, messages.get(i), options, observed, !dispatched, batchStart));
+		}
+		if (dispatched) {
+			int[] order = latencyEstimator == null ? null : latencyEstimator.dispatchOrder(services);
+			new CallDispatcher(futures, order).start(bounded ? maxInFlight : services.size());
+		}
+		batches.values().forEach(MessageBatch::send);
+
+		// A single timer for the whole batch, instead of one per call.
+		if (options.getBatchTimeout() != null) {
+			long timeoutMs = options.getBatchTimeout().toMillis();
+			Future<?> timer = options.getScheduler().schedule(() -> {
+				// One exception shared by every late call: building a stack trace per call is wasted work.
+				TimeoutException timeout = new TimeoutException("Batch deadline of " + timeoutMs + " ms exceeded");
+				for (CompletableFuture<String> future : futures) {
+					// Every call has a ServiceCall slot under a batch deadline.
+					((ServiceCall) future).settle(null, timeout);
+				}
+			}, options.getBatchTimeout().toNanos(), TimeUnit.NANOSECONDS);
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+					.whenComplete((v, ex) -> timer.cancel(false));
+		}
+
+		return futures;
+	}
+
+	/**
+	 * Create the future result of a single microservice call of a batch.
+	 * @param policy     The failure policy of the batch.
+	 * @param service    Microservice to be called.
+	 * @param message    Message to be sent to the microservice.
+	 * @param options    Options of the batch.
+	 * @param observed   Whether the call needs a {@link ServiceCall} (for deadlines, retries, a listener, etc.).
+	 * @param start      Whether to start the call now, rather than leaving it to a {@link CallDispatcher}.
+	 * @param batchStart The start time of the batch (see {@link ServiceCall}).
+	 * @return The future result of the call.
+	 */
+	private static CompletableFuture<String> newCall(
+			FailurePolicy policy,
+			Microservice service,
+			String message,
+			ProcessingOptions options,
+			boolean observed,
+			boolean start,
+			long batchStart) {
+
+		if (!observed) {
+			return launch(service, message, options);
+		}
+		ServiceCall serviceCall = new ServiceCall(policy, service, message, options, batchStart);
+		if (start) {
+			serviceCall.start();
+		}
+		return serviceCall;
+	}
+
+	/**
+	 * Start a single microservice call on the executor of the options, joining the identical call in flight if
+	 * the options have a {@link RequestCoalescer} and batching it with concurrent requests if they have a
+	 * {@link MicroBatcher}, unless the circuit of the microservice is open.  With {@link Bulkheads}, the call
+	 * then waits for room in the compartment of the microservice.  With a {@link ResultCache}, a cached reply
+	 * (or the identical call in flight) is used instead of calling the microservice again.
+	 * @param service Microservice to be called.
+	 * @param message Message to be sent to the microservice.
+	 * @param options Options of the batch.
+	 * @return The future result of the microservice call.
+	 */
+	static CompletableFuture<String> launch(Microservice service, String message, ProcessingOptions options) {
+		ResultCache cache = options.getCache();
+		return cache == null
+				? launchGuarded(service, message, options, false)
+				: cache.lookup(service.getServiceId(), message, () -> launchGuarded(service, message, options, false));
+	}
+
+	/**
+	 * Start the hedge of a slow call (see {@link HedgedCall}).  Like any other call, it goes through the circuit
+	 * breaker and the bulkheads of the options, but it is always sent as a new call: neither the cache, nor the
+	 * identical call in flight, nor a micro-batching window would help it race the slow call.
+	 * @param service Microservice to be called.
+	 * @param message Message to be sent to the microservice.
+	 * @param options Options of the batch.
+	 * @return The future result of the microservice call.
+	 */
+	static CompletableFuture<String> launchHedge(Microservice service, String message, ProcessingOptions options) {
+		return launchGuarded(service, message, options, true);
+	}
+
+	private static CompletableFuture<String> launchGuarded(Microservice service, String message,
+			ProcessingOptions options, boolean hedge) {
+		// Checked before the bulkhead, so that a call rejected by an open circuit never holds a place in it.
+		CircuitBreaker circuitBreaker = options.getCircuitBreaker();
+		return circuitBreaker == null
+				? launchIsolated(service, message, options, hedge)
+				: circuitBreaker.call(service.getServiceId(), () -> launchIsolated(service, message, options, hedge));
+	}
+
+	private static CompletableFuture<String> launchIsolated(Microservice service, String message,
+			ProcessingOptions options, boolean hedge) {
+		Bulkheads bulkheads = options.getBulkheads();
+		if (bulkheads == null) {
+			return hedge ? launch(service, message, options.getExecutor()) : launchCoalesced(service, message, options);
+		}
+		return bulkheads.forService(service.getServiceId()).call(() -> hedge
+				? launch(service, message, options.getExecutor())
+				: launchCoalesced(service, message, options));
+	}
+
+	private static CompletableFuture<String> launchCoalesced(Microservice service, String message,
+			ProcessingOptions options) {
+		RequestCoalescer coalescer = options.getCoalescer();
+		return coalescer == null
+				? launchBatched(service, message, options)
+				: coalescer.call(service.getServiceId(), message, () -> launchBatched(service, message, options));
+	}
+
+	private static CompletableFuture<String> launchBatched(Microservice service, String message,
+			ProcessingOptions options) {
+		MicroBatcher microBatcher = options.getMicroBatcher();
+		return microBatcher == null
+				? launch(service, message, options.getExecutor())
+				: microBatcher.call(service, message, options.getExecutor());
+	}
+
+	/**
+	 * Start a single microservice call, on the given executor if one was provided.
+	 * @param service  Microservice to be called.
+	 * @param message  Message to be sent to the microservice.
+	 * @param executor Executor for the call, or null to use the microservice's own executor.
+	 * @return The future result of the microservice call.
+	 */
+	static CompletableFuture<String> launch(Microservice service, String message, Executor executor) {
+		return executor == null ? service.retrieveAsync(message) : service.retrieveAsync(message, executor);
+	}
+
+	/**
+	 * Strip the CompletionException wrapper added by dependent stages.
+	 * @param ex The exception of a completed future.
+	 * @return The underlying cause.
+	 */
+	static Throwable unwrap(Throwable ex) {
+		return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+	}
+
+	/**
+	 * Cancel every future that has not completed yet, interrupting the microservice calls
+	 * still running so that their worker threads are released.
+	 * @param futures List of futures to be cancelled.
+	 */
+	static void cancelAll(List<? extends CompletableFuture<?>> futures) {
+		for (CompletableFuture<?> future : futures) {
+			future.cancel(true);
+		}
 	}
 }
\ No newline at end of file
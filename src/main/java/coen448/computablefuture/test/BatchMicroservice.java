@@ -0,0 +1,68 @@
+package coen448.computablefuture.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * A microservice that can also reply to many messages in a single call. <br>
+ * When the same batch microservice appears more than once in a batch, the {@link AsyncProcessor} sends its
+ * messages in one {@link #retrieveBatchAsync(List, Executor)} call instead of one call per message, and scatters
+ * the replies back to their positions in the batch (see {@link MessageBatch}).  A batched call takes a single
+ * latency drawn from the microservice's {@link LatencyModel}, like a single call.
+ */
+class BatchMicroservice extends Microservice {
+	public BatchMicroservice(String serviceId) {
+		super(serviceId);
+	}
+
+	public BatchMicroservice(String serviceId, Executor executor) {
+		super(serviceId, executor);
+	}
+
+	public BatchMicroservice(String serviceId, Executor executor, LatencyModel latency) {
+		super(serviceId, executor, latency);
+	}
+
+	public BatchMicroservice(String serviceId, Executor executor, LatencyModel latency, RandomGenerator random) {
+		super(serviceId, executor, latency, random);
+	}
+
+	/**
+	 * Reply to many messages in a single call, on the microservice's own executor.
+	 * @param inputs The messages to be replied to.
+	 * @return The future replies, in the order of the messages.
+	 */
+	public CompletableFuture<List<String>> retrieveBatchAsync(List<String> inputs) {
+		return retrieveBatchAsync(inputs, getExecutor());
+	}
+
+	/**
+	 * Reply to many messages in a single call, on a caller-supplied executor (e.g., the AsyncProcessor's).
+	 * Cancelling the returned future interrupts the call.
+	 * @param inputs   The messages to be replied to.
+	 * @param executor The executor running the call.
+	 * @return The future replies, in the order of the messages.
+	 */
+	public CompletableFuture<List<String>> retrieveBatchAsync(List<String> inputs, Executor executor) {
+		// A single latency for the whole call: the per-call overhead is paid once.
+		long delayNanos = sampleLatencyNanos();
+		return InterruptibleFuture.submit(() -> {
+			try {
+				TimeUnit.NANOSECONDS.sleep(delayNanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+
+			List<String> replies = new ArrayList<>(inputs.size());
+			for (String input : inputs) {
+				replies.add(getServiceId() + ":" + input.toUpperCase());
+			}
+			return replies;
+		}, executor);
+	}
+}
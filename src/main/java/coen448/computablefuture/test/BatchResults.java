@@ -0,0 +1,119 @@
+package coen448.computablefuture.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of every call of a batch, in the same order as the microservices. <br>
+ * Each index holds the outcome of its call: the reply of a success, the cause of a failure, or the fallback value
+ * that replaced a failure (Fail-Soft).  A batch only reaches a {@link ResultReducer} once every call has completed,
+ * so that a Fail-Fast batch, which fails on its first failure, only ever holds successes.
+ */
+public final class BatchResults {
+	/**
+	 * The outcome of a single call.
+	 */
+	public enum Outcome {
+		SUCCESS, FAILURE, FALLBACK
+	}
+
+	private final FailurePolicy policy;
+	private final String[] values;
+	private final Throwable[] errors;
+
+	/**
+	 * @param policy The failure policy of the batch.
+	 * @param values The replies and fallback values, with null for failures (not copied).
+	 * @param errors The causes of the failures, with null for successes, or null if nothing failed (not copied).
+	 */
+	BatchResults(FailurePolicy policy, String[] values, Throwable[] errors) {
+		this.policy = policy;
+		this.values = values;
+		this.errors = errors;
+	}
+
+	public int size() {
+		return values.length;
+	}
+
+	public FailurePolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * The outcome of a call.
+	 * @param index The index of the call in the batch.
+	 * @return Whether the call succeeded, failed, or was replaced by the fallback value.
+	 */
+	public Outcome getOutcome(int index) {
+		if (errors == null || errors[index] == null) {
+			return Outcome.SUCCESS;
+		}
+		return policy == FailurePolicy.FAIL_SOFT ? Outcome.FALLBACK : Outcome.FAILURE;
+	}
+
+	/**
+	 * The value of a call.
+	 * @param index The index of the call in the batch.
+	 * @return The reply of a success, the fallback value of a replaced failure, or null for a failure.
+	 */
+	public String getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * The cause of a failed call.
+	 * @param index The index of the call in the batch.
+	 * @return The cause of the failure (also when replaced by the fallback value), or null for a success.
+	 */
+	public Throwable getError(int index) {
+		return errors == null ? null : errors[index];
+	}
+
+	/**
+	 * The number of calls with the given outcome.
+	 * @param outcome The outcome to be counted.
+	 * @return The count of calls.
+	 */
+	public int count(Outcome outcome) {
+		int count = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (getOutcome(i) == outcome) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * The values of the batch, in order, without the failures.  A fallback value is kept even when it is null, so
+	 * that under Fail-Soft the values line up with the microservices.
+	 * @return An unmodifiable list of the replies and fallback values.
+	 */
+	public List<String> getValues() {
+		List<String> present = new ArrayList<>(values.length);
+		for (int i = 0; i < values.length; i++) {
+			if (isPresent(i)) {
+				present.add(values[i]);
+			}
+		}
+		return Collections.unmodifiableList(present);
+	}
+
+	/**
+	 * Whether a call has a value: a reply, or a fallback value (even a null one).
+	 * @param index The index of the call in the batch.
+	 * @return False only for a failure that was not replaced.
+	 */
+	boolean isPresent(int index) {
+		return getOutcome(index) != Outcome.FAILURE;
+	}
+
+	/**
+	 * The values of the batch, with null for the failures, shared without a copy by the built-in reducers.
+	 */
+	String[] values() {
+		return values;
+	}
+}
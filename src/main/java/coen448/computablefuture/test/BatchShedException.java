@@ -0,0 +1,17 @@
+package coen448.computablefuture.test;
+
+/**
+ * The failure of a microservice call of a batch shed by an overloaded {@link LoadShedder}, without the
+ * microservice being called.
+ */
+public class BatchShedException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param priority The priority of the shed batch.
+	 */
+	public BatchShedException(Priority priority) {
+		// Shedding is frequent and expected under overload: a stack trace would be wasted work.
+		super("Batch of priority " + priority + " shed under load", null, false, false);
+	}
+}
@@ -0,0 +1,205 @@
+package coen448.computablefuture.test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A compartment of microservice calls, with a concurrency cap and a queue of its own (see {@link Bulkheads}). <br>
+ * At most {@code maxConcurrent} calls of the compartment are in flight at once.  The calls beyond that wait in
+ * its queue (without holding a thread), and are started in arrival order as earlier calls complete.  Once
+ * {@code maxQueued} calls are waiting, further calls fail right away with a {@link BulkheadFullException}.  A slow
+ * microservice therefore holds at most {@code maxConcurrent} executor threads, however many calls it receives.
+ */
+public final class Bulkhead {
+	private final String name;
+	private final int maxConcurrent;
+	private final int maxQueued;
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicInteger peakActive = new AtomicInteger();
+	// The waiting calls, including those cancelled while waiting.
+	private final ConcurrentLinkedQueue<Compartmented> waiting = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queued = new AtomicInteger();
+	// Trampolines drain(): only one thread starts waiting calls, however they complete.
+	private final AtomicInteger draining = new AtomicInteger();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder delayed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * @param name          The name of the compartment (a group, or a service id).
+	 * @param maxConcurrent The maximum number of calls in flight at once.
+	 * @param maxQueued     The maximum number of calls waiting, or 0 to reject every call beyond the cap.
+	 */
+	Bulkhead(String name, int maxConcurrent, int maxQueued) {
+		this.name = name;
+		this.maxConcurrent = maxConcurrent;
+		this.maxQueued = maxQueued;
+	}
+
+	/**
+	 * Start a call once the compartment has room for it, unless its queue is full.
+	 * @param launcher Starts the microservice call.
+	 * @return The future result of the call, or a future already failed with a {@link BulkheadFullException}.
+	 */
+	CompletableFuture<String> call(Supplier<CompletableFuture<String>> launcher) {
+		Compartmented call = new Compartmented(launcher);
+		if (tryAcquire()) {
+			start(call);
+			return call;
+		}
+		if (queued.incrementAndGet() > maxQueued) {
+			queued.decrementAndGet();
+			rejected.increment();
+			return CompletableFuture.failedFuture(new BulkheadFullException(name));
+		}
+		delayed.increment();
+		waiting.add(call);
+		// A call may have completed before this one was queued.
+		drain();
+		return call;
+	}
+
+	private void start(Compartmented call) {
+		peakActive.accumulateAndGet(active.get(), Math::max);
+		CompletableFuture<String> current = call.launcher.get();
+		call.current = current;
+		// The compartment is released before the caller sees the outcome, so that its next call finds room.
+		current.handle((result, ex) -> {
+			completed.increment();
+			active.decrementAndGet();
+			drain();
+			return ex == null ? call.complete(result) : call.completeExceptionally(AsyncProcessor.unwrap(ex));
+		});
+		// Cancelled before the call was attached: the call is no longer needed.
+		if (call.isDone()) {
+			current.cancel(true);
+		}
+	}
+
+	private void drain() {
+		if (draining.getAndIncrement() != 0) {
+			return;
+		}
+		do {
+			while (queued.get() > 0 && tryAcquire()) {
+				Compartmented next = waiting.poll();
+				if (next == null) {
+					active.decrementAndGet();
+					break;
+				}
+				queued.decrementAndGet();
+				if (next.isDone()) {
+					// Cancelled while waiting: its room goes to the next call.
+					active.decrementAndGet();
+					continue;
+				}
+				start(next);
+			}
+		} while (draining.decrementAndGet() != 0);
+	}
+
+	private boolean tryAcquire() {
+		while (true) {
+			int current = active.get();
+			if (current >= maxConcurrent) {
+				return false;
+			}
+			if (active.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public int getMaxQueued() {
+		return maxQueued;
+	}
+
+	/**
+	 * The number of calls currently in flight in this compartment.
+	 * @return The count of calls in flight.
+	 */
+	public int getActive() {
+		return active.get();
+	}
+
+	/**
+	 * The highest number of calls in flight at once since the compartment was created.
+	 * @return The peak count of calls in flight.
+	 */
+	public int getPeakActive() {
+		return peakActive.get();
+	}
+
+	/**
+	 * The number of calls waiting, including those cancelled while waiting.
+	 * @return The count of waiting calls.
+	 */
+	public int getQueued() {
+		return queued.get();
+	}
+
+	/**
+	 * The share of the concurrency cap in use.
+	 * @return The number of calls in flight divided by the cap, from 0 to 1.
+	 */
+	public double getSaturation() {
+		return (double) active.get() / maxConcurrent;
+	}
+
+	/**
+	 * The number of calls started and completed (successfully or not) in this compartment.
+	 * @return The count of completed calls.
+	 */
+	public long getCompletedCount() {
+		return completed.sum();
+	}
+
+	/**
+	 * The number of calls that found the compartment at its cap, and had to wait in its queue.
+	 * @return The count of queued calls.
+	 */
+	public long getQueuedCount() {
+		return delayed.sum();
+	}
+
+	/**
+	 * The number of calls failed right away because the queue of the compartment was full.
+	 * @return The count of rejected calls.
+	 */
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	/**
+	 * The future result of a call in a compartment.  Cancelling it cancels the call, or drops it from the queue.
+	 */
+	private static final class Compartmented extends CompletableFuture<String> {
+		private final Supplier<CompletableFuture<String>> launcher;
+		private volatile CompletableFuture<String> current;
+
+		Compartmented(Supplier<CompletableFuture<String>> launcher) {
+			this.launcher = launcher;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			CompletableFuture<String> call = current;
+			if (cancelled && call != null) {
+				call.cancel(mayInterruptIfRunning);
+			}
+			return cancelled;
+		}
+	}
+}
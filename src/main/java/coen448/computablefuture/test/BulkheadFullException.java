@@ -0,0 +1,16 @@
+package coen448.computablefuture.test;
+
+/**
+ * The failure of a microservice call rejected by a full {@link Bulkhead}, without the microservice being called.
+ */
+public class BulkheadFullException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param bulkhead The name of the full bulkhead.
+	 */
+	public BulkheadFullException(String bulkhead) {
+		// Rejections are frequent and expected while a bulkhead is full: a stack trace would be wasted work.
+		super("Bulkhead full: " + bulkhead, null, false, false);
+	}
+}
@@ -0,0 +1,97 @@
+package coen448.computablefuture.test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bulkheads isolating the microservices from each other, so that a slow microservice only saturates its own
+ * compartment (see {@link Bulkhead}). <br>
+ * Every microservice gets a compartment of its own, keyed by its service id, with the default caps.  A group
+ * defined with {@link #defineGroup(String, int, int, String...)} shares a single compartment, with its own caps,
+ * among the microservices assigned to it.  Group names and service ids are kept apart: a group named like a
+ * microservice does not share that microservice's compartment, unless it is assigned to the group.  Calls rejected by a full compartment are failures like any other for
+ * the policies (e.g., they are replaced by the fallback value under Fail-Soft), and are not retried.  The bulkheads
+ * are set with {@link ProcessingOptions#withBulkheads(Bulkheads)}, and should be shared by the batches they apply to.
+ */
+public final class Bulkheads {
+	private final int maxConcurrent;
+	private final int maxQueued;
+	// The group of each service id assigned to one.
+	private final ConcurrentHashMap<String, String> groups = new ConcurrentHashMap<>();
+	// The compartment of each group, and of each service id not assigned to one.
+	private final ConcurrentHashMap<String, Bulkhead> groupBulkheads = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Bulkhead> serviceBulkheads = new ConcurrentHashMap<>();
+
+	/**
+	 * Create the bulkheads, with a compartment per service id by default.
+	 * @param maxConcurrent The default maximum number of calls in flight at once, per compartment.
+	 * @param maxQueued     The default maximum number of calls waiting, per compartment.
+	 */
+	public Bulkheads(int maxConcurrent, int maxQueued) {
+		validate(maxConcurrent, maxQueued);
+		this.maxConcurrent = maxConcurrent;
+		this.maxQueued = maxQueued;
+	}
+
+	/**
+	 * Define a group of microservices sharing a single compartment.  Groups are expected to be defined before the
+	 * bulkheads are used: a service id already called keeps its own compartment for the calls in flight.
+	 * @param group         The name of the group.
+	 * @param maxConcurrent The maximum number of calls of the group in flight at once.
+	 * @param maxQueued     The maximum number of calls of the group waiting.
+	 * @param serviceIds    The ids of the microservices in the group.
+	 * @return These bulkheads.
+	 */
+	public Bulkheads defineGroup(String group, int maxConcurrent, int maxQueued, String... serviceIds) {
+		if (group == null) {
+			throw new IllegalArgumentException("Group name cannot be null!");
+		}
+		validate(maxConcurrent, maxQueued);
+		if (groupBulkheads.putIfAbsent(group, new Bulkhead(group, maxConcurrent, maxQueued)) != null) {
+			throw new IllegalArgumentException("Group " + group + " is already defined!");
+		}
+		for (String serviceId : serviceIds) {
+			groups.put(serviceId, group);
+		}
+		return this;
+	}
+
+	private static void validate(int maxConcurrent, int maxQueued) {
+		if (maxConcurrent <= 0) {
+			throw new IllegalArgumentException("Concurrency cap must be positive!");
+		}
+		if (maxQueued < 0) {
+			throw new IllegalArgumentException("Queue size cannot be negative!");
+		}
+	}
+
+	/**
+	 * The compartment of a microservice: its group's, or its own.
+	 * @param serviceId The id of the microservice.
+	 * @return The compartment of the microservice, created on first use.
+	 */
+	public Bulkhead forService(String serviceId) {
+		String group = groups.get(serviceId);
+		return group != null
+				? groupBulkheads.get(group)
+				: serviceBulkheads.computeIfAbsent(serviceId, id -> new Bulkhead(id, maxConcurrent, maxQueued));
+	}
+
+	/**
+	 * The compartments of the groups, by group name, for monitoring their saturation.
+	 * @return An unmodifiable view of the group compartments.
+	 */
+	public Map<String, Bulkhead> getGroupBulkheads() {
+		return Collections.unmodifiableMap(groupBulkheads);
+	}
+
+	/**
+	 * The compartments of the service ids not assigned to a group, created so far, by service id, for monitoring
+	 * their saturation.
+	 * @return An unmodifiable view of the service compartments.
+	 */
+	public Map<String, Bulkhead> getServiceBulkheads() {
+		return Collections.unmodifiableMap(serviceBulkheads);
+	}
+}
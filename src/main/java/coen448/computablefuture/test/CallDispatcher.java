@@ -0,0 +1,82 @@
+package coen448.computablefuture.test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts the microservice calls of a batch with at most a fixed number of them in flight. <br>
+ * Every call has its {@link ServiceCall} slot from the start, so that the policies see the results in the same
+ * order as the services, but the calls beyond the limit are only started as earlier ones complete.  Slots that
+ * complete before their call is started (e.g., cancelled under Fail-Fast, or past the batch deadline) are
+ * skipped, and their calls are never started.  The calls are started in the order of the services, or in the
+ * given dispatch order (e.g., the expected-slowest first, see {@link LatencyEstimator}).
+ */
+final class CallDispatcher {
+	private final List<CompletableFuture<String>> slots;
+	// The indices of the slots in the order their calls are started, or null for the order of the services.
+	private final int[] order;
+	// The number of released permits not yet used to start a call.  Only the thread that raises it from zero
+	// starts calls, so that calls completing on the starting thread do not recurse through the next start.
+	private final AtomicInteger released = new AtomicInteger();
+	// Only accessed by the thread starting calls (see above).
+	private int next;
+
+	/**
+	 * @param slots The slot of each microservice: a {@link ServiceCall} not yet started.
+	 */
+	CallDispatcher(List<CompletableFuture<String>> slots) {
+		this(slots, null);
+	}
+
+	/**
+	 * @param slots The slot of each microservice: a {@link ServiceCall} not yet started.
+	 * @param order The indices of the slots in the order their calls are started, or null for the order of the
+	 *              services.
+	 */
+	CallDispatcher(List<CompletableFuture<String>> slots, int[] order) {
+		this.slots = slots;
+		this.order = order;
+	}
+
+	/**
+	 * Start the first calls of the batch.
+	 * @param maxInFlight The maximum number of calls in flight at once.
+	 */
+	void start(int maxInFlight) {
+		int permits = Math.min(maxInFlight, slots.size());
+		if (permits > 0 && released.getAndAdd(permits) == 0) {
+			drain();
+		}
+	}
+
+	private void release() {
+		if (released.getAndIncrement() == 0) {
+			drain();
+		}
+	}
+
+	private void drain() {
+		do {
+			startNext();
+		} while (released.decrementAndGet() != 0);
+	}
+
+	/**
+	 * Start the next call whose slot is still pending, if any.  Its permit is released once its slot completes.
+	 */
+	private void startNext() {
+		while (next < slots.size()) {
+			int index = order == null ? next++ : order[next++];
+			if (!(slots.get(index) instanceof ServiceCall slot) || slot.isDone()) {
+				continue;
+			}
+			slot.start();
+			slot.handle((result, ex) -> {
+				release();
+				return null;
+			});
+			return;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package coen448.computablefuture.test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A circuit breaker per service id, which stops calling a microservice that keeps failing. <br>
+ * Each service id has its own circuit:
+ * <ul>
+ *   <li>Closed: calls go through.  After the given number of consecutive failures, the circuit opens.</li>
+ *   <li>Open: calls fail right away with a {@link CircuitOpenException}, without calling the microservice (and
+ *       without using an executor thread).  Once the open duration has elapsed, the circuit becomes half-open.</li>
+ *   <li>Half-open: a single probe call goes through, while the other calls still fail right away.  The circuit
+ *       closes if the probe succeeds, and opens again if it fails.</li>
+ * </ul>
+ * A rejected call is a failure like any other for the policies (e.g., it is replaced by the fallback value under
+ * Fail-Soft), but it is not counted by the circuit itself, and it is not retried.  The circuit is checked before
+ * the {@link Bulkheads}, if any: a rejected call never waits in a compartment, and a call rejected by a full
+ * compartment is not counted as a failure of the microservice.  A successful call in the closed state is a single
+ * volatile read in the common case.  The breaker is set with
+ * {@link ProcessingOptions#withCircuitBreaker(CircuitBreaker)}, and should be shared by the batches it applies to.
+ */
+public final class CircuitBreaker {
+	/**
+	 * The state of a circuit.
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openNanos;
+	private final Scheduler scheduler;
+	private final ConcurrentHashMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+	private final LongAdder opened = new LongAdder();
+	private final LongAdder halfOpened = new LongAdder();
+	private final LongAdder closed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * Create a circuit breaker.
+	 * @param failureThreshold The number of consecutive failures opening a circuit.
+	 * @param openDuration     The time a circuit stays open before a probe call is let through.
+	 */
+	public CircuitBreaker(int failureThreshold, Duration openDuration) {
+		this(failureThreshold, openDuration, Scheduler.system());
+	}
+
+	/**
+	 * Create a circuit breaker.
+	 * @param failureThreshold The number of consecutive failures opening a circuit.
+	 * @param openDuration     The time a circuit stays open before a probe call is let through.
+	 * @param scheduler        The clock used for the open duration.
+	 */
+	public CircuitBreaker(int failureThreshold, Duration openDuration, Scheduler scheduler) {
+		if (failureThreshold <= 0) {
+			throw new IllegalArgumentException("Failure threshold must be positive!");
+		}
+		if (openDuration == null || openDuration.isNegative()) {
+			throw new IllegalArgumentException("Open duration cannot be null or negative!");
+		}
+		if (scheduler == null) {
+			throw new IllegalArgumentException("Scheduler cannot be null!");
+		}
+		this.failureThreshold = failureThreshold;
+		this.openNanos = openDuration.toNanos();
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Start a call through the circuit of its service, unless the circuit rejects it.
+	 * @param serviceId The id of the microservice.
+	 * @param launcher  Starts the microservice call.
+	 * @return The future result of the call, or a future already failed with a {@link CircuitOpenException}.
+	 */
+	CompletableFuture<String> call(String serviceId, Supplier<CompletableFuture<String>> launcher) {
+		Circuit circuit = circuits.computeIfAbsent(serviceId, id -> new Circuit());
+		Status current = circuit.status.get();
+		boolean probe;
+		switch (current.state()) {
+			case CLOSED -> probe = false;
+			case OPEN -> {
+				// Only the caller moving the circuit to half-open after the open duration gets to probe it.
+				probe = scheduler.nanoTime() - current.openedAtNanos() >= openNanos
+						&& circuit.status.compareAndSet(current, Status.HALF_OPEN);
+				if (!probe) {
+					return reject(serviceId);
+				}
+				halfOpened.increment();
+			}
+			default -> {
+				return reject(serviceId);
+			}
+		}
+		CompletableFuture<String> call = launcher.get();
+		// The caller only sees the outcome once it is accounted for, so that its next call sees the new state.
+		Guarded guarded = new Guarded(call);
+		call.handle((result, ex) -> {
+			Throwable error = ex == null ? null : AsyncProcessor.unwrap(ex);
+			completed(circuit, probe, error);
+			return error == null ? guarded.complete(result) : guarded.completeExceptionally(error);
+		});
+		return guarded;
+	}
+
+	private CompletableFuture<String> reject(String serviceId) {
+		rejected.increment();
+		return CompletableFuture.failedFuture(new CircuitOpenException(serviceId));
+	}
+
+	private void completed(Circuit circuit, boolean probe, Throwable error) {
+		if (probe) {
+			if (error == null) {
+				if (circuit.status.compareAndSet(Status.HALF_OPEN, Status.CLOSED)) {
+					circuit.failures.set(0);
+					closed.increment();
+				}
+			} else if (error instanceof CancellationException || error instanceof BulkheadFullException) {
+				// An abandoned (or never sent) probe proves nothing: the next call probes again, as the open
+				// duration has elapsed.
+				circuit.status.compareAndSet(Status.HALF_OPEN, new Status(State.OPEN, scheduler.nanoTime() - openNanos));
+			} else {
+				open(circuit, Status.HALF_OPEN);
+			}
+			return;
+		}
+		if (error == null) {
+			// Only written when there is something to reset, so that successes do not contend on the counter.
+			if (circuit.failures.get() != 0) {
+				circuit.failures.set(0);
+			}
+		} else if (!(error instanceof CancellationException) && !(error instanceof BulkheadFullException)
+				&& circuit.failures.incrementAndGet() >= failureThreshold) {
+			open(circuit, Status.CLOSED);
+		}
+	}
+
+	private void open(Circuit circuit, Status from) {
+		// Only the failure opening the circuit sets the start of the open duration: later failures of calls that
+		// were already in flight do not extend it.
+		if (circuit.status.compareAndSet(from, new Status(State.OPEN, scheduler.nanoTime()))) {
+			opened.increment();
+		}
+	}
+
+	/**
+	 * The current state of the circuit of a microservice.
+	 * @param serviceId The id of the microservice.
+	 * @return The state, which is closed for a microservice never called.
+	 */
+	public State getState(String serviceId) {
+		Circuit circuit = circuits.get(serviceId);
+		return circuit == null ? State.CLOSED : circuit.status.get().state();
+	}
+
+	/**
+	 * The number of times a circuit opened (from closed, or from half-open after a failed probe).
+	 * @return The count of transitions to open.
+	 */
+	public long getOpenCount() {
+		return opened.sum();
+	}
+
+	public long getHalfOpenCount() {
+		return halfOpened.sum();
+	}
+
+	public long getCloseCount() {
+		return closed.sum();
+	}
+
+	/**
+	 * The number of calls failed right away by an open (or half-open) circuit.
+	 * @return The count of rejected calls.
+	 */
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	/**
+	 * The future result of a call let through by a circuit.  Cancelling it cancels the call.
+	 */
+	private static final class Guarded extends CompletableFuture<String> {
+		private final CompletableFuture<String> call;
+
+		Guarded(CompletableFuture<String> call) {
+			this.call = call;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				call.cancel(mayInterruptIfRunning);
+			}
+			return cancelled;
+		}
+	}
+
+	/**
+	 * The state of a circuit, with the time it opened, published together.
+	 * @param state         The state of the circuit.
+	 * @param openedAtNanos The time the circuit opened (open state only).
+	 */
+	private record Status(State state, long openedAtNanos) {
+		// Compared by identity: the closed and half-open states only ever use these instances.
+		static final Status CLOSED = new Status(State.CLOSED, 0);
+		static final Status HALF_OPEN = new Status(State.HALF_OPEN, 0);
+	}
+
+	/**
+	 * The circuit of a single service id.
+	 */
+	private static final class Circuit {
+		private final AtomicReference<Status> status = new AtomicReference<>(Status.CLOSED);
+		private final AtomicInteger failures = new AtomicInteger();
+	}
+}
@@ -0,0 +1,17 @@
+package coen448.computablefuture.test;
+
+/**
+ * The failure of a microservice call rejected by an open circuit (see {@link CircuitBreaker}), without the
+ * microservice being called.
+ */
+public class CircuitOpenException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param serviceId The id of the microservice whose circuit is open.
+	 */
+	public CircuitOpenException(String serviceId) {
+		// Rejections are frequent and expected while a circuit is open: a stack trace would be wasted work.
+		super("Circuit open for " + serviceId, null, false, false);
+	}
+}
@@ -0,0 +1,205 @@
+package coen448.computablefuture.test;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publisher that emits each microservice reply as soon as its call completes (i.e., in completion order). <br>
+ * The microservices are only called once a subscriber subscribes, and only a single subscriber is supported.
+ * Replies are delivered as the subscriber requests them; replies that complete before they are requested wait
+ * in a queue.  Failures are handled according to the failure policy:
+ * <ul>
+ *   <li>Fail-Fast: the first failure cancels the remaining calls, discards the queued replies and signals
+ *       {@code onError}.  Replies that were already delivered cannot be taken back.</li>
+ *   <li>Fail-Partial: failed calls emit nothing.  {@code onComplete} is signalled once every call is done.</li>
+ *   <li>Fail-Soft: failed calls emit the fallback value.  {@code onComplete} is signalled once every call is done.</li>
+ * </ul>
+ * Cancelling the subscription cancels (and interrupts) every call still in flight.
+ */
+final class CompletionPublisher implements Flow.Publisher<String> {
+	private final FailurePolicy policy;
+	private final List<Microservice> services;
+	private final List<String> messages;
+	private final String fallbackValue;
+	private final ProcessingOptions options;
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	CompletionPublisher(
+			FailurePolicy policy,
+			List<Microservice> services,
+			List<String> messages,
+			String fallbackValue,
+			ProcessingOptions options) {
+		this.policy = policy;
+		this.services = services;
+		this.messages = messages;
+		this.fallbackValue = fallbackValue;
+		this.options = options;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super String> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("Subscriber cannot be null!");
+		}
+		CompletionSubscription subscription = new CompletionSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+
+		// Check that this is the only subscriber, and that there is one message per microservice.
+		if (!subscribed.compareAndSet(false, true)) {
+			subscription.fail(new IllegalStateException("Only a single subscriber is supported!"));
+			return;
+		}
+		if (services.size() != messages.size()) {
+			subscription.fail(new IllegalArgumentException("Number of messages received and microservices being processed do not match!"));
+			return;
+		}
+		subscription.start(AsyncProcessor.launchAll(policy, services, messages, options));
+	}
+
+	/**
+	 * The subscription of the single subscriber, which also tracks the microservice calls.
+	 */
+	private final class CompletionSubscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super String> subscriber;
+		private final Queue<String> ready = new ConcurrentLinkedQueue<>();
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger();
+		private final AtomicReference<Throwable> error = new AtomicReference<>();
+		private final AtomicInteger remaining = new AtomicInteger(Integer.MAX_VALUE);
+		private volatile List<CompletableFuture<String>> calls = List.of();
+		private volatile boolean cancelled;
+		// Only accessed from the drain loop, which never runs on two threads at once.
+		private boolean terminated;
+		private volatile boolean started;
+		private volatile long startNanos;
+
+		CompletionSubscription(Flow.Subscriber<? super String> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		void start(List<CompletableFuture<String>> futures) {
+			startNanos = AsyncProcessor.startBatch(policy, futures.size(), options);
+			started = true;
+			calls = futures;
+			remaining.set(futures.size());
+			for (int i = 0; i < futures.size(); i++) {
+				Microservice service = services.get(i);
+				futures.get(i).whenComplete((result, ex) -> onCallComplete(service, result, ex));
+			}
+			// An empty batch completes right away.
+			drain();
+		}
+
+		void fail(Throwable ex) {
+			error.compareAndSet(null, ex);
+			remaining.set(0);
+			drain();
+		}
+
+		private void onCallComplete(Microservice service, String result, Throwable ex) {
+			if (ex == null) {
+				// A null reply cannot be emitted, and is treated like an absent result.
+				if (result != null) {
+					ready.offer(result);
+				}
+			} else if (policy == FailurePolicy.FAIL_FAST) {
+				// Only the first failure wins; the cancellations it triggers are not failures of their own.
+				if (error.compareAndSet(null, AsyncProcessor.unwrap(ex))) {
+					cancelCalls();
+				}
+			} else if (policy == FailurePolicy.FAIL_SOFT) {
+				ready.offer(fallbackValue);
+				if (options.getListener() != ProcessingListener.NONE) {
+					options.getListener().onFallbackApplied(policy, service.getServiceId(), fallbackValue);
+				}
+			}
+			remaining.decrementAndGet();
+			drain();
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				// A non-positive request is a protocol violation: terminate with an error.
+				if (error.compareAndSet(null, new IllegalArgumentException("Requested amount must be positive!"))) {
+					cancelCalls();
+				}
+				drain();
+				return;
+			}
+			// Add the demand, capping it at Long.MAX_VALUE (i.e., unbounded).
+			requested.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			cancelCalls();
+		}
+
+		private void cancelCalls() {
+			for (CompletableFuture<String> call : calls) {
+				call.cancel(true);
+			}
+		}
+
+		private void reportEnd(Throwable failure) {
+			ProcessingListener listener = options.getListener();
+			// A batch rejected before it started (e.g., size mismatch) was never reported as started either.
+			if (started && listener != ProcessingListener.NONE) {
+				listener.onBatchEnd(policy, services.size(), options.getScheduler().nanoTime() - startNanos, failure);
+			}
+		}
+
+		/**
+		 * Deliver as many queued replies as requested, then the terminal signal once due.  Any thread may call
+		 * this method; only one of them at a time runs the loop, and it loops again for every missed call.
+		 */
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			do {
+				if (terminated || cancelled) {
+					ready.clear();
+					continue;
+				}
+				Throwable failure = error.get();
+				if (failure != null) {
+					terminated = true;
+					ready.clear();
+					reportEnd(failure);
+					subscriber.onError(failure);
+					continue;
+				}
+				long emitted = 0;
+				long demand = requested.get();
+				while (emitted != demand && !cancelled && error.get() == null) {
+					String item = ready.poll();
+					if (item == null) {
+						break;
+					}
+					subscriber.onNext(item);
+					emitted++;
+				}
+				if (emitted != 0 && demand != Long.MAX_VALUE) {
+					requested.addAndGet(-emitted);
+				}
+				if (!cancelled && error.get() == null && remaining.get() == 0 && ready.isEmpty()) {
+					terminated = true;
+					reportEnd(null);
+					subscriber.onComplete();
+				}
+			} while (wip.decrementAndGet() != 0);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package coen448.computablefuture.test;
+
+/**
+ * The failure semantic policies of {@link AsyncProcessor} (see {@code docs/failure-semantics.md}).
+ */
+public enum FailurePolicy {
+	/**
+	 * If any microservice fails, the entire computation fails immediately.
+	 */
+	FAIL_FAST("Fail-Fast"),
+
+	/**
+	 * All failures are ignored.  The computation returns only the successful results.
+	 */
+	FAIL_PARTIAL("Fail-Partial"),
+
+	/**
+	 * All failures are replaced with a pre-defined fallback value.  The computation never fails.
+	 */
+	FAIL_SOFT("Fail-Soft"),
+
+	/**
+	 * The computation completes as soon as a given number of microservices succeed, and the remaining calls are
+	 * cancelled.  It fails as soon as too many microservices have failed for that number to be reached.
+	 */
+	QUORUM("Quorum");
+
+	private final String displayName;
+
+	FailurePolicy(String displayName) {
+		this.displayName = displayName;
+	}
+
+	@Override
+	public String toString() {
+		return displayName;
+	}
+}
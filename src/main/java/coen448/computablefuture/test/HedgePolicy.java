@@ -0,0 +1,98 @@
+package coen448.computablefuture.test;
+
+import java.time.Duration;
+
+/**
+ * When a slow microservice call is hedged, i.e., duplicated by a second request. <br>
+ * If a call has not completed after the hedge delay, the same request is sent again, the first successful reply
+ * of the two is used, and the other request is cancelled.  The delay is either fixed, or a percentile of the call
+ * latencies observed so far (e.g., the p95), so that only the slowest few percent of the calls are duplicated.
+ * A percentile-based policy keeps its own latency histogram, and should be shared by the batches it applies to.
+ */
+public final class HedgePolicy {
+	private static final HedgePolicy NONE = new HedgePolicy(-1, 0);
+	// The number of latencies observed before the percentile replaces the initial delay.
+	private static final int MIN_SAMPLES = 20;
+	// The percentile is recomputed about every this many latencies, as it is a scan of the histogram.
+	private static final int REFRESH_INTERVAL = 64;
+
+	private final long delayNanos;
+	private final double percentile;
+	private final LatencyHistogram latencies;
+	private volatile long percentileDelayNanos;
+
+	private HedgePolicy(long delayNanos, double percentile) {
+		this.delayNanos = delayNanos;
+		this.percentile = percentile;
+		this.latencies = percentile > 0 ? new LatencyHistogram() : null;
+	}
+
+	/**
+	 * The policy that never hedges (the default).
+	 * @return The policy without hedging.
+	 */
+	public static HedgePolicy none() {
+		return NONE;
+	}
+
+	/**
+	 * Hedge every call that has not completed after a fixed delay.
+	 * @param delay The delay before the duplicate request is sent.
+	 * @return A new hedge policy.
+	 */
+	public static HedgePolicy afterDelay(Duration delay) {
+		return new HedgePolicy(requireNonNegative(delay), 0);
+	}
+
+	/**
+	 * Hedge every call that is slower than the given percentile of the call latencies observed by this policy.
+	 * Until enough latencies have been observed, the initial delay is used instead.
+	 * @param percentile   The percentile of the latencies, strictly between 0 and 100 (e.g., 95).
+	 * @param initialDelay The delay used before enough latencies have been observed.
+	 * @return A new hedge policy.
+	 */
+	public static HedgePolicy atPercentile(double percentile, Duration initialDelay) {
+		if (!(percentile > 0 && percentile < 100)) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100!");
+		}
+		return new HedgePolicy(requireNonNegative(initialDelay), percentile);
+	}
+
+	/**
+	 * The current hedge delay.
+	 * @return The delay in nanoseconds.
+	 */
+	long delayNanos() {
+		long current = percentileDelayNanos;
+		return current > 0 ? current : delayNanos;
+	}
+
+	/**
+	 * Observe the latency of a successful call (only kept by percentile-based policies).
+	 * @param latencyNanos The latency of the call, from its own request.
+	 */
+	void record(long latencyNanos) {
+		if (latencies == null) {
+			return;
+		}
+		latencies.record(latencyNanos);
+		long count = latencies.getCount();
+		if (count == MIN_SAMPLES || (count > MIN_SAMPLES && count % REFRESH_INTERVAL == 0)) {
+			percentileDelayNanos = Math.max(1, latencies.getPercentile(percentile));
+		}
+	}
+
+	/**
+	 * Whether this policy observes latencies, and so needs the calls to be timed.
+	 */
+	boolean isAdaptive() {
+		return latencies != null;
+	}
+
+	private static long requireNonNegative(Duration delay) {
+		if (delay == null || delay.isNegative()) {
+			throw new IllegalArgumentException("Hedge delay cannot be null or negative!");
+		}
+		return delay.toNanos();
+	}
+}
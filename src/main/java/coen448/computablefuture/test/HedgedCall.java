@@ -0,0 +1,133 @@
+package coen448.computablefuture.test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One attempt of a microservice call, hedged by a duplicate request if it is slow (see {@link HedgePolicy}). <br>
+ * The first successful reply of the two requests completes this future, and cancels the other request.  A failed
+ * request only fails this future once no other request is running: once the hedge has been sent, a failure waits
+ * for the other request.  A failure before the hedge delay fails this future right away, and the hedge is never
+ * sent, as failures are retried (see {@link RetryPolicy}) rather than hedged.  The hedge is refused like any other
+ * call by an open circuit or a full bulkhead, in which case the first request is left to complete on its own.
+ * Cancelling this future cancels both requests.
+ */
+final class HedgedCall extends CompletableFuture<String> {
+	private final FailurePolicy policy;
+	private final Microservice service;
+	private final String message;
+	private final HedgePolicy hedge;
+	private final ProcessingListener listener;
+	private final Scheduler scheduler;
+	private final ProcessingOptions options;
+	// The number of requests sent and still running.  A hedge only counts once it has been sent.
+	private final AtomicInteger live = new AtomicInteger(1);
+	private final AtomicBoolean won = new AtomicBoolean();
+	private volatile CompletableFuture<String> primary;
+	private volatile CompletableFuture<String> secondary;
+	private volatile Future<?> timer;
+
+	private HedgedCall(FailurePolicy policy, Microservice service, String message, ProcessingOptions options) {
+		this.policy = policy;
+		this.service = service;
+		this.message = message;
+		this.hedge = options.getHedge();
+		this.listener = options.getListener();
+		this.scheduler = options.getScheduler();
+		this.options = options;
+	}
+
+	/**
+	 * Send the request, and schedule its hedge.
+	 * @param policy  The failure policy of the batch.
+	 * @param service The microservice to be called.
+	 * @param message The message to be sent to the microservice.
+	 * @param options Options of the batch, including the hedge policy.
+	 * @return The future reply of whichever request succeeds first.
+	 */
+	static HedgedCall launch(FailurePolicy policy, Microservice service, String message, ProcessingOptions options) {
+		HedgedCall call = new HedgedCall(policy, service, message, options);
+		call.timer = call.scheduler.schedule(call::fireHedge, call.hedge.delayNanos(), TimeUnit.NANOSECONDS);
+		call.send(false);
+		return call;
+	}
+
+	private void fireHedge() {
+		if (isDone()) {
+			return;
+		}
+		live.incrementAndGet();
+		if (listener != ProcessingListener.NONE) {
+			listener.onHedgeFired(policy, service.getServiceId());
+		}
+		CompletableFuture<String> request = send(true);
+		// Completed while the hedge was being sent: it is no longer needed.
+		if (isDone()) {
+			request.cancel(true);
+		}
+	}
+
+	private CompletableFuture<String> send(boolean hedged) {
+		long start = hedge.isAdaptive() ? scheduler.nanoTime() : 0;
+		// The hedge is a new request by design, but it still goes through the circuit breaker and the bulkheads.
+		CompletableFuture<String> request = hedged
+				? AsyncProcessor.launchHedge(service, message, options)
+				: AsyncProcessor.launch(service, message, options);
+		if (hedged) {
+			secondary = request;
+		} else {
+			primary = request;
+		}
+		request.handle((result, ex) -> {
+			if (ex == null) {
+				succeeded(result, hedged, start);
+			} else if (live.decrementAndGet() == 0) {
+				cancelTimer();
+				completeExceptionally(AsyncProcessor.unwrap(ex));
+			}
+			return null;
+		});
+		return request;
+	}
+
+	private void succeeded(String result, boolean hedged, long start) {
+		if (!won.compareAndSet(false, true)) {
+			return;
+		}
+		cancelTimer();
+		if (hedge.isAdaptive()) {
+			hedge.record(scheduler.nanoTime() - start);
+		}
+		// Reported before the reply becomes visible, like the other events of a call.
+		if (hedged && listener != ProcessingListener.NONE) {
+			listener.onHedgeWon(policy, service.getServiceId());
+		}
+		complete(result);
+		cancelRequest(hedged ? primary : secondary);
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		boolean cancelled = super.cancel(mayInterruptIfRunning);
+		cancelTimer();
+		cancelRequest(primary);
+		cancelRequest(secondary);
+		return cancelled;
+	}
+
+	private void cancelTimer() {
+		Future<?> pendingTimer = timer;
+		if (pendingTimer != null) {
+			pendingTimer.cancel(false);
+		}
+	}
+
+	private static void cancelRequest(CompletableFuture<String> request) {
+		if (request != null) {
+			request.cancel(true);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package coen448.computablefuture.test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * A CompletableFuture whose cancellation reaches the worker thread. <br>
+ * {@link CompletableFuture#supplyAsync(Supplier, Executor)} ignores the {@code mayInterruptIfRunning}
+ * flag, so a cancelled task keeps its thread until it finishes on its own.  This future instead runs
+ * the supplier inside a {@link FutureTask}, and cancelling the future cancels (and interrupts) that task.
+ * @param <T> The type of the value produced by the supplier.
+ */
+final class InterruptibleFuture<T> extends CompletableFuture<T> {
+	private final FutureTask<T> task;
+
+	private InterruptibleFuture(Supplier<T> supplier) {
+		this.task = new FutureTask<>(supplier::get) {
+			@Override
+			protected void done() {
+				// A cancelled task has already cancelled this future (see cancel below).
+				if (isCancelled()) {
+					return;
+				}
+				try {
+					complete(get());
+				} catch (ExecutionException e) {
+					completeExceptionally(e.getCause());
+				} catch (InterruptedException e) {
+					// Cannot happen: done() is only called once the task has finished.
+					Thread.currentThread().interrupt();
+					completeExceptionally(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Run the supplier asynchronously on the given executor.
+	 * @param supplier The work to be performed.
+	 * @param executor The executor the work is submitted to.
+	 * @return A future that completes with the supplier's result, and interrupts the supplier when cancelled.
+	 */
+	static <T> InterruptibleFuture<T> submit(Supplier<T> supplier, Executor executor) {
+		InterruptibleFuture<T> future = new InterruptibleFuture<>(supplier);
+		executor.execute(future.task);
+		return future;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		boolean cancelled = super.cancel(mayInterruptIfRunning);
+		// Always interrupt: the whole point of this future is to free the worker thread.
+		task.cancel(true);
+		return cancelled;
+	}
+}
@@ -0,0 +1,89 @@
+package coen448.computablefuture.test;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * A running estimate of the latency of each service id, used to start the expected-slowest calls of a batch
+ * first. <br>
+ * Each estimate is an exponentially weighted moving average (EWMA) of the latencies of the successful and timed
+ * out calls to the service: every new latency moves it by the given weight, so that it follows a microservice
+ * getting slower or faster within a few calls.  A batch then starts its calls from the slowest to the fastest,
+ * service ids without an estimate first, so that a slow call started last does not extend the whole batch.  The
+ * results keep the order of the services either way.  The estimator is set with
+ * {@link ProcessingOptions#withLatencyEstimator(LatencyEstimator)}, and should be shared by the batches it applies to.
+ */
+public final class LatencyEstimator {
+	private static final double DEFAULT_WEIGHT = 0.2;
+
+	private final double weight;
+	// The estimate of each service id, as the bits of a double.
+	private final ConcurrentHashMap<String, AtomicLong> estimates = new ConcurrentHashMap<>();
+
+	/**
+	 * Create an estimator giving each new latency a weight of 0.2.
+	 */
+	public LatencyEstimator() {
+		this(DEFAULT_WEIGHT);
+	}
+
+	/**
+	 * Create an estimator.
+	 * @param weight The weight of each new latency in the estimate, from 0 (exclusive) to 1 (the last latency only).
+	 */
+	public LatencyEstimator(double weight) {
+		if (!(weight > 0.0 && weight <= 1.0)) {
+			throw new IllegalArgumentException("Weight must be above 0 and at most 1!");
+		}
+		this.weight = weight;
+	}
+
+	/**
+	 * Update the estimate of a service with the latency of a call.
+	 * @param serviceId    The id of the microservice.
+	 * @param latencyNanos The latency of the call.
+	 */
+	public void record(String serviceId, long latencyNanos) {
+		AtomicLong estimate = estimates.computeIfAbsent(serviceId, id -> new AtomicLong(Double.doubleToRawLongBits(-1)));
+		double sample = Math.max(0, latencyNanos);
+		while (true) {
+			long bits = estimate.get();
+			double current = Double.longBitsToDouble(bits);
+			double next = current < 0 ? sample : current + weight * (sample - current);
+			if (estimate.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * The estimated latency of a service.
+	 * @param serviceId The id of the microservice.
+	 * @return The estimate in nanoseconds, or -1 if the service has no completed call yet.
+	 */
+	public long getEstimate(String serviceId) {
+		AtomicLong estimate = estimates.get(serviceId);
+		return estimate == null ? -1 : (long) Double.longBitsToDouble(estimate.get());
+	}
+
+	/**
+	 * The order in which the calls of a batch are started: the expected-slowest first, in input order for equal
+	 * estimates.
+	 * @param services The microservices of the batch.
+	 * @return The indices of the services, from the slowest to the fastest.
+	 */
+	int[] dispatchOrder(List<Microservice> services) {
+		double[] expected = new double[services.size()];
+		for (int i = 0; i < expected.length; i++) {
+			long estimate = getEstimate(services.get(i).getServiceId());
+			expected[i] = estimate < 0 ? Double.POSITIVE_INFINITY : estimate;
+		}
+		return IntStream.range(0, expected.length)
+				.boxed()
+				.sorted((a, b) -> Double.compare(expected[b], expected[a]))
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+}
@@ -0,0 +1,92 @@
+package coen448.computablefuture.test;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free, fixed-memory histogram of latencies (in nanoseconds). <br>
+ * Values are counted in log-linear buckets: every power of two is split into 16 sub-buckets, so a reported
+ * percentile is within about 6% of the true value, from 1 ns up to {@link Long#MAX_VALUE}.  Recording is a
+ * single atomic increment, and never allocates.
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder total = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Record a single latency.
+	 * @param nanos The latency in nanoseconds (negative values are recorded as 0).
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(value));
+		total.increment();
+		max.accumulate(value);
+	}
+
+	/**
+	 * The number of recorded latencies.
+	 * @return The count.
+	 */
+	public long getCount() {
+		return total.sum();
+	}
+
+	/**
+	 * The highest recorded latency.
+	 * @return The maximum in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * The latency below which the given percentage of the recorded latencies fall.
+	 * @param percentile The percentile, between 0 and 100 (e.g., 99 for the p99).
+	 * @return The percentile in nanoseconds (the upper bound of its bucket), or 0 if nothing was recorded.
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100!");
+		}
+		long count = getCount();
+		if (count == 0) {
+			return 0;
+		}
+		// The rank of the requested percentile, at least the first value.
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += counts.get(bucket);
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(bucket), getMax());
+			}
+		}
+		// Buckets recorded concurrently with this scan may not add up to the count read above.
+		return getMax();
+	}
+
+	static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return (shift + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowerBound + (1L << shift) - 1;
+	}
+}
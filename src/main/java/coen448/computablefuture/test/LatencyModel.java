@@ -0,0 +1,94 @@
+package coen448.computablefuture.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * The latency of the calls to a microservice, drawn from a random generator. <br>
+ * A model holds no state: the same model with generators of the same seed draws the same latencies, so that a
+ * simulated scenario (see {@link SimulatedMicroservice} and {@link VirtualTimeScheduler}) replays exactly.
+ */
+@FunctionalInterface
+public interface LatencyModel {
+	/**
+	 * Draw the latency of a call.
+	 * @param random The random generator of the microservice.
+	 * @return The latency in nanoseconds.
+	 */
+	long sampleNanos(RandomGenerator random);
+
+	/**
+	 * Every call takes the same time.
+	 * @param latency The latency of every call.
+	 * @return A fixed latency model.
+	 */
+	static LatencyModel fixed(Duration latency) {
+		if (latency == null || latency.isNegative()) {
+			throw new IllegalArgumentException("Latency cannot be null or negative!");
+		}
+		long nanos = latency.toNanos();
+		return random -> nanos;
+	}
+
+	/**
+	 * The latencies are spread uniformly between a minimum and a maximum (both included).
+	 * @param min The shortest latency.
+	 * @param max The longest latency.
+	 * @return A uniform latency model.
+	 */
+	static LatencyModel uniform(Duration min, Duration max) {
+		if (min == null || min.isNegative() || max == null || max.compareTo(min) < 0) {
+			throw new IllegalArgumentException("Latency range must be non-negative, with its maximum above its minimum!");
+		}
+		long minNanos = min.toNanos();
+		long range = max.toNanos() - minNanos + 1;
+		return random -> minNanos + random.nextLong(range);
+	}
+
+	/**
+	 * The latencies are drawn from a set of observed latencies, each with the same probability.
+	 * @param nanos The observed latencies, in nanoseconds.
+	 * @return An empirical latency model.
+	 */
+	static LatencyModel empirical(long... nanos) {
+		if (nanos == null || nanos.length == 0) {
+			throw new IllegalArgumentException("Observed latencies cannot be empty!");
+		}
+		long[] observed = Arrays.copyOf(nanos, nanos.length);
+		return random -> observed[random.nextInt(observed.length)];
+	}
+
+	/**
+	 * The latencies are drawn from a trace file of observed latencies (e.g., exported from production): one
+	 * latency in milliseconds per line, possibly with a fraction.  Blank lines and lines starting with {@code #}
+	 * are skipped.
+	 * @param file The trace file.
+	 * @return An empirical latency model reproducing the distribution of the trace.
+	 * @throws IOException If the file cannot be read.
+	 */
+	static LatencyModel fromTrace(Path file) throws IOException {
+		List<String> lines = Files.readAllLines(file);
+		long[] nanos = new long[lines.size()];
+		int count = 0;
+		for (String line : lines) {
+			String trimmed = line.strip();
+			if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+				continue;
+			}
+			try {
+				nanos[count++] = Math.round(Double.parseDouble(trimmed) * 1_000_000);
+			} catch (NumberFormatException e) {
+				throw new IOException("Invalid latency in " + file + ": " + trimmed, e);
+			}
+		}
+		if (count == 0) {
+			throw new IOException("No latency in " + file);
+		}
+		return empirical(Arrays.copyOf(nanos, count));
+	}
+}
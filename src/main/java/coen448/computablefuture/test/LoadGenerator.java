@@ -0,0 +1,388 @@
+package coen448.computablefuture.test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
+
+/**
+ * A load test of the failure policies, sending batches at a constant rate for a given duration (an open model). <br>
+ * Each batch is due at a fixed time ({@code i / rate} after the start) and is sent then, whether or not the earlier
+ * batches have completed, so that a processor falling behind faces a growing backlog instead of a slower client.
+ * Every batch calls the same microservices, whose calls take a latency drawn from a {@link LatencyModel} and fail
+ * with a given probability.  The run reports the achieved throughput, the latency percentiles corrected for
+ * coordinated omission, and the thread count and heap in use over time (see {@link LoadReport}).  Generators are
+ * immutable: every {@code with...} method returns a modified copy.  It can be run from the command line, see
+ * {@link #main(String[])}.
+ */
+public final class LoadGenerator {
+	// The time left to the batches still in flight at the end of the run, after which they are abandoned.
+	private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+	private final double rate;
+	private final Duration duration;
+	private FailurePolicy policy = FailurePolicy.FAIL_SOFT;
+	private int batchSize = 10;
+	private double failureRatio = 0.0;
+	private LatencyModel latency = LatencyModel.uniform(Duration.ZERO, Duration.ofMillis(30));
+	// The seed of the latencies and failures, or null for unseeded draws.
+	private Long seed;
+	private ProcessingOptions options = ProcessingOptions.defaults().withExecutor(MicroserviceExecutors.virtualThreads());
+	private Duration sampleInterval = Duration.ofSeconds(1);
+
+	private LoadGenerator(double rate, Duration duration) {
+		this.rate = rate;
+		this.duration = duration;
+	}
+
+	private LoadGenerator(LoadGenerator other) {
+		this.rate = other.rate;
+		this.duration = other.duration;
+		this.policy = other.policy;
+		this.batchSize = other.batchSize;
+		this.failureRatio = other.failureRatio;
+		this.latency = other.latency;
+		this.seed = other.seed;
+		this.options = other.options;
+		this.sampleInterval = other.sampleInterval;
+	}
+
+	/**
+	 * A generator sending batches of 10 calls under Fail-Soft, with latencies of 0-30 ms, no failures, and the calls
+	 * on virtual threads.
+	 * @param ratePerSecond The number of batches sent per second.
+	 * @param duration      The time during which batches are sent.
+	 * @return A new load generator.
+	 */
+	public static LoadGenerator at(double ratePerSecond, Duration duration) {
+		if (!(ratePerSecond > 0.0)) {
+			throw new IllegalArgumentException("Rate must be positive!");
+		}
+		if (duration == null || duration.isNegative() || duration.isZero()) {
+			throw new IllegalArgumentException("Duration must be positive!");
+		}
+		return new LoadGenerator(ratePerSecond, duration);
+	}
+
+	/**
+	 * Set the failure policy of the batches.  Quorum batches need a majority of their calls to succeed.
+	 * @param policy The failure policy.
+	 * @return A copy of this generator with the policy set.
+	 */
+	public LoadGenerator withPolicy(FailurePolicy policy) {
+		if (policy == null) {
+			throw new IllegalArgumentException("Failure policy cannot be null!");
+		}
+		LoadGenerator copy = new LoadGenerator(this);
+		copy.policy = policy;
+		return copy;
+	}
+
+	public LoadGenerator withBatchSize(int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be positive!");
+		}
+		LoadGenerator copy = new LoadGenerator(this);
+		copy.batchSize = batchSize;
+		return copy;
+	}
+
+	/**
+	 * Set the probability of each microservice call failing.
+	 * @param failureRatio The failure ratio, from 0 to 1.
+	 * @return A copy of this generator with the failure ratio set.
+	 */
+	public LoadGenerator withFailureRatio(double failureRatio) {
+		if (!(failureRatio >= 0.0 && failureRatio <= 1.0)) {
+			throw new IllegalArgumentException("Failure ratio must be between 0 and 1!");
+		}
+		LoadGenerator copy = new LoadGenerator(this);
+		copy.failureRatio = failureRatio;
+		return copy;
+	}
+
+	/**
+	 * Set the latency of the microservice calls (e.g., from a production trace, see
+	 * {@link LatencyModel#fromTrace(Path)}).
+	 * @param latency The latency model.
+	 * @return A copy of this generator with the latency set.
+	 */
+	public LoadGenerator withLatency(LatencyModel latency) {
+		if (latency == null) {
+			throw new IllegalArgumentException("Latency model cannot be null!");
+		}
+		LoadGenerator copy = new LoadGenerator(this);
+		copy.latency = latency;
+		return copy;
+	}
+
+	/**
+	 * Seed the latencies and failures of the microservice calls, so that every run draws the same ones for each
+	 * microservice, in the order of its calls.
+	 * @param seed The seed of the run.
+	 * @return A copy of this generator with the seed set.
+	 */
+	public LoadGenerator withSeed(long seed) {
+		LoadGenerator copy = new LoadGenerator(this);
+		copy.seed = seed;
+		return copy;
+	}
+
+	/**
+	 * Set the options of every batch (e.g., the executor of the calls, or a limit on the calls in flight).
+	 * @param options The processing options.
+	 * @return A copy of this generator with the options set.
+	 */
+	public LoadGenerator withOptions(ProcessingOptions options) {
+		if (options == null) {
+			throw new IllegalArgumentException("Options cannot be null!");
+		}
+		LoadGenerator copy = new LoadGenerator(this);
+		copy.options = options;
+		return copy;
+	}
+
+	/**
+	 * Set the interval between two samples of the throughput, thread count and heap.
+	 * @param sampleInterval The sample interval.
+	 * @return A copy of this generator with the sample interval set.
+	 */
+	public LoadGenerator withSampleInterval(Duration sampleInterval) {
+		if (sampleInterval == null || sampleInterval.isNegative() || sampleInterval.isZero()) {
+			throw new IllegalArgumentException("Sample interval must be positive!");
+		}
+		LoadGenerator copy = new LoadGenerator(this);
+		copy.sampleInterval = sampleInterval;
+		return copy;
+	}
+
+	/**
+	 * Run the load test.  Batches are sent from the calling thread, which returns once every batch has completed
+	 * (or after a further 30 s, abandoning the batches still in flight).
+	 * @return The report of the run.
+	 * @throws InterruptedException If the calling thread is interrupted.
+	 */
+	public LoadReport run() throws InterruptedException {
+		AsyncProcessor processor = new AsyncProcessor(options);
+		List<Microservice> services = new ArrayList<>(batchSize);
+		List<String> messages = new ArrayList<>(batchSize);
+		Executor executor = options.getExecutor() == null ? MicroserviceExecutors.commonPool() : options.getExecutor();
+		SplittableRandom seeds = seed == null ? null : new SplittableRandom(seed);
+		for (int i = 0; i < batchSize; i++) {
+			RandomGenerator random = seeds == null ? null : seeds.split();
+			services.add(new LoadMicroservice("svc-" + i, executor, latency, random, failureRatio));
+			messages.add("msg-" + i);
+		}
+
+		long intervalNanos = Math.max(1, (long) (1e9 / rate));
+		long count = Math.max(1, duration.toNanos() / intervalNanos);
+		LatencyHistogram corrected = new LatencyHistogram();
+		LatencyHistogram serviceTime = new LatencyHistogram();
+		LongAdder completed = new LongAdder();
+		LongAdder failed = new LongAdder();
+		AtomicInteger inFlight = new AtomicInteger();
+		CountDownLatch drained = new CountDownLatch((int) Math.min(count, Integer.MAX_VALUE));
+		LongAccumulator lastCompletion = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+		long start = System.nanoTime();
+		Sampler sampler = new Sampler(start, sampleInterval.toNanos(), completed, inFlight);
+		sampler.schedule();
+		try {
+			for (long i = 0; i < count; i++) {
+				long intended = start + i * intervalNanos;
+				// Wait for the batch's due time, but never for earlier batches: a late batch is sent right away.
+				for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+					LockSupport.parkNanos(wait);
+					if (Thread.interrupted()) {
+						throw new InterruptedException();
+					}
+				}
+				long sent = System.nanoTime();
+				inFlight.incrementAndGet();
+				send(processor, services, messages).handle((result, ex) -> {
+					long end = System.nanoTime();
+					corrected.record(end - intended);
+					serviceTime.record(end - sent);
+					if (ex != null) {
+						failed.increment();
+					}
+					completed.increment();
+					lastCompletion.accumulate(end);
+					inFlight.decrementAndGet();
+					drained.countDown();
+					return null;
+				});
+			}
+			drained.await(DRAIN_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+		} finally {
+			sampler.stop();
+		}
+		long end = completed.sum() == 0 ? System.nanoTime() : lastCompletion.get();
+		return new LoadReport(rate, end - start, count, completed.sum(), failed.sum(),
+				corrected, serviceTime, sampler.getSamples());
+	}
+
+	private CompletableFuture<String> send(AsyncProcessor processor, List<Microservice> services, List<String> messages) {
+		return switch (policy) {
+			case FAIL_FAST -> processor.processAsyncFailFast(services, messages, options);
+			case FAIL_PARTIAL -> processor.processAsyncFailPartial(services, messages, options);
+			case FAIL_SOFT -> processor.processAsyncFailSoft(services, messages, "FALLBACK", options);
+			case QUORUM -> processor.processAsyncQuorum(services, messages, services.size() / 2 + 1,
+					ResultOrder.COMPLETION_ORDER, options);
+		};
+	}
+
+	/**
+	 * Run a load test from the command line, and print its report. <br>
+	 * Options (all optional): {@code --rate} batches per second (100), {@code --duration} seconds (10),
+	 * {@code --batch} calls per batch (10), {@code --failures} failure ratio (0), {@code --policy} one of
+	 * {@code fail-fast}, {@code fail-partial}, {@code fail-soft} or {@code quorum} (fail-soft), and either
+	 * {@code --latency MIN-MAX} uniform latency in milliseconds (0-30) or {@code --trace FILE} latencies in
+	 * milliseconds, one per line, and {@code --seed} the seed of the latencies and failures (none).
+	 * @param args The command line options.
+	 * @throws IOException          If the trace cannot be read.
+	 * @throws InterruptedException If the run is interrupted.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		double rate = 100;
+		long seconds = 10;
+		List<String> rest = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i] + "!");
+			}
+			switch (args[i]) {
+				case "--rate" -> rate = Double.parseDouble(args[++i]);
+				case "--duration" -> seconds = Long.parseLong(args[++i]);
+				default -> {
+					rest.add(args[i]);
+					rest.add(args[++i]);
+				}
+			}
+		}
+		LoadGenerator generator = LoadGenerator.at(rate, Duration.ofSeconds(seconds));
+		for (int i = 0; i < rest.size(); i += 2) {
+			String value = rest.get(i + 1);
+			generator = switch (rest.get(i)) {
+				case "--batch" -> generator.withBatchSize(Integer.parseInt(value));
+				case "--failures" -> generator.withFailureRatio(Double.parseDouble(value));
+				case "--policy" -> generator.withPolicy(FailurePolicy.valueOf(value.toUpperCase().replace('-', '_')));
+				case "--latency" -> {
+					String[] bounds = value.split("-", 2);
+					yield generator.withLatency(LatencyModel.uniform(
+							Duration.ofMillis(Long.parseLong(bounds[0])), Duration.ofMillis(Long.parseLong(bounds[1]))));
+				}
+				case "--trace" -> generator.withLatency(LatencyModel.fromTrace(Path.of(value)));
+				case "--seed" -> generator.withSeed(Long.parseLong(value));
+				default -> throw new IllegalArgumentException("Unknown option " + rest.get(i) + "!");
+			};
+		}
+		System.out.print(generator.run());
+	}
+
+	/**
+	 * Samples the throughput, in-flight batches, thread count and heap at a fixed interval, on the system
+	 * scheduler's timer thread.
+	 */
+	private static final class Sampler {
+		private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		private final long start;
+		private final long intervalNanos;
+		private final LongAdder completed;
+		private final AtomicInteger inFlight;
+		// Guarded by this.
+		private final List<LoadReport.Sample> samples = new ArrayList<>();
+		private long lastTime;
+		private long lastCompleted;
+		private Future<?> next;
+		private boolean stopped;
+
+		Sampler(long start, long intervalNanos, LongAdder completed, AtomicInteger inFlight) {
+			this.start = start;
+			this.intervalNanos = intervalNanos;
+			this.completed = completed;
+			this.inFlight = inFlight;
+			this.lastTime = start;
+		}
+
+		synchronized void schedule() {
+			if (!stopped) {
+				next = Scheduler.system().schedule(this::sample, intervalNanos, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		private void sample() {
+			synchronized (this) {
+				if (stopped) {
+					return;
+				}
+				record();
+			}
+			schedule();
+		}
+
+		// Guarded by this.
+		private void record() {
+			long now = System.nanoTime();
+			long done = completed.sum();
+			double throughput = now == lastTime ? 0 : (done - lastCompleted) * 1e9 / (now - lastTime);
+			samples.add(new LoadReport.Sample(now - start, throughput, inFlight.get(), threads.getThreadCount(),
+					memory.getHeapMemoryUsage().getUsed()));
+			lastTime = now;
+			lastCompleted = done;
+		}
+
+		synchronized void stop() {
+			if (stopped) {
+				return;
+			}
+			stopped = true;
+			if (next != null) {
+				next.cancel(false);
+			}
+			// The last, partial interval.
+			record();
+		}
+
+		synchronized List<LoadReport.Sample> getSamples() {
+			return new ArrayList<>(samples);
+		}
+	}
+
+	/**
+	 * A microservice whose calls take a latency drawn from a model, and fail with a given probability.
+	 */
+	private static final class LoadMicroservice extends Microservice {
+		private final double failureRatio;
+
+		LoadMicroservice(String serviceId, Executor executor, LatencyModel latency, RandomGenerator random,
+				double failureRatio) {
+			super(serviceId, executor, latency, random);
+			this.failureRatio = failureRatio;
+		}
+
+		@Override
+		String reply(String input) {
+			if (nextDouble() < failureRatio) {
+				throw new RuntimeException("Load failure of " + getServiceId());
+			}
+			return super.reply(input);
+		}
+	}
+}
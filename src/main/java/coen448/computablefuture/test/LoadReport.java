@@ -0,0 +1,133 @@
+package coen448.computablefuture.test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a load test run by a {@link LoadGenerator}. <br>
+ * Latencies are measured twice.  The corrected latency of a batch runs from the time it was due to start, at the
+ * target rate, which accounts for coordinated omission: a processor that falls behind is charged for the time the
+ * late batches spent waiting to be sent, as its users would be.  The service time runs from the time the batch
+ * was actually sent.  Reports are immutable.
+ */
+public final class LoadReport {
+	/**
+	 * The state of the JVM and of the load at one point of the run.
+	 * @param elapsedNanos   The time since the run started.
+	 * @param throughput     The batches completed per second, since the previous sample.
+	 * @param inFlight       The batches sent and not yet completed.
+	 * @param threads        The number of live threads (platform threads only).
+	 * @param heapUsedBytes  The heap in use.
+	 */
+	public record Sample(long elapsedNanos, double throughput, int inFlight, int threads, long heapUsedBytes) {
+		@Override
+		public String toString() {
+			return String.format("%6.1f s: %8.1f batches/s, %5d in flight, %4d threads, %6d MiB heap",
+					elapsedNanos / 1e9, throughput, inFlight, threads, heapUsedBytes >> 20);
+		}
+	}
+
+	private final double targetRate;
+	private final long durationNanos;
+	private final long sent;
+	private final long completed;
+	private final long failed;
+	private final LatencyHistogram latency;
+	private final LatencyHistogram serviceTime;
+	private final List<Sample> samples;
+
+	LoadReport(double targetRate, long durationNanos, long sent, long completed, long failed,
+			LatencyHistogram latency, LatencyHistogram serviceTime, List<Sample> samples) {
+		this.targetRate = targetRate;
+		this.durationNanos = durationNanos;
+		this.sent = sent;
+		this.completed = completed;
+		this.failed = failed;
+		this.latency = latency;
+		this.serviceTime = serviceTime;
+		this.samples = List.copyOf(samples);
+	}
+
+	/**
+	 * The rate at which the batches were due to be sent.
+	 * @return The target rate, in batches per second.
+	 */
+	public double getTargetRate() {
+		return targetRate;
+	}
+
+	/**
+	 * The rate at which the batches completed, over the time from the first batch to the last completion.
+	 * @return The achieved throughput, in batches per second.
+	 */
+	public double getThroughput() {
+		return durationNanos == 0 ? 0 : completed * 1e9 / durationNanos;
+	}
+
+	public long getSentCount() {
+		return sent;
+	}
+
+	/**
+	 * The number of batches completed, successfully or not, before the end of the run.
+	 * @return The count of completed batches.
+	 */
+	public long getCompletedCount() {
+		return completed;
+	}
+
+	/**
+	 * The number of completed batches that failed (e.g., under Fail-Fast).
+	 * @return The count of failed batches.
+	 */
+	public long getFailedCount() {
+		return failed;
+	}
+
+	/**
+	 * The latency of a batch from the time it was due to start, corrected for coordinated omission.
+	 * @param percentile The percentile, between 0 and 100 (e.g., 99.9 for the p999).
+	 * @return The percentile in nanoseconds.
+	 */
+	public long getLatency(double percentile) {
+		return latency.getPercentile(percentile);
+	}
+
+	/**
+	 * The latency of a batch from the time it was actually sent, which hides the time spent falling behind.
+	 * @param percentile The percentile, between 0 and 100.
+	 * @return The percentile in nanoseconds.
+	 */
+	public long getServiceTime(double percentile) {
+		return serviceTime.getPercentile(percentile);
+	}
+
+	/**
+	 * The state of the JVM and of the load over time, one sample per interval.
+	 * @return The samples, in order.
+	 */
+	public List<Sample> getSamples() {
+		return samples;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("Target rate %.1f batches/s, achieved %.1f batches/s (%d sent, %d completed, %d failed)%n",
+				targetRate, getThroughput(), sent, completed, failed));
+		report.append(String.format("Latency (corrected): p50 %d ms, p90 %d ms, p99 %d ms, p999 %d ms, max %d ms%n",
+				millis(getLatency(50)), millis(getLatency(90)), millis(getLatency(99)), millis(getLatency(99.9)),
+				millis(latency.getMax())));
+		report.append(String.format("Service time:        p50 %d ms, p90 %d ms, p99 %d ms, p999 %d ms, max %d ms%n",
+				millis(getServiceTime(50)), millis(getServiceTime(90)), millis(getServiceTime(99)),
+				millis(getServiceTime(99.9)), millis(serviceTime.getMax())));
+		for (Sample sample : samples) {
+			report.append(sample).append(System.lineSeparator());
+		}
+		return report.toString();
+	}
+
+	private static long millis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+}
@@ -0,0 +1,193 @@
+package coen448.computablefuture.test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the microservice calls of concurrent batches by priority, and sheds low-priority batches under overload. <br>
+ * Every batch sharing the load shedder has a {@link Priority} (see {@link ProcessingOptions#withPriority(Priority)}).
+ * At most {@code maxInFlight} of their calls are in flight at once, and the calls beyond that wait (without
+ * holding a thread), to be started highest priority first, and in arrival order within a priority.  The load
+ * shedder is overloaded while {@code maxQueueDepth} calls are waiting, or while the oldest waiting call has waited
+ * for {@code maxQueueWait}: a low-priority batch starting then is shed up front, and every one of its calls fails
+ * right away with a {@link BatchShedException}, without calling its microservice.  As for any other
+ * failure, the policy of the batch applies: e.g., a Fail-Soft batch goes straight to its fallback value.  Critical
+ * and normal batches are never shed, and critical calls never wait behind the others.  The load shedder is set
+ * with {@link ProcessingOptions#withLoadShedder(LoadShedder)}.
+ */
+public final class LoadShedder {
+	private final int maxInFlight;
+	private final int maxQueueDepth;
+	private final long maxQueueWaitNanos;
+	private final Scheduler scheduler;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	// The waiting calls, one queue per priority, including those cancelled while waiting.
+	private final List<ConcurrentLinkedQueue<Waiting>> queues;
+	private final AtomicInteger queued = new AtomicInteger();
+	// Trampolines drain(): only one thread starts waiting calls, however they complete.
+	private final AtomicInteger draining = new AtomicInteger();
+	private final LongAdder shedBatches = new LongAdder();
+
+	/**
+	 * Create a load shedder.
+	 * @param maxInFlight   The maximum number of calls in flight at once.
+	 * @param maxQueueDepth The number of waiting calls from which low-priority batches are shed.
+	 * @param maxQueueWait  The wait of the oldest waiting call from which low-priority batches are shed.
+	 */
+	public LoadShedder(int maxInFlight, int maxQueueDepth, Duration maxQueueWait) {
+		this(maxInFlight, maxQueueDepth, maxQueueWait, Scheduler.system());
+	}
+
+	/**
+	 * Create a load shedder.
+	 * @param maxInFlight   The maximum number of calls in flight at once.
+	 * @param maxQueueDepth The number of waiting calls from which low-priority batches are shed.
+	 * @param maxQueueWait  The wait of the oldest waiting call from which low-priority batches are shed.
+	 * @param scheduler     The clock measuring the waits.
+	 */
+	public LoadShedder(int maxInFlight, int maxQueueDepth, Duration maxQueueWait, Scheduler scheduler) {
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("In-flight limit must be positive!");
+		}
+		if (maxQueueDepth <= 0) {
+			throw new IllegalArgumentException("Queue depth must be positive!");
+		}
+		if (maxQueueWait == null || maxQueueWait.isNegative() || maxQueueWait.isZero()) {
+			throw new IllegalArgumentException("Queue wait must be positive!");
+		}
+		if (scheduler == null) {
+			throw new IllegalArgumentException("Scheduler cannot be null!");
+		}
+		this.maxInFlight = maxInFlight;
+		this.maxQueueDepth = maxQueueDepth;
+		this.maxQueueWaitNanos = maxQueueWait.toNanos();
+		this.scheduler = scheduler;
+		this.queues = new ArrayList<>(Priority.values().length);
+		for (int i = 0; i < Priority.values().length; i++) {
+			queues.add(new ConcurrentLinkedQueue<>());
+		}
+	}
+
+	/**
+	 * Whether a batch starting now should be shed.
+	 * @param priority The priority of the batch.
+	 * @return True if the batch has a low priority, and the load shedder is overloaded.
+	 */
+	boolean shed(Priority priority) {
+		if (priority != Priority.LOW || !isOverloaded()) {
+			return false;
+		}
+		shedBatches.increment();
+		return true;
+	}
+
+	/**
+	 * Whether the waiting calls have reached the maximum queue depth or wait.
+	 * @return True if low-priority batches are being shed.
+	 */
+	public boolean isOverloaded() {
+		if (queued.get() >= maxQueueDepth) {
+			return true;
+		}
+		long now = scheduler.nanoTime();
+		for (ConcurrentLinkedQueue<Waiting> queue : queues) {
+			Waiting oldest = queue.peek();
+			if (oldest != null && now - oldest.enqueuedNanos >= maxQueueWaitNanos) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Admit a call once a permit is free and no call of a higher priority is waiting.
+	 * @param call     The call to be admitted, which releases its permit once it settles.
+	 * @param priority The priority of the call's batch.
+	 */
+	void acquire(ServiceCall call, Priority priority) {
+		queues.get(priority.ordinal()).add(new Waiting(call, scheduler.nanoTime()));
+		queued.incrementAndGet();
+		drain();
+	}
+
+	/**
+	 * Release the permit of a completed call.
+	 */
+	void release() {
+		inFlight.decrementAndGet();
+		drain();
+	}
+
+	private void drain() {
+		if (draining.getAndIncrement() != 0) {
+			return;
+		}
+		do {
+			while (queued.get() > 0 && tryAcquire()) {
+				Waiting next = poll();
+				if (next == null) {
+					inFlight.decrementAndGet();
+					break;
+				}
+				queued.decrementAndGet();
+				next.call.admit();
+			}
+		} while (draining.decrementAndGet() != 0);
+	}
+
+	private Waiting poll() {
+		for (ConcurrentLinkedQueue<Waiting> queue : queues) {
+			Waiting next = queue.poll();
+			if (next != null) {
+				return next;
+			}
+		}
+		return null;
+	}
+
+	private boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= maxInFlight) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * The number of batches shed since the load shedder was created.
+	 * @return The count of shed batches.
+	 */
+	public long getShedCount() {
+		return shedBatches.sum();
+	}
+
+	/**
+	 * The number of calls currently in flight under this load shedder.
+	 * @return The count of calls in flight.
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * The number of calls waiting, including those cancelled while waiting.
+	 * @return The count of waiting calls.
+	 */
+	public int getQueueDepth() {
+		return queued.get();
+	}
+
+	/**
+	 * A call waiting for a permit, and when it started waiting.
+	 */
+	private record Waiting(ServiceCall call, long enqueuedNanos) {
+	}
+}
@@ -0,0 +1,196 @@
+package coen448.computablefuture.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Messages to a {@link BatchMicroservice} sent in a single batched call: those of one batch in which the
+ * microservice appears more than once, or those of a window of a {@link MicroBatcher}. <br>
+ * Every position of the microservice in the batch calls the same {@link #member()} view of it, whose requests are
+ * collected until {@link #send()}, and each get their own future, completed with their own reply.  Cancelling one
+ * of these futures (e.g., on a deadline) only detaches its request, and the batched call is only cancelled once
+ * every request has been.  Requests made after the batched call was sent (e.g., retries, hedges, or calls held
+ * back by the in-flight limit) are sent on their own.
+ */
+final class MessageBatch {
+	private final BatchMicroservice service;
+	private final Executor executor;
+	private final Microservice member;
+	// Guarded by this.
+	private final List<String> messages = new ArrayList<>();
+	private final List<Part> parts = new ArrayList<>();
+	private int attached;
+	private boolean sent;
+	private CompletableFuture<List<String>> call;
+
+	/**
+	 * @param service  The batch microservice to be called.
+	 * @param executor Executor for the batched call, or null to use the microservice's own executor.
+	 */
+	MessageBatch(BatchMicroservice service, Executor executor) {
+		this.service = service;
+		this.executor = executor;
+		this.member = new Member();
+	}
+
+	/**
+	 * Group the batch microservices appearing more than once in a batch.
+	 * @param services The microservices of the batch.
+	 * @param executor Executor for the batched calls, or null to use each microservice's own executor.
+	 * @return The batch of each repeated batch microservice, which is empty if there are none.
+	 */
+	static Map<Microservice, MessageBatch> group(List<Microservice> services, Executor executor) {
+		Map<Microservice, Integer> counts = null;
+		for (Microservice service : services) {
+			if (service instanceof BatchMicroservice) {
+				if (counts == null) {
+					counts = new HashMap<>();
+				}
+				counts.merge(service, 1, Integer::sum);
+			}
+		}
+		if (counts == null) {
+			return Map.of();
+		}
+		Map<Microservice, MessageBatch> batches = new HashMap<>();
+		counts.forEach((service, count) -> {
+			if (count > 1) {
+				batches.put(service, new MessageBatch((BatchMicroservice) service, executor));
+			}
+		});
+		return batches;
+	}
+
+	/**
+	 * The view of the microservice to be called in its positions of the batch.
+	 * @return A microservice with the same id, whose requests are batched until the batch is sent.
+	 */
+	Microservice member() {
+		return member;
+	}
+
+	/**
+	 * Add a message to the batched call.
+	 * @param message The message to be sent.
+	 * @return The future reply to the message, or null if the batched call was already sent.
+	 */
+	synchronized CompletableFuture<String> request(String message) {
+		if (sent) {
+			return null;
+		}
+		Part part = new Part(this);
+		messages.add(message);
+		parts.add(part);
+		attached++;
+		return part;
+	}
+
+	/**
+	 * Send the requests collected so far in a single batched call.  Sending it again does nothing.
+	 */
+	void send() {
+		List<String> batchMessages = new ArrayList<>();
+		List<Part> batchParts = new ArrayList<>();
+		synchronized (this) {
+			if (sent) {
+				return;
+			}
+			sent = true;
+			for (int i = 0; i < parts.size(); i++) {
+				// Already cancelled (e.g., by Fail-Fast, after an earlier call failed right away): not worth sending.
+				if (!parts.get(i).isCancelled()) {
+					batchMessages.add(messages.get(i));
+					batchParts.add(parts.get(i));
+				}
+			}
+		}
+		if (batchParts.isEmpty()) {
+			return;
+		}
+		CompletableFuture<List<String>> started = executor == null
+				? service.retrieveBatchAsync(batchMessages)
+				: service.retrieveBatchAsync(batchMessages, executor);
+		boolean abandoned;
+		synchronized (this) {
+			call = started;
+			abandoned = attached == 0;
+		}
+		// Every request was cancelled while the call was being sent.
+		if (abandoned) {
+			started.cancel(true);
+		}
+		started.handle((replies, ex) -> {
+			if (ex != null) {
+				Throwable error = AsyncProcessor.unwrap(ex);
+				batchParts.forEach(part -> part.completeExceptionally(error));
+			} else if (replies == null || replies.size() != batchParts.size()) {
+				IllegalStateException error = new IllegalStateException("Expected " + batchParts.size()
+						+ " replies from " + service.getServiceId() + ", but got " + (replies == null ? 0 : replies.size()) + "!");
+				batchParts.forEach(part -> part.completeExceptionally(error));
+			} else {
+				for (int i = 0; i < batchParts.size(); i++) {
+					batchParts.get(i).complete(replies.get(i));
+				}
+			}
+			return null;
+		});
+	}
+
+	private void detach() {
+		CompletableFuture<List<String>> abandoned;
+		synchronized (this) {
+			if (--attached > 0 || !sent) {
+				return;
+			}
+			abandoned = call;
+		}
+		if (abandoned != null) {
+			abandoned.cancel(true);
+		}
+	}
+
+	/**
+	 * The microservice as seen from its positions in the batch.
+	 */
+	private final class Member extends Microservice {
+		Member() {
+			super(service.getServiceId(), service.getExecutor());
+		}
+
+		@Override
+		public CompletableFuture<String> retrieveAsync(String input) {
+			CompletableFuture<String> part = request(input);
+			return part != null ? part : service.retrieveAsync(input);
+		}
+
+		@Override
+		public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+			CompletableFuture<String> part = request(input);
+			return part != null ? part : service.retrieveAsync(input, executor);
+		}
+	}
+
+	/**
+	 * The future reply to one message of the batched call.  Cancelling it detaches the request.
+	 */
+	private static final class Part extends CompletableFuture<String> {
+		private final MessageBatch batch;
+
+		Part(MessageBatch batch) {
+			this.batch = batch;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				batch.detach();
+			}
+			return cancelled;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package coen448.computablefuture.test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-memory {@link ProcessingListener} that keeps counts and latency histograms per failure policy. <br>
+ * Every event is a handful of lock-free increments, so the listener can be used on the hot path directly.
+ */
+public class MetricsListener implements ProcessingListener {
+	private final Map<FailurePolicy, PolicyMetrics> metrics = new EnumMap<>(FailurePolicy.class);
+
+	public MetricsListener() {
+		for (FailurePolicy policy : FailurePolicy.values()) {
+			metrics.put(policy, new PolicyMetrics());
+		}
+	}
+
+	@Override
+	public void onBatchStart(FailurePolicy policy, int size) {
+		metrics.get(policy).batches.increment();
+	}
+
+	@Override
+	public void onServiceSuccess(FailurePolicy policy, String serviceId, long latencyNanos) {
+		PolicyMetrics policyMetrics = metrics.get(policy);
+		policyMetrics.successes.increment();
+		policyMetrics.serviceLatency.record(latencyNanos);
+	}
+
+	@Override
+	public void onServiceFailure(FailurePolicy policy, String serviceId, long latencyNanos, Throwable error) {
+		PolicyMetrics policyMetrics = metrics.get(policy);
+		policyMetrics.failures.increment();
+		policyMetrics.serviceLatency.record(latencyNanos);
+	}
+
+	@Override
+	public void onServiceRetry(FailurePolicy policy, String serviceId, int attempt, Throwable error) {
+		metrics.get(policy).retries.increment();
+	}
+
+	@Override
+	public void onHedgeFired(FailurePolicy policy, String serviceId) {
+		metrics.get(policy).hedgesFired.increment();
+	}
+
+	@Override
+	public void onHedgeWon(FailurePolicy policy, String serviceId) {
+		metrics.get(policy).hedgesWon.increment();
+	}
+
+	@Override
+	public void onFallbackApplied(FailurePolicy policy, String serviceId, String fallbackValue) {
+		metrics.get(policy).fallbacks.increment();
+	}
+
+	@Override
+	public void onBatchEnd(FailurePolicy policy, int size, long durationNanos, Throwable failure) {
+		PolicyMetrics policyMetrics = metrics.get(policy);
+		if (failure != null) {
+			policyMetrics.failedBatches.increment();
+		}
+		policyMetrics.batchLatency.record(durationNanos);
+	}
+
+	public long getBatchCount(FailurePolicy policy) {
+		return metrics.get(policy).batches.sum();
+	}
+
+	public long getFailedBatchCount(FailurePolicy policy) {
+		return metrics.get(policy).failedBatches.sum();
+	}
+
+	public long getSuccessCount(FailurePolicy policy) {
+		return metrics.get(policy).successes.sum();
+	}
+
+	public long getFailureCount(FailurePolicy policy) {
+		return metrics.get(policy).failures.sum();
+	}
+
+	public long getRetryCount(FailurePolicy policy) {
+		return metrics.get(policy).retries.sum();
+	}
+
+	public long getHedgeCount(FailurePolicy policy) {
+		return metrics.get(policy).hedgesFired.sum();
+	}
+
+	public long getHedgeWinCount(FailurePolicy policy) {
+		return metrics.get(policy).hedgesWon.sum();
+	}
+
+	public long getFallbackCount(FailurePolicy policy) {
+		return metrics.get(policy).fallbacks.sum();
+	}
+
+	/**
+	 * The latency histogram of the individual microservice calls of a policy.
+	 * @param policy The failure policy.
+	 * @return The histogram of the call latencies.
+	 */
+	public LatencyHistogram getServiceLatency(FailurePolicy policy) {
+		return metrics.get(policy).serviceLatency;
+	}
+
+	/**
+	 * The latency histogram of the whole batches of a policy.
+	 * @param policy The failure policy.
+	 * @return The histogram of the batch latencies.
+	 */
+	public LatencyHistogram getBatchLatency(FailurePolicy policy) {
+		return metrics.get(policy).batchLatency;
+	}
+
+	/**
+	 * The median latency of the microservice calls of a policy.
+	 * @param policy The failure policy.
+	 * @return The p50 in nanoseconds.
+	 */
+	public long getServiceLatencyP50(FailurePolicy policy) {
+		return getServiceLatency(policy).getPercentile(50);
+	}
+
+	/**
+	 * The 99th percentile latency of the microservice calls of a policy.
+	 * @param policy The failure policy.
+	 * @return The p99 in nanoseconds.
+	 */
+	public long getServiceLatencyP99(FailurePolicy policy) {
+		return getServiceLatency(policy).getPercentile(99);
+	}
+
+	/**
+	 * The counters and histograms of a single policy.
+	 */
+	private static final class PolicyMetrics {
+		private final LongAdder batches = new LongAdder();
+		private final LongAdder failedBatches = new LongAdder();
+		private final LongAdder successes = new LongAdder();
+		private final LongAdder failures = new LongAdder();
+		private final LongAdder retries = new LongAdder();
+		private final LongAdder hedgesFired = new LongAdder();
+		private final LongAdder hedgesWon = new LongAdder();
+		private final LongAdder fallbacks = new LongAdder();
+		private final LatencyHistogram serviceLatency = new LatencyHistogram();
+		private final LatencyHistogram batchLatency = new LatencyHistogram();
+	}
+}
@@ -0,0 +1,165 @@
+package coen448.computablefuture.test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Merges the requests to each {@link BatchMicroservice}, from concurrent callers, into batched calls. <br>
+ * The requests to a microservice are collected over a window, which opens with its first request and is sent as
+ * a single {@link BatchMicroservice#retrieveBatchAsync(java.util.List, Executor)} call once it holds {@code maxSize}
+ * requests, or {@code maxDelay} after it opened, whichever comes first.  Each request still gets a future of its
+ * own, completed with its own reply (see {@link MessageBatch}): a request waits at most {@code maxDelay} longer,
+ * in exchange for far fewer calls under load.  A window's call runs on the executor of its first request.  The
+ * requests to other microservices are sent on their own, as usual.  The micro-batcher is set with
+ * {@link ProcessingOptions#withMicroBatcher(MicroBatcher)}, and should be shared by the batches it applies to.
+ */
+public final class MicroBatcher {
+	private final int maxSize;
+	private final long maxDelayNanos;
+	private final Scheduler scheduler;
+	private final ConcurrentHashMap<BatchMicroservice, Window> windows = new ConcurrentHashMap<>();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder requests = new LongAdder();
+
+	/**
+	 * Create a micro-batcher.
+	 * @param maxSize  The maximum number of requests in a batched call.
+	 * @param maxDelay The maximum time a request waits for its window to be sent.
+	 */
+	public MicroBatcher(int maxSize, Duration maxDelay) {
+		this(maxSize, maxDelay, Scheduler.system());
+	}
+
+	/**
+	 * Create a micro-batcher.
+	 * @param maxSize   The maximum number of requests in a batched call.
+	 * @param maxDelay  The maximum time a request waits for its window to be sent.
+	 * @param scheduler The timer sending the windows.
+	 */
+	public MicroBatcher(int maxSize, Duration maxDelay, Scheduler scheduler) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be positive!");
+		}
+		if (maxDelay == null || maxDelay.isNegative() || maxDelay.isZero()) {
+			throw new IllegalArgumentException("Batch delay must be positive!");
+		}
+		if (scheduler == null) {
+			throw new IllegalArgumentException("Scheduler cannot be null!");
+		}
+		this.maxSize = maxSize;
+		this.maxDelayNanos = maxDelay.toNanos();
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Add a request to the open window of its microservice, or send it on its own if the microservice cannot batch.
+	 * @param service  The microservice to be called.
+	 * @param message  The message to be sent to the microservice.
+	 * @param executor Executor for the call, or null to use the microservice's own executor.
+	 * @return The future reply, owned by this request alone.
+	 */
+	CompletableFuture<String> call(Microservice service, String message, Executor executor) {
+		if (!(service instanceof BatchMicroservice batchService)) {
+			return AsyncProcessor.launch(service, message, executor);
+		}
+		requests.increment();
+		MessageBatch full = null;
+		CompletableFuture<String> reply;
+		while (true) {
+			Window window = windows.computeIfAbsent(batchService, Window::new);
+			synchronized (window) {
+				// Sent and removed since it was looked up: the next request opens a new window.
+				if (window.retired) {
+					continue;
+				}
+				boolean opening = window.batch == null;
+				if (opening) {
+					window.batch = new MessageBatch(batchService, executor);
+				}
+				reply = window.batch.request(message);
+				if (++window.size >= maxSize) {
+					full = window.batch;
+					if (window.timer != null) {
+						window.timer.cancel(false);
+					}
+					window.retire();
+				} else if (opening) {
+					MessageBatch opened = window.batch;
+					window.timer = scheduler.schedule(() -> window.expire(opened), maxDelayNanos, TimeUnit.NANOSECONDS);
+				}
+			}
+			break;
+		}
+		if (full != null) {
+			send(full);
+		}
+		return reply;
+	}
+
+	private void send(MessageBatch batch) {
+		batches.increment();
+		batch.send();
+	}
+
+	/**
+	 * The number of batched calls sent.
+	 * @return The count of batched calls.
+	 */
+	public long getBatchCount() {
+		return batches.sum();
+	}
+
+	/**
+	 * The number of requests to batch microservices, sent in the batched calls.
+	 * @return The count of requests.
+	 */
+	public long getRequestCount() {
+		return requests.sum();
+	}
+
+	/**
+	 * The number of microservices with a window currently open.
+	 * @return The count of open windows.
+	 */
+	int getWindowCount() {
+		return windows.size();
+	}
+
+	/**
+	 * The window of requests to a single microservice.  Guarded by itself.  A window is removed once it is sent,
+	 * so that the microservices no longer called are not kept reachable.
+	 */
+	private final class Window {
+		private final BatchMicroservice service;
+		private MessageBatch batch;
+		private Future<?> timer;
+		private int size;
+		private boolean retired;
+
+		Window(BatchMicroservice service) {
+			this.service = service;
+		}
+
+		void expire(MessageBatch expired) {
+			synchronized (this) {
+				// Already sent full, its timer having started before it could be cancelled.
+				if (retired || batch != expired) {
+					return;
+				}
+				retire();
+			}
+			send(expired);
+		}
+
+		void retire() {
+			retired = true;
+			batch = null;
+			windows.remove(service, this);
+		}
+	}
+}
@@ -1,34 +1,100 @@
 package coen448.computablefuture.test;
 
+import java.time.Duration;
 import java.util.concurrent.*;
+import java.util.random.RandomGenerator;
 
 class Microservice {
+    // The original jitter: 0..30ms to perturb scheduling.
+    private static final LatencyModel DEFAULT_LATENCY = LatencyModel.uniform(Duration.ZERO, Duration.ofMillis(30));
+
     private final String serviceId;
+    private final Executor executor;
+    private final LatencyModel latency;
+    // The seeded generator of the draws, guarded by itself, or null to draw from ThreadLocalRandom.
+    private final RandomGenerator random;
 
     public Microservice(String serviceId) {
+        this(serviceId, MicroserviceExecutors.commonPool());
+    }
+
+    // The executor runs this microservice's calls; see MicroserviceExecutors for the available strategies.
+    public Microservice(String serviceId, Executor executor) {
+        this(serviceId, executor, DEFAULT_LATENCY);
+    }
+
+    // The latency model replaces the default jitter (e.g., with latencies from a trace, see LatencyModel).
+    public Microservice(String serviceId, Executor executor, LatencyModel latency) {
+        this(serviceId, executor, latency, null);
+    }
+
+    // A seeded generator (e.g., a SplittableRandom) draws the latencies in the order of the calls, so that a run replays them.
+    public Microservice(String serviceId, Executor executor, LatencyModel latency, RandomGenerator random) {
         this.serviceId = serviceId;
+        this.executor = executor;
+        this.latency = latency;
+        this.random = random;
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    // The microservice's own executor, used when the caller does not supply one.
+    Executor getExecutor() {
+        return executor;
     }
 
     // Successful Microservice Execution
+    // Cancelling the returned future interrupts the call, freeing its worker thread.
     public CompletableFuture<String> retrieveAsync(String input) {
-        return CompletableFuture.supplyAsync(() -> {
-            // jitter: 0..30ms to perturb scheduling
-            int delayMs = ThreadLocalRandom.current().nextInt(0, 31);
+        return retrieveAsync(input, executor);
+    }
+
+    // Successful Microservice Execution, on a caller-supplied executor (e.g., the AsyncProcessor's).
+    public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+        long delayNanos = sampleLatencyNanos();
+        return InterruptibleFuture.submit(() -> {
             try {
-                TimeUnit.MILLISECONDS.sleep(delayMs);
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 throw new RuntimeException(e);
             }
 
-            return serviceId + ":" + input.toUpperCase();
-        });
+            return reply(input);
+        }, executor);
+    }
+
+    // The reply to a message, once the latency has elapsed; may throw to fail the call (e.g., to inject failures).
+    String reply(String input) {
+        return serviceId + ":" + input.toUpperCase();
+    }
+
+    // The latency of a call, drawn when the call is made.
+    long sampleLatencyNanos() {
+        if (random == null) {
+            return latency.sampleNanos(ThreadLocalRandom.current());
+        }
+        synchronized (random) {
+            return latency.sampleNanos(random);
+        }
+    }
+
+    // A probability drawn from the same generator as the latencies (e.g., to inject failures).
+    double nextDouble() {
+        if (random == null) {
+            return ThreadLocalRandom.current().nextDouble();
+        }
+        synchronized (random) {
+            return random.nextDouble();
+        }
     }
 
     // Failed Microservice Execution
     public CompletableFuture<String> retrieveAsyncFail(String error) {
-        return CompletableFuture.supplyAsync(() -> { 
+        return InterruptibleFuture.submit(() -> { 
             throw new RuntimeException(error); 
-        });
+        }, executor);
     }
 }
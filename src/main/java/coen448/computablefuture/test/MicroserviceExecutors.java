@@ -0,0 +1,67 @@
+package coen448.computablefuture.test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor strategies for running microservice calls. <br>
+ * Microservice calls block (e.g., on a sleep or on I/O), so running them on {@link ForkJoinPool#commonPool()}
+ * caps a fan-out at roughly one call per core.  The strategies below are passed to
+ * {@link Microservice#Microservice(String, Executor)} or {@link AsyncProcessor#AsyncProcessor(Executor)}:
+ * <ul>
+ *   <li>{@link #commonPool()}: the default, suitable for short or non-blocking calls.</li>
+ *   <li>{@link #virtualThreads()}: one virtual thread per call, scaling to tens of thousands of blocking calls.</li>
+ *   <li>{@link #newBoundedPlatformPool(int)}: a fixed number of platform threads, for a hard cap on concurrency.</li>
+ * </ul>
+ * Any caller-supplied {@link Executor} may be used as well.
+ */
+public final class MicroserviceExecutors {
+	// Virtual threads are cheap and unpooled, so a single shared executor serves every caller.
+	private static final ExecutorService VIRTUAL_THREADS = Executors.newVirtualThreadPerTaskExecutor();
+	private static final Executor COMMON_POOL = new CompletableFuture<Void>().defaultExecutor();
+
+	private MicroserviceExecutors() {
+	}
+
+	/**
+	 * The default executor of {@link CompletableFuture} (and of every microservice): the
+	 * JVM-wide common fork-join pool, or a thread per task when the common pool has a single thread.
+	 * @return The common pool.
+	 */
+	public static Executor commonPool() {
+		return COMMON_POOL;
+	}
+
+	/**
+	 * An executor that starts a new virtual thread for every microservice call.  A blocked call parks its
+	 * virtual thread instead of holding a platform thread.
+	 * @return The shared virtual-thread-per-task executor.
+	 */
+	public static Executor virtualThreads() {
+		return VIRTUAL_THREADS;
+	}
+
+	/**
+	 * Create a pool with a fixed number of (daemon) platform threads.  Calls beyond that number wait in the
+	 * pool's queue.  The caller owns the pool and is responsible for shutting it down.
+	 * @param threads The number of platform threads in the pool.
+	 * @return A new bounded thread pool.
+	 */
+	public static ExecutorService newBoundedPlatformPool(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("The number of threads must be positive!");
+		}
+		AtomicInteger counter = new AtomicInteger();
+		ThreadFactory factory = runnable -> {
+			Thread thread = new Thread(runnable, "microservice-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		return Executors.newFixedThreadPool(threads, factory);
+	}
+}
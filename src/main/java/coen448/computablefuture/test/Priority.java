@@ -0,0 +1,21 @@
+package coen448.computablefuture.test;
+
+/**
+ * The priority of a batch, under a {@link LoadShedder}.
+ */
+public enum Priority {
+	/**
+	 * Served before every other batch, and never shed.
+	 */
+	CRITICAL,
+
+	/**
+	 * Served after critical batches, and never shed.
+	 */
+	NORMAL,
+
+	/**
+	 * Served last, and shed up front while the load shedder is overloaded.
+	 */
+	LOW
+}
@@ -0,0 +1,254 @@
+package coen448.computablefuture.test;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Receives the events of a batch processed by {@link AsyncProcessor}. <br>
+ * Events are delivered on the thread that caused them (e.g., the thread completing a microservice call), so
+ * implementations must be thread-safe and cheap; wrap a slow listener with {@link #async(ProcessingListener, Executor)}.
+ * Several listeners (e.g., a {@link MetricsListener} and a {@link ServiceMetrics}) are combined with
+ * {@link #composite(ProcessingListener...)}.
+ * When no listener is set ({@link #NONE}), the processor skips the events, and the timing they need, altogether.
+ * Calls cancelled by the processor itself (e.g., the siblings of a Fail-Fast failure) are not reported.
+ */
+public interface ProcessingListener {
+	/**
+	 * The listener that ignores every event (the default).
+	 */
+	ProcessingListener NONE = new ProcessingListener() {
+	};
+
+	/**
+	 * A batch is about to start.
+	 * @param policy The failure policy of the batch.
+	 * @param size   The number of microservices in the batch.
+	 */
+	default void onBatchStart(FailurePolicy policy, int size) {
+	}
+
+	/**
+	 * A microservice call completed successfully.
+	 * @param policy       The failure policy of the batch.
+	 * @param serviceId    The id of the microservice.
+	 * @param latencyNanos The duration of the call, in nanoseconds.
+	 */
+	default void onServiceSuccess(FailurePolicy policy, String serviceId, long latencyNanos) {
+	}
+
+	/**
+	 * A microservice call failed (including a missed deadline).
+	 * @param policy       The failure policy of the batch.
+	 * @param serviceId    The id of the microservice.
+	 * @param latencyNanos The duration of the call, in nanoseconds.
+	 * @param error        The cause of the failure.
+	 */
+	default void onServiceFailure(FailurePolicy policy, String serviceId, long latencyNanos, Throwable error) {
+	}
+
+	/**
+	 * A microservice call failed, and will be attempted again after its backoff (see {@link RetryPolicy}).
+	 * @param policy    The failure policy of the batch.
+	 * @param serviceId The id of the microservice.
+	 * @param attempt   The number of the failed attempt, starting at 1.
+	 * @param error     The cause of the failure.
+	 */
+	default void onServiceRetry(FailurePolicy policy, String serviceId, int attempt, Throwable error) {
+	}
+
+	/**
+	 * A slow microservice call was hedged with a duplicate request (see {@link HedgePolicy}).
+	 * @param policy    The failure policy of the batch.
+	 * @param serviceId The id of the microservice.
+	 */
+	default void onHedgeFired(FailurePolicy policy, String serviceId) {
+	}
+
+	/**
+	 * The duplicate request of a hedged call replied before the original request, which was cancelled.
+	 * @param policy    The failure policy of the batch.
+	 * @param serviceId The id of the microservice.
+	 */
+	default void onHedgeWon(FailurePolicy policy, String serviceId) {
+	}
+
+	/**
+	 * A failed microservice call was replaced by the fallback value (Fail-Soft only).
+	 * @param policy        The failure policy of the batch.
+	 * @param serviceId     The id of the microservice.
+	 * @param fallbackValue The fallback value used instead.
+	 */
+	default void onFallbackApplied(FailurePolicy policy, String serviceId, String fallbackValue) {
+	}
+
+	/**
+	 * A batch completed.
+	 * @param policy        The failure policy of the batch.
+	 * @param size          The number of microservices in the batch.
+	 * @param durationNanos The duration of the batch, in nanoseconds.
+	 * @param failure       The cause of the batch's failure, or null if it completed normally.
+	 */
+	default void onBatchEnd(FailurePolicy policy, int size, long durationNanos, Throwable failure) {
+	}
+
+	/**
+	 * A listener that prints every event to the standard output, as the processor used to do.  Printing is
+	 * synchronized and slow, so this listener is meant for debugging only.
+	 * @return A logging listener.
+	 */
+	static ProcessingListener logging() {
+		return new ProcessingListener() {
+			@Override
+			public void onBatchStart(FailurePolicy policy, int size) {
+				System.out.println("[" + policy + "] Processing " + size + " microservices...");
+			}
+
+			@Override
+			public void onServiceFailure(FailurePolicy policy, String serviceId, long latencyNanos, Throwable error) {
+				System.out.println("[" + policy + "] Failure Detected: " + error.getMessage());
+			}
+
+			@Override
+			public void onServiceRetry(FailurePolicy policy, String serviceId, int attempt, Throwable error) {
+				System.out.println("[" + policy + "] Retrying " + serviceId + " after attempt " + attempt + ": " + error.getMessage());
+			}
+
+			@Override
+			public void onFallbackApplied(FailurePolicy policy, String serviceId, String fallbackValue) {
+				System.out.println("[" + policy + "] WARNING: Failure masked with fallback value: " + fallbackValue);
+			}
+
+			@Override
+			public void onBatchEnd(FailurePolicy policy, int size, long durationNanos, Throwable failure) {
+				System.out.println("[" + policy + "] " + (failure == null ? "All microservices completed." : "Failed: " + failure.getMessage()));
+			}
+		};
+	}
+
+	/**
+	 * Deliver every event to each of the given listeners in turn, on the thread that caused it.
+	 * @param listeners The listeners receiving the events.
+	 * @return A composite listener, or the listener itself if there is only one (or {@link #NONE} if there is none).
+	 */
+	static ProcessingListener composite(ProcessingListener... listeners) {
+		if (listeners == null || Arrays.asList(listeners).contains(null)) {
+			throw new IllegalArgumentException("Listeners cannot be null!");
+		}
+		// NONE is left out, so that a composite of NONE alone still lets the processor skip the events.
+		ProcessingListener[] delegates = Arrays.stream(listeners).filter(listener -> listener != NONE)
+				.toArray(ProcessingListener[]::new);
+		if (delegates.length == 0) {
+			return NONE;
+		}
+		if (delegates.length == 1) {
+			return delegates[0];
+		}
+		return new ProcessingListener() {
+			@Override
+			public void onBatchStart(FailurePolicy policy, int size) {
+				for (ProcessingListener delegate : delegates) {
+					delegate.onBatchStart(policy, size);
+				}
+			}
+
+			@Override
+			public void onServiceSuccess(FailurePolicy policy, String serviceId, long latencyNanos) {
+				for (ProcessingListener delegate : delegates) {
+					delegate.onServiceSuccess(policy, serviceId, latencyNanos);
+				}
+			}
+
+			@Override
+			public void onServiceFailure(FailurePolicy policy, String serviceId, long latencyNanos, Throwable error) {
+				for (ProcessingListener delegate : delegates) {
+					delegate.onServiceFailure(policy, serviceId, latencyNanos, error);
+				}
+			}
+
+			@Override
+			public void onServiceRetry(FailurePolicy policy, String serviceId, int attempt, Throwable error) {
+				for (ProcessingListener delegate : delegates) {
+					delegate.onServiceRetry(policy, serviceId, attempt, error);
+				}
+			}
+
+			@Override
+			public void onHedgeFired(FailurePolicy policy, String serviceId) {
+				for (ProcessingListener delegate : delegates) {
+					delegate.onHedgeFired(policy, serviceId);
+				}
+			}
+
+			@Override
+			public void onHedgeWon(FailurePolicy policy, String serviceId) {
+				for (ProcessingListener delegate : delegates) {
+					delegate.onHedgeWon(policy, serviceId);
+				}
+			}
+
+			@Override
+			public void onFallbackApplied(FailurePolicy policy, String serviceId, String fallbackValue) {
+				for (ProcessingListener delegate : delegates) {
+					delegate.onFallbackApplied(policy, serviceId, fallbackValue);
+				}
+			}
+
+			@Override
+			public void onBatchEnd(FailurePolicy policy, int size, long durationNanos, Throwable failure) {
+				for (ProcessingListener delegate : delegates) {
+					delegate.onBatchEnd(policy, size, durationNanos, failure);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Deliver every event to the given listener on the given executor, off the thread that caused it.
+	 * @param delegate The listener receiving the events.
+	 * @param executor The executor delivering the events.
+	 * @return An asynchronous listener.
+	 */
+	static ProcessingListener async(ProcessingListener delegate, Executor executor) {
+		return new ProcessingListener() {
+			@Override
+			public void onBatchStart(FailurePolicy policy, int size) {
+				executor.execute(() -> delegate.onBatchStart(policy, size));
+			}
+
+			@Override
+			public void onServiceSuccess(FailurePolicy policy, String serviceId, long latencyNanos) {
+				executor.execute(() -> delegate.onServiceSuccess(policy, serviceId, latencyNanos));
+			}
+
+			@Override
+			public void onServiceFailure(FailurePolicy policy, String serviceId, long latencyNanos, Throwable error) {
+				executor.execute(() -> delegate.onServiceFailure(policy, serviceId, latencyNanos, error));
+			}
+
+			@Override
+			public void onServiceRetry(FailurePolicy policy, String serviceId, int attempt, Throwable error) {
+				executor.execute(() -> delegate.onServiceRetry(policy, serviceId, attempt, error));
+			}
+
+			@Override
+			public void onHedgeFired(FailurePolicy policy, String serviceId) {
+				executor.execute(() -> delegate.onHedgeFired(policy, serviceId));
+			}
+
+			@Override
+			public void onHedgeWon(FailurePolicy policy, String serviceId) {
+				executor.execute(() -> delegate.onHedgeWon(policy, serviceId));
+			}
+
+			@Override
+			public void onFallbackApplied(FailurePolicy policy, String serviceId, String fallbackValue) {
+				executor.execute(() -> delegate.onFallbackApplied(policy, serviceId, fallbackValue));
+			}
+
+			@Override
+			public void onBatchEnd(FailurePolicy policy, int size, long durationNanos, Throwable failure) {
+				executor.execute(() -> delegate.onBatchEnd(policy, size, durationNanos, failure));
+			}
+		};
+	}
+}
@@ -0,0 +1,369 @@
+package coen448.computablefuture.test;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Options for processing a batch of microservices. <br>
+ * An {@link AsyncProcessor} holds a default set of options, which can be replaced for a single call by passing
+ * options to the corresponding policy method.  Options are immutable: every {@code with...} method returns a
+ * modified copy.
+ */
+public final class ProcessingOptions {
+	private static final ProcessingOptions DEFAULTS = new ProcessingOptions();
+
+	private Executor executor;
+	private Duration perCallTimeout;
+	private Duration batchTimeout;
+	private int maxInFlight;
+	private AdaptiveLimit adaptiveLimit;
+	private LoadShedder loadShedder;
+	private Priority priority = Priority.NORMAL;
+	private LatencyEstimator latencyEstimator;
+	private RetryPolicy retry = RetryPolicy.none();
+	private HedgePolicy hedge = HedgePolicy.none();
+	private ResultCache cache;
+	private RequestCoalescer coalescer;
+	private MicroBatcher microBatcher;
+	private CircuitBreaker circuitBreaker;
+	private Bulkheads bulkheads;
+	private Scheduler scheduler = Scheduler.system();
+	private ProcessingListener listener = ProcessingListener.NONE;
+
+	private ProcessingOptions() {
+	}
+
+	private ProcessingOptions(ProcessingOptions other) {
+		this.executor = other.executor;
+		this.perCallTimeout = other.perCallTimeout;
+		this.batchTimeout = other.batchTimeout;
+		this.maxInFlight = other.maxInFlight;
+		this.adaptiveLimit = other.adaptiveLimit;
+		this.loadShedder = other.loadShedder;
+		this.priority = other.priority;
+		this.latencyEstimator = other.latencyEstimator;
+		this.retry = other.retry;
+		this.hedge = other.hedge;
+		this.cache = other.cache;
+		this.coalescer = other.coalescer;
+		this.microBatcher = other.microBatcher;
+		this.circuitBreaker = other.circuitBreaker;
+		this.bulkheads = other.bulkheads;
+		this.scheduler = other.scheduler;
+		this.listener = other.listener;
+	}
+
+	/**
+	 * The default options: each microservice's own executor, no deadlines, no in-flight limits, no load shedder
+	 * (with a normal priority), calls started in input order, no retries, no hedging, no cache, no coalescing, no
+	 * micro-batching, no circuit breaker, no bulkheads, and no listener.
+	 * @return The default options.
+	 */
+	public static ProcessingOptions defaults() {
+		return DEFAULTS;
+	}
+
+	/**
+	 * Run every microservice call on the given executor, instead of the microservice's own executor.
+	 * @param executor Executor for the microservice calls (see {@link MicroserviceExecutors}), or null for none.
+	 * @return A copy of these options with the executor set.
+	 */
+	public ProcessingOptions withExecutor(Executor executor) {
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.executor = executor;
+		return copy;
+	}
+
+	/**
+	 * Set the deadline of each individual microservice call, measured from the moment the call starts.  A call
+	 * that misses its deadline is cancelled and treated as a failure with a {@link java.util.concurrent.TimeoutException}.
+	 * @param perCallTimeout Deadline of each call, or null for none.
+	 * @return A copy of these options with the per-call deadline set.
+	 */
+	public ProcessingOptions withPerCallTimeout(Duration perCallTimeout) {
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.perCallTimeout = requirePositive(perCallTimeout);
+		return copy;
+	}
+
+	/**
+	 * Set the deadline of the whole batch, measured from the moment the policy method is called.  Every call
+	 * still running at the deadline is cancelled and treated as a failure with a
+	 * {@link java.util.concurrent.TimeoutException}.
+	 * @param batchTimeout Deadline of the batch, or null for none.
+	 * @return A copy of these options with the batch deadline set.
+	 */
+	public ProcessingOptions withBatchTimeout(Duration batchTimeout) {
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.batchTimeout = requirePositive(batchTimeout);
+		return copy;
+	}
+
+	/**
+	 * Limit the number of microservice calls of a batch in flight at once.  The calls beyond the limit wait, and
+	 * are started (in the order of the services) as earlier calls complete.  The results keep the order of the
+	 * services either way.  A per-call deadline starts with the call, while the batch deadline also covers the
+	 * time spent waiting.
+	 * @param maxInFlight The maximum number of calls in flight, or 0 for no limit.
+	 * @return A copy of these options with the in-flight limit set.
+	 */
+	public ProcessingOptions withMaxInFlight(int maxInFlight) {
+		if (maxInFlight < 0) {
+			throw new IllegalArgumentException("Maximum number of calls in flight cannot be negative!");
+		}
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.maxInFlight = maxInFlight;
+		return copy;
+	}
+
+	/**
+	 * Limit the number of microservice calls in flight at once, across every batch sharing the limit, to a limit
+	 * tuned from the observed latency and failures of the calls (see {@link AdaptiveLimit}).  This applies on top
+	 * of {@link #withMaxInFlight(int)}.
+	 * @param adaptiveLimit The adaptive limit shared by the batches, or null for none.
+	 * @return A copy of these options with the adaptive limit set.
+	 */
+	public ProcessingOptions withAdaptiveLimit(AdaptiveLimit adaptiveLimit) {
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.adaptiveLimit = adaptiveLimit;
+		return copy;
+	}
+
+	/**
+	 * Serve the microservice calls of every batch sharing the load shedder by priority, and shed low-priority
+	 * batches while it is overloaded (see {@link LoadShedder}).  This applies before the adaptive limit, if any.
+	 * @param loadShedder The load shedder shared by the batches, or null for none.
+	 * @return A copy of these options with the load shedder set.
+	 */
+	public ProcessingOptions withLoadShedder(LoadShedder loadShedder) {
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.loadShedder = loadShedder;
+		return copy;
+	}
+
+	/**
+	 * Set the priority of the batch under the load shedder.  Without a load shedder, the priority has no effect.
+	 * @param priority The priority of the batch.
+	 * @return A copy of these options with the priority set.
+	 */
+	public ProcessingOptions withPriority(Priority priority) {
+		if (priority == null) {
+			throw new IllegalArgumentException("Priority cannot be null!");
+		}
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.priority = priority;
+		return copy;
+	}
+
+	/**
+	 * Start the calls of each batch from the expected-slowest to the fastest, according to the running latency
+	 * estimate of each service id (see {@link LatencyEstimator}), instead of in the order of the services.  This
+	 * matters whenever the calls cannot all run at once, under {@link #withMaxInFlight(int)} or on a bounded
+	 * executor.  The results keep the order of the services either way.
+	 * @param latencyEstimator The latency estimator shared by the batches, or null to start the calls in order.
+	 * @return A copy of these options with the latency estimator set.
+	 */
+	public ProcessingOptions withLatencyEstimator(LatencyEstimator latencyEstimator) {
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.latencyEstimator = latencyEstimator;
+		return copy;
+	}
+
+	/**
+	 * Retry failed microservice calls (including calls past their per-call deadline) before the failure policy
+	 * sees their failure.  Only the outcome of the last attempt counts as a success or a failure.
+	 * @param retry The retry policy, or {@link RetryPolicy#none()} for none.
+	 * @return A copy of these options with the retry policy set.
+	 */
+	public ProcessingOptions withRetry(RetryPolicy retry) {
+		if (retry == null) {
+			throw new IllegalArgumentException("Retry policy cannot be null!");
+		}
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.retry = retry;
+		return copy;
+	}
+
+	/**
+	 * Hedge slow microservice calls with a duplicate request, using whichever reply succeeds first.  Each attempt
+	 * of a call (see {@link #withRetry(RetryPolicy)}) is hedged on its own, and its per-call deadline covers both
+	 * requests.
+	 * @param hedge The hedge policy, or {@link HedgePolicy#none()} for none.
+	 * @return A copy of these options with the hedge policy set.
+	 */
+	public ProcessingOptions withHedge(HedgePolicy hedge) {
+		if (hedge == null) {
+			throw new IllegalArgumentException("Hedge policy cannot be null!");
+		}
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.hedge = hedge;
+		return copy;
+	}
+
+	/**
+	 * Serve the replies of repeated calls (the same service id and message) from the given cache, and share the
+	 * calls in flight between batches.  Each batch keeps its own deadlines, retries and listener events for the
+	 * calls served from the cache, and a hedge is always sent as a new call.
+	 * @param cache The cache of replies, or null for none.
+	 * @return A copy of these options with the cache set.
+	 */
+	public ProcessingOptions withCache(ResultCache cache) {
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.cache = cache;
+		return copy;
+	}
+
+	/**
+	 * Coalesce identical microservice requests in flight at the same time (the same service id and message, e.g.,
+	 * from concurrent batches) into a single call.  Each request keeps its own deadlines, retries and
+	 * cancellation; the shared call is only cancelled once every request attached to it has been.
+	 * @param coalescer The coalescer shared by the batches, or null for none.
+	 * @return A copy of these options with the coalescer set.
+	 */
+	public ProcessingOptions withCoalescer(RequestCoalescer coalescer) {
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.coalescer = coalescer;
+		return copy;
+	}
+
+	/**
+	 * Merge the requests to each {@link BatchMicroservice}, from every batch using this micro-batcher, into batched
+	 * calls over a short window (see {@link MicroBatcher}).  Each request still gets its own reply.
+	 * @param microBatcher The micro-batcher shared by the batches, or null for none.
+	 * @return A copy of these options with the micro-batcher set.
+	 */
+	public ProcessingOptions withMicroBatcher(MicroBatcher microBatcher) {
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.microBatcher = microBatcher;
+		return copy;
+	}
+
+	/**
+	 * Stop calling the microservices that keep failing: while the circuit of a service id is open, its calls fail
+	 * right away with a {@link CircuitOpenException} (and are replaced by the fallback value under Fail-Soft).
+	 * @param circuitBreaker The circuit breaker shared by the batches, or null for none.
+	 * @return A copy of these options with the circuit breaker set.
+	 */
+	public ProcessingOptions withCircuitBreaker(CircuitBreaker circuitBreaker) {
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.circuitBreaker = circuitBreaker;
+		return copy;
+	}
+
+	/**
+	 * Isolate the microservices in compartments with their own concurrency caps and queues, so that a slow
+	 * microservice only saturates its own compartment (see {@link Bulkheads}).  A call rejected by a full
+	 * compartment fails right away with a {@link BulkheadFullException}.
+	 * @param bulkheads The bulkheads shared by the batches, or null for none.
+	 * @return A copy of these options with the bulkheads set.
+	 */
+	public ProcessingOptions withBulkheads(Bulkheads bulkheads) {
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.bulkheads = bulkheads;
+		return copy;
+	}
+
+	/**
+	 * Set the clock and timer used for deadlines, retries and hedges.
+	 * @param scheduler The scheduler to be used.
+	 * @return A copy of these options with the scheduler set.
+	 */
+	public ProcessingOptions withScheduler(Scheduler scheduler) {
+		if (scheduler == null) {
+			throw new IllegalArgumentException("Scheduler cannot be null!");
+		}
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.scheduler = scheduler;
+		return copy;
+	}
+
+	/**
+	 * Set the listener receiving the events of every batch (see {@link MetricsListener}).  Several listeners are
+	 * set together with {@link ProcessingListener#composite(ProcessingListener...)}.
+	 * @param listener The listener to be notified, or {@link ProcessingListener#NONE} for none.
+	 * @return A copy of these options with the listener set.
+	 */
+	public ProcessingOptions withListener(ProcessingListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener cannot be null!");
+		}
+		ProcessingOptions copy = new ProcessingOptions(this);
+		copy.listener = listener;
+		return copy;
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	public Duration getPerCallTimeout() {
+		return perCallTimeout;
+	}
+
+	public Duration getBatchTimeout() {
+		return batchTimeout;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	public AdaptiveLimit getAdaptiveLimit() {
+		return adaptiveLimit;
+	}
+
+	public LoadShedder getLoadShedder() {
+		return loadShedder;
+	}
+
+	public Priority getPriority() {
+		return priority;
+	}
+
+	public LatencyEstimator getLatencyEstimator() {
+		return latencyEstimator;
+	}
+
+	public RetryPolicy getRetry() {
+		return retry;
+	}
+
+	public HedgePolicy getHedge() {
+		return hedge;
+	}
+
+	public ResultCache getCache() {
+		return cache;
+	}
+
+	public RequestCoalescer getCoalescer() {
+		return coalescer;
+	}
+
+	public MicroBatcher getMicroBatcher() {
+		return microBatcher;
+	}
+
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public Bulkheads getBulkheads() {
+		return bulkheads;
+	}
+
+	public Scheduler getScheduler() {
+		return scheduler;
+	}
+
+	public ProcessingListener getListener() {
+		return listener;
+	}
+
+	private static Duration requirePositive(Duration timeout) {
+		if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+			throw new IllegalArgumentException("Timeout must be positive!");
+		}
+		return timeout;
+	}
+}
@@ -0,0 +1,87 @@
+package coen448.computablefuture.test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the first successful results of a batch, and joins them as soon as the quorum is reached. <br>
+ * Like {@link ResultAggregator}, each result is written straight into an array slot from the call's own callback:
+ * the slot of its microservice (input order), or the next free slot (completion order).  Only the first
+ * {@code quorum} successes are kept.  Once they are all written, or once too many calls have failed for the quorum
+ * to be reached, the remaining calls are cancelled.
+ */
+final class QuorumAggregator {
+	private final int size;
+	private final int quorum;
+	private final ResultOrder order;
+	private final String[] results;
+	private final AtomicInteger successes = new AtomicInteger();
+	// The number of kept successes already written to their slot.
+	private final AtomicInteger written = new AtomicInteger();
+	private final AtomicInteger failures = new AtomicInteger();
+	private final CompletableFuture<String> result = new CompletableFuture<>();
+	private List<CompletableFuture<String>> calls;
+
+	/**
+	 * @param size   The number of microservices in the batch.
+	 * @param quorum The number of successes completing the batch, between 1 and {@code size}.
+	 * @param order  The order of the joined results.
+	 */
+	QuorumAggregator(int size, int quorum, ResultOrder order) {
+		this.size = size;
+		this.quorum = quorum;
+		this.order = order;
+		this.results = new String[order == ResultOrder.INPUT_ORDER ? size : quorum];
+	}
+
+	/**
+	 * Aggregate the results of the given calls.
+	 * @param calls The future results of the calls, in the same order as the microservices.
+	 * @return A future of the joined results of the first {@code quorum} successes.
+	 */
+	CompletableFuture<String> aggregate(List<CompletableFuture<String>> calls) {
+		this.calls = calls;
+		for (int i = 0; i < calls.size() && !result.isDone(); i++) {
+			CompletableFuture<String> call = calls.get(i);
+			// A call that has already completed is read directly, without registering a dependent stage.
+			switch (call.state()) {
+				case SUCCESS -> onComplete(i, call.resultNow(), null);
+				case FAILED -> onComplete(i, null, call.exceptionNow());
+				case CANCELLED -> onComplete(i, null, new CancellationException());
+				default -> {
+					int index = i;
+					call.handle((value, ex) -> onComplete(index, value, ex));
+				}
+			}
+		}
+		return result;
+	}
+
+	private Void onComplete(int index, String value, Throwable ex) {
+		if (result.isDone()) {
+			return null;
+		}
+		if (ex == null) {
+			int success = successes.incrementAndGet();
+			// A success beyond the quorum, racing with the one that reached it.
+			if (success > quorum) {
+				return null;
+			}
+			results[order == ResultOrder.INPUT_ORDER ? index : success - 1] = value;
+			// The last kept success to be written joins them all.
+			if (written.incrementAndGet() == quorum && result.complete(ResultAggregator.join(results))) {
+				AsyncProcessor.cancelAll(calls);
+			}
+			return null;
+		}
+		// Only the failure leaving fewer calls than the quorum fails the batch.
+		int failure = failures.incrementAndGet();
+		if (failure == size - quorum + 1
+				&& result.completeExceptionally(new QuorumNotReachedException(quorum, size, failure, AsyncProcessor.unwrap(ex)))) {
+			AsyncProcessor.cancelAll(calls);
+		}
+		return null;
+	}
+}
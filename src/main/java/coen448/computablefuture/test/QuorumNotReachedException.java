@@ -0,0 +1,19 @@
+package coen448.computablefuture.test;
+
+/**
+ * The failure of a Quorum batch, once too many microservices have failed for the quorum to be reached.  Its cause
+ * is the failure that made the quorum unreachable.
+ */
+public class QuorumNotReachedException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param quorum   The number of successes required.
+	 * @param size     The number of microservices in the batch.
+	 * @param failures The number of microservices that failed.
+	 * @param cause    The failure that made the quorum unreachable.
+	 */
+	public QuorumNotReachedException(int quorum, int size, int failures, Throwable cause) {
+		super("Quorum of " + quorum + " out of " + size + " microservices cannot be reached: " + failures + " failed", cause);
+	}
+}
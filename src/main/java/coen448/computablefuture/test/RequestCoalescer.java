@@ -0,0 +1,184 @@
+package coen448.computablefuture.test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical microservice requests in flight at the same time into a single call (single-flight). <br>
+ * A request for the same service id and message as a call still in flight (e.g., from a concurrent batch) joins
+ * that call instead of calling the microservice again.  Every request still gets a future of its own: cancelling
+ * it (e.g., on a deadline, or under Fail-Fast) only detaches that request, and the shared call is only cancelled
+ * once every request attached to it has been cancelled.  Unlike {@link ResultCache}, nothing is kept once the
+ * call completes.  The coalescer is set with {@link ProcessingOptions#withCoalescer(RequestCoalescer)}, and should
+ * be shared by the batches it applies to.
+ */
+public final class RequestCoalescer {
+	private final ConcurrentHashMap<RequestKey, SharedCall> inFlight = new ConcurrentHashMap<>();
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder joins = new LongAdder();
+
+	/**
+	 * Call a microservice, or join the identical call already in flight.
+	 * @param service  The microservice to be called.
+	 * @param message  The message to be sent to the microservice.
+	 * @param executor Executor for a new call, or null to use the microservice's own executor.
+	 * @return The future reply, owned by this request alone.
+	 */
+	CompletableFuture<String> call(Microservice service, String message, Executor executor) {
+		return call(service.getServiceId(), message, () -> AsyncProcessor.launch(service, message, executor));
+	}
+
+	/**
+	 * Start a microservice call, or join the identical call already in flight.
+	 * @param serviceId The id of the microservice.
+	 * @param message   The message to be sent to the microservice.
+	 * @param launcher  Starts a new call.
+	 * @return The future reply, owned by this request alone.
+	 */
+	CompletableFuture<String> call(String serviceId, String message, Supplier<CompletableFuture<String>> launcher) {
+		RequestKey key = new RequestKey(serviceId, message);
+		while (true) {
+			SharedCall shared = inFlight.get(key);
+			if (shared != null) {
+				CompletableFuture<String> request = shared.attach();
+				if (request != null) {
+					joins.increment();
+					return request;
+				}
+				// Completed or abandoned, but not yet removed.
+				inFlight.remove(key, shared);
+				continue;
+			}
+			SharedCall created = new SharedCall();
+			if (inFlight.putIfAbsent(key, created) != null) {
+				continue;
+			}
+			calls.increment();
+			CompletableFuture<String> request = created.attach();
+			CompletableFuture<String> started;
+			try {
+				started = launcher.get();
+			} catch (RuntimeException e) {
+				// Never started (e.g., rejected by its executor): the requests already attached fail with it, and
+				// the next identical request starts a call of its own instead of joining one that never completes.
+				inFlight.remove(key, created);
+				created.fail(e);
+				throw e;
+			}
+			created.start(started, () -> inFlight.remove(key, created));
+			return request;
+		}
+	}
+
+	/**
+	 * The number of requests that called the microservice.
+	 * @return The count of calls.
+	 */
+	public long getCallCount() {
+		return calls.sum();
+	}
+
+	/**
+	 * The number of requests that joined a call already in flight, instead of calling the microservice.
+	 * @return The count of joined requests.
+	 */
+	public long getJoinCount() {
+		return joins.sum();
+	}
+
+	/**
+	 * The number of distinct calls currently in flight.
+	 * @return The count of calls in flight.
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	/**
+	 * A microservice call shared by the requests attached to it.
+	 */
+	private static final class SharedCall {
+		private final CompletableFuture<String> result = new CompletableFuture<>();
+		// Guarded by this.
+		private int attached;
+		private boolean closed;
+		private CompletableFuture<String> call;
+
+		/**
+		 * Attach a new request to this call.
+		 * @return The future reply of the request, or null if this call can no longer be joined.
+		 */
+		synchronized CompletableFuture<String> attach() {
+			if (closed) {
+				return null;
+			}
+			attached++;
+			Request request = new Request(this);
+			result.handle((value, ex) -> ex == null ? request.complete(value) : request.completeExceptionally(ex));
+			return request;
+		}
+
+		void start(CompletableFuture<String> started, Runnable onDone) {
+			boolean abandoned;
+			synchronized (this) {
+				call = started;
+				abandoned = closed;
+			}
+			// Every request was cancelled before the call was even started.
+			if (abandoned) {
+				started.cancel(true);
+			}
+			started.handle((value, ex) -> {
+				synchronized (this) {
+					closed = true;
+				}
+				onDone.run();
+				return ex == null ? result.complete(value) : result.completeExceptionally(AsyncProcessor.unwrap(ex));
+			});
+		}
+
+		void fail(Throwable error) {
+			synchronized (this) {
+				closed = true;
+			}
+			result.completeExceptionally(error);
+		}
+
+		void detach() {
+			CompletableFuture<String> abandoned;
+			synchronized (this) {
+				if (closed || --attached > 0) {
+					return;
+				}
+				closed = true;
+				abandoned = call;
+			}
+			if (abandoned != null) {
+				abandoned.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * The future reply of one request attached to a shared call.  Cancelling it detaches the request.
+	 */
+	private static final class Request extends CompletableFuture<String> {
+		private final SharedCall shared;
+
+		Request(SharedCall shared) {
+			this.shared = shared;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				shared.detach();
+			}
+			return cancelled;
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package coen448.computablefuture.test;
+
+/**
+ * Identifies a microservice request, for the requests that are shared (see {@link ResultCache} and
+ * {@link RequestCoalescer}).
+ * @param serviceId The id of the microservice.
+ * @param message   The message sent to the microservice.
+ */
+record RequestKey(String serviceId, String message) {
+}
@@ -0,0 +1,243 @@
+package coen448.computablefuture.test;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+/**
+ * Collects the results of a batch as the calls complete, and reduces them once the last one is in. <br>
+ * Each result is written straight into a pre-sized array slot (so the input order is kept), failures are
+ * handled in the same callback according to the failure policy, and the slots are handed to the
+ * {@link ResultReducer} as they are.  The default reducer builds the final string with a single builder sized to
+ * the exact length of the output.  This replaces an extra {@code exceptionally} stage per call, the {@code allOf}
+ * barrier and a stream over the futures.  A spilling aggregator (see {@link SpilledResults}) writes each result into
+ * the spill instead, and completes with the spill itself.
+ * @param <R> The type of the reduced result.
+ */
+final class ResultAggregator<R> {
+	static final String SEPARATOR = ", ";
+	static final ResultReducer<String> JOINING = results -> join(results, SEPARATOR);
+
+	private final FailurePolicy policy;
+	private final List<Microservice> services;
+	private final String fallbackValue;
+	private final ResultReducer<R> reducer;
+	private final ProcessingListener listener;
+	// The slots of the results, or null when they are spilled.
+	private final String[] results;
+	private final SpilledResults spilled;
+	// The causes of the failures, only allocated once a call fails.  Guarded by this.
+	private Throwable[] errors;
+	private final AtomicInteger pending;
+	private final CompletableFuture<R> result = new CompletableFuture<>();
+	private List<CompletableFuture<String>> calls;
+
+	ResultAggregator(FailurePolicy policy, List<Microservice> services, String fallbackValue, ResultReducer<R> reducer,
+			ProcessingOptions options) {
+		this.policy = policy;
+		this.services = services;
+		this.fallbackValue = fallbackValue;
+		this.reducer = reducer;
+		this.listener = options.getListener();
+		this.results = new String[services.size()];
+		this.spilled = null;
+		this.pending = new AtomicInteger(services.size());
+	}
+
+	private ResultAggregator(FailurePolicy policy, List<Microservice> services, String fallbackValue,
+			SpilledResults spilled, ResultReducer<R> reducer, ProcessingOptions options) {
+		this.policy = policy;
+		this.services = services;
+		this.fallbackValue = fallbackValue;
+		this.reducer = reducer;
+		this.listener = options.getListener();
+		this.results = null;
+		this.spilled = spilled;
+		this.pending = new AtomicInteger(services.size());
+	}
+
+	/**
+	 * Create an aggregator writing each result into a spill, rather than into a slot on the heap.  The spill is
+	 * closed if the batch fails.
+	 * @param policy        The failure policy of the batch (Fail-Fast, Fail-Partial or Fail-Soft).
+	 * @param services      The microservices of the batch.
+	 * @param fallbackValue The value replacing failed microservices (Fail-Soft only), or null.
+	 * @param spilled       The empty spill of the batch.
+	 * @param options       Options of the batch.
+	 * @return An aggregator completing with the filled spill.
+	 */
+	static ResultAggregator<SpilledResults> spilling(FailurePolicy policy, List<Microservice> services,
+			String fallbackValue, SpilledResults spilled, ProcessingOptions options) {
+		ResultAggregator<SpilledResults> aggregator =
+				new ResultAggregator<>(policy, services, fallbackValue, spilled, results -> spilled, options);
+		aggregator.result.whenComplete((value, ex) -> {
+			if (ex != null) {
+				spilled.close();
+			}
+		});
+		return aggregator;
+	}
+
+	/**
+	 * Aggregate the results of the given calls.
+	 * @param calls The future results of the calls, in the same order as the microservices.
+	 * @return A future of the reduced results, completing once every call has completed (or on the first
+	 *         failure, under Fail-Fast).
+	 */
+	CompletableFuture<R> aggregate(List<CompletableFuture<String>> calls) {
+		this.calls = calls;
+		if (calls.isEmpty()) {
+			reduce();
+		}
+		for (int i = 0; i < calls.size(); i++) {
+			CompletableFuture<String> call = calls.get(i);
+			// A call that has already completed is read directly, without registering a dependent stage.
+			switch (call.state()) {
+				case SUCCESS -> onComplete(i, call.resultNow(), null);
+				case FAILED -> onComplete(i, null, call.exceptionNow());
+				case CANCELLED -> onComplete(i, null, new CancellationException());
+				default -> {
+					int index = i;
+					// handle() rather than whenComplete(): its own stage completes normally, instead of wrapping
+					// every failure in a new CompletionException (and its stack trace).
+					call.handle((value, ex) -> onComplete(index, value, ex));
+				}
+			}
+		}
+		return result;
+	}
+
+	private Void onComplete(int index, String value, Throwable ex) {
+		if (ex == null) {
+			if (!store(index, value)) {
+				return null;
+			}
+		} else if (policy == FailurePolicy.FAIL_FAST) {
+			// completeExceptionally will throw the exception in the result.
+			// Only the first failure wins; the cancellations it triggers are not failures of their own.
+			if (result.completeExceptionally(AsyncProcessor.unwrap(ex))) {
+				AsyncProcessor.cancelAll(calls);
+			}
+			return null;
+		} else {
+			if (spilled == null) {
+				recordError(index, AsyncProcessor.unwrap(ex));
+			}
+			if (policy == FailurePolicy.FAIL_SOFT) {
+				// Mask the failure with the fallback value, and warn the listener that it is masked.
+				if (spilled == null) {
+					results[index] = fallbackValue;
+				} else {
+					spilled.writeFallback(index);
+				}
+				if (listener != ProcessingListener.NONE) {
+					listener.onFallbackApplied(policy, services.get(index).getServiceId(), fallbackValue);
+				}
+			}
+			// Fail-Partial: the slot is left empty, and its failure makes join() skip it.
+		}
+
+		// The decrement publishes the slots written above to whichever thread completes the last call.
+		if (pending.decrementAndGet() == 0) {
+			reduce();
+		}
+		return null;
+	}
+
+	/**
+	 * Write a result into its slot, or into the spill.
+	 * @param index The index of the call in the batch.
+	 * @param value The reply of the call.
+	 * @return Whether the result was written: a spill that cannot be written (e.g., cannot grow) fails the batch.
+	 */
+	private boolean store(int index, String value) {
+		if (spilled == null) {
+			results[index] = value;
+			return true;
+		}
+		try {
+			spilled.write(index, value);
+			return true;
+		} catch (RuntimeException e) {
+			Throwable error = e instanceof UncheckedIOException ? e.getCause() : e;
+			if (result.completeExceptionally(error)) {
+				AsyncProcessor.cancelAll(calls);
+			}
+			return false;
+		}
+	}
+
+	private synchronized void recordError(int index, Throwable error) {
+		if (errors == null) {
+			errors = new Throwable[results.length];
+		}
+		errors[index] = error;
+	}
+
+	private void reduce() {
+		Throwable[] failures;
+		synchronized (this) {
+			failures = errors;
+		}
+		try {
+			result.complete(reducer.reduce(spilled == null ? new BatchResults(policy, results, failures) : null));
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Join the non-null results with the default separator, using a single builder of the exact output size.
+	 * @param results The results, in order, with null for absent results.
+	 * @return The joined results.
+	 */
+	static String join(String[] results) {
+		return join(results, index -> results[index] != null, SEPARATOR);
+	}
+
+	/**
+	 * Join the results of a batch with the given separator, using a single builder of the exact output size.
+	 * Only the failures are skipped: a null fallback value is still the result of its microservice, and is
+	 * written as {@code "null"}.
+	 * @param results   The results of the batch.
+	 * @param separator The separator between two results.
+	 * @return The joined results.
+	 */
+	static String join(BatchResults results, String separator) {
+		return join(results.values(), results::isPresent, separator);
+	}
+
+	private static String join(String[] results, IntPredicate present, String separator) {
+		long length = 0;
+		int count = 0;
+		for (int i = 0; i < results.length; i++) {
+			if (present.test(i)) {
+				length += String.valueOf(results[i]).length();
+				count++;
+			}
+		}
+		if (count == 0) {
+			return "";
+		}
+		length += (long) (count - 1) * separator.length();
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new OutOfMemoryError("Aggregated result is too large for a String: " + length + " characters");
+		}
+
+		StringBuilder builder = new StringBuilder((int) length);
+		boolean first = true;
+		for (int i = 0; i < results.length; i++) {
+			if (present.test(i)) {
+				if (!first) {
+					builder.append(separator);
+				}
+				builder.append(results[i]);
+				first = false;
+			}
+		}
+		return builder.toString();
+	}
+}
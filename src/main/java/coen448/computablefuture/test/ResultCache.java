@@ -0,0 +1,287 @@
+package coen448.computablefuture.test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A cache of microservice replies, keyed by service id and message, in front of the microservice calls. <br>
+ * A reply is kept for a fixed time to live, and the least recently used replies are evicted once the cache is
+ * full.  A call whose reply is already being retrieved (e.g., the same service and message in two concurrent
+ * batches) shares the call in flight instead of calling the microservice again.  Each caller still gets a future of
+ * its own, as with {@link RequestCoalescer}: its deadline or cancellation only detaches it, and the shared call is
+ * only cancelled once every caller has detached.  The cache applies to each attempt of a call, so each batch keeps
+ * its own deadlines and retries.  Failures are not cached, unless a time to live is given for them, and
+ * cancellations never are.  The cache is set with
+ * {@link ProcessingOptions#withCache(ResultCache)}, and should be shared by the batches it applies to.
+ */
+public final class ResultCache {
+	private final int maxSize;
+	private final long ttlNanos;
+	private final long failureTtlNanos;
+	private final Scheduler scheduler;
+	// Access-ordered, so that the first entry is the least recently used.  Guarded by itself.
+	private final LinkedHashMap<RequestKey, Entry> entries;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	/**
+	 * Create a cache of successful replies.
+	 * @param maxSize The maximum number of replies kept.
+	 * @param ttl     The time a reply is kept for.
+	 */
+	public ResultCache(int maxSize, Duration ttl) {
+		this(maxSize, ttl, null, Scheduler.system());
+	}
+
+	/**
+	 * Create a cache of replies and, optionally, failures.
+	 * @param maxSize    The maximum number of replies kept.
+	 * @param ttl        The time a reply is kept for.
+	 * @param failureTtl The time a failure is kept for, or null to never cache failures.
+	 * @param scheduler  The clock used for the times to live.
+	 */
+	public ResultCache(int maxSize, Duration ttl, Duration failureTtl, Scheduler scheduler) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("Cache size must be positive!");
+		}
+		if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+			throw new IllegalArgumentException("Time to live must be positive!");
+		}
+		if (failureTtl != null && (failureTtl.isNegative() || failureTtl.isZero())) {
+			throw new IllegalArgumentException("Time to live of failures must be positive!");
+		}
+		if (scheduler == null) {
+			throw new IllegalArgumentException("Scheduler cannot be null!");
+		}
+		this.maxSize = maxSize;
+		this.ttlNanos = ttl.toNanos();
+		this.failureTtlNanos = failureTtl == null ? 0 : failureTtl.toNanos();
+		this.scheduler = scheduler;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<RequestKey, Entry> eldest) {
+				if (size() <= ResultCache.this.maxSize) {
+					return false;
+				}
+				evictions.increment();
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Look up the reply of a microservice to a message, calling the loader if it is neither cached nor in flight.
+	 * @param serviceId The id of the microservice.
+	 * @param message   The message sent to the microservice.
+	 * @param loader    Starts the microservice call on a miss.
+	 * @return The cached reply, or the future reply of a call in flight, owned by this caller alone: cancelling it
+	 *         only detaches this caller from the call.
+	 */
+	CompletableFuture<String> lookup(String serviceId, String message, Supplier<CompletableFuture<String>> loader) {
+		RequestKey key = new RequestKey(serviceId, message);
+		while (true) {
+			Entry entry;
+			boolean miss = false;
+			synchronized (entries) {
+				entry = entries.get(key);
+				if (entry != null && entry.isExpired(scheduler.nanoTime())) {
+					entries.remove(key);
+					expirations.increment();
+					entry = null;
+				} else if (entry != null && entry.hasFailed(failureTtlNanos > 0)) {
+					// Failed, but not yet removed: the caller of the failed call may already be retrying it.
+					entries.remove(key);
+					entry = null;
+				}
+				if (entry == null) {
+					entry = new Entry();
+					entries.put(key, entry);
+					miss = true;
+				}
+			}
+			if (!miss) {
+				// A completed future cannot be altered by its callers, and can be shared as it is.
+				CompletableFuture<String> request = entry.future.isDone() ? entry.future : entry.attach();
+				if (request != null) {
+					hits.increment();
+					return request;
+				}
+				// Abandoned by every caller, but not yet removed.
+				synchronized (entries) {
+					entries.remove(key, entry);
+				}
+				continue;
+			}
+			misses.increment();
+			Entry loading = entry;
+			CompletableFuture<String> request = loading.attach();
+			CompletableFuture<String> call;
+			try {
+				call = loader.get();
+			} catch (RuntimeException e) {
+				// Never started (e.g., rejected by its executor): the callers already attached fail with it, and
+				// the next lookup calls the loader again instead of waiting for a call that will never complete.
+				synchronized (entries) {
+					entries.remove(key, loading);
+				}
+				loading.future.completeExceptionally(e);
+				throw e;
+			}
+			loading.start(call);
+			call.handle((result, ex) -> {
+				loaded(key, loading, result, ex == null ? null : AsyncProcessor.unwrap(ex));
+				return null;
+			});
+			return request;
+		}
+	}
+
+	private void loaded(RequestKey key, Entry entry, String result, Throwable error) {
+		long ttl = error == null ? ttlNanos : error instanceof CancellationException ? 0 : failureTtlNanos;
+		if (ttl > 0) {
+			entry.expiresAtNanos = scheduler.nanoTime() + ttl;
+			entry.completed = true;
+		} else {
+			synchronized (entries) {
+				entries.remove(key, entry);
+			}
+		}
+		if (error == null) {
+			entry.future.complete(result);
+		} else {
+			entry.future.completeExceptionally(error);
+		}
+	}
+
+	/**
+	 * Remove every cached reply.  Calls in flight still complete for their callers.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * The number of replies cached or in flight.
+	 * @return The size of the cache.
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	public long getExpirationCount() {
+		return expirations.sum();
+	}
+
+	/**
+	 * A cached reply, or a reply still being retrieved (which never expires).  The call retrieving it is shared by
+	 * the callers attached to it, and only cancelled once every one of them has detached.
+	 */
+	private static final class Entry {
+		// Only completed with the outcome of the call itself, never by a caller.
+		private final CompletableFuture<String> future = new CompletableFuture<>();
+		private volatile CompletableFuture<String> call;
+		private volatile long expiresAtNanos;
+		private volatile boolean completed;
+		// Guarded by this.
+		private int attached;
+		private boolean abandoned;
+
+		boolean isExpired(long nowNanos) {
+			return completed && nowNanos - expiresAtNanos >= 0;
+		}
+
+		/**
+		 * Whether the call failed with a failure that is not cached, before its entry was updated.
+		 */
+		boolean hasFailed(boolean cacheFailures) {
+			CompletableFuture<String> current = call;
+			return !completed && current != null && current.isCompletedExceptionally()
+					&& (!cacheFailures || current.isCancelled());
+		}
+
+		/**
+		 * Attach a new caller to the call in flight.
+		 * @return The future reply of the caller, or null if every caller has already detached.
+		 */
+		synchronized CompletableFuture<String> attach() {
+			if (abandoned) {
+				return null;
+			}
+			attached++;
+			Request request = new Request(this);
+			future.handle((value, ex) -> ex == null ? request.complete(value) : request.completeExceptionally(ex));
+			return request;
+		}
+
+		void start(CompletableFuture<String> started) {
+			boolean cancel;
+			synchronized (this) {
+				call = started;
+				cancel = abandoned;
+			}
+			// Every caller detached before the call was even started.
+			if (cancel) {
+				started.cancel(true);
+			}
+		}
+
+		void detach() {
+			CompletableFuture<String> current;
+			synchronized (this) {
+				if (future.isDone() || --attached > 0) {
+					return;
+				}
+				abandoned = true;
+				current = call;
+			}
+			if (current != null) {
+				current.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * The future reply of one caller attached to a call in flight.  Cancelling it detaches the caller.
+	 */
+	private static final class Request extends CompletableFuture<String> {
+		private final Entry entry;
+
+		Request(Entry entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				entry.detach();
+			}
+			return cancelled;
+		}
+	}
+}
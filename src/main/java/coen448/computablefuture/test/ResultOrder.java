@@ -0,0 +1,17 @@
+package coen448.computablefuture.test;
+
+/**
+ * The order of the results of a batch that only keeps some of its results (see
+ * {@link AsyncProcessor#processAsyncQuorum(java.util.List, java.util.List, int, ResultOrder)}).
+ */
+public enum ResultOrder {
+	/**
+	 * The results are in the same order as the microservices.
+	 */
+	INPUT_ORDER,
+
+	/**
+	 * The results are in the order their calls completed, the fastest first.
+	 */
+	COMPLETION_ORDER
+}
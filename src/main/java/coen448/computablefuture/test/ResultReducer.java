@@ -0,0 +1,56 @@
+package coen448.computablefuture.test;
+
+import java.util.List;
+
+/**
+ * Reduces the results of a batch (see {@link BatchResults}) to the value returned by
+ * {@link AsyncProcessor#processAsync(FailurePolicy, List, List, String, ResultReducer)}. <br>
+ * The policy methods returning a {@code String} use {@link #joining()}.  A reducer runs once per batch, on the
+ * thread completing its last call, and an exception it throws fails the batch.
+ * @param <R> The type of the reduced value.
+ */
+@FunctionalInterface
+public interface ResultReducer<R> {
+	/**
+	 * Reduce the results of a batch.
+	 * @param results The result of every call, in the same order as the microservices.
+	 * @return The reduced value.
+	 */
+	R reduce(BatchResults results);
+
+	/**
+	 * Join the values with {@code ", "}, skipping the failures: the output of the policy methods.
+	 * @return A reducer to a single string.
+	 */
+	static ResultReducer<String> joining() {
+		return ResultAggregator.JOINING;
+	}
+
+	/**
+	 * Join the values with the given separator, skipping the failures.
+	 * @param separator The separator between two values.
+	 * @return A reducer to a single string.
+	 */
+	static ResultReducer<String> joining(String separator) {
+		if (separator == null) {
+			throw new IllegalArgumentException("Separator cannot be null!");
+		}
+		return results -> ResultAggregator.join(results, separator);
+	}
+
+	/**
+	 * List the values in order, skipping the failures, so that a value containing a separator stays whole.
+	 * @return A reducer to an unmodifiable list.
+	 */
+	static ResultReducer<List<String>> toList() {
+		return BatchResults::getValues;
+	}
+
+	/**
+	 * Keep the results as they are, with the outcome of each call.
+	 * @return A reducer to the results themselves.
+	 */
+	static ResultReducer<BatchResults> results() {
+		return results -> results;
+	}
+}
@@ -0,0 +1,99 @@
+package coen448.computablefuture.test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Where the results of a very large batch are spilled, instead of being kept on the heap as strings (see
+ * {@link AsyncProcessor#processAsyncSpilled(FailurePolicy, java.util.List, java.util.List, String, ResultSpill)}). <br>
+ * The results are written, as UTF-8, into chunks of either direct buffers (off-heap memory) or a temporary file
+ * mapped in memory, which the operating system can page out.  Spills are immutable: every {@code with...} method
+ * returns a modified copy.
+ */
+public final class ResultSpill {
+	private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	private final Path directory;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private ResultSpill(Path directory) {
+		this.directory = directory;
+	}
+
+	private ResultSpill(ResultSpill other) {
+		this.directory = other.directory;
+		this.chunkSize = other.chunkSize;
+	}
+
+	/**
+	 * Spill the results into direct buffers of 1 MiB, outside the heap.
+	 * @return A new off-heap spill.
+	 */
+	public static ResultSpill offHeap() {
+		return new ResultSpill((Path) null);
+	}
+
+	/**
+	 * Spill the results into a temporary file mapped in memory, in chunks of 1 MiB.  The file is deleted once the
+	 * spilled results are closed.
+	 * @param directory The directory of the temporary file.
+	 * @return A new memory-mapped spill.
+	 */
+	public static ResultSpill mapped(Path directory) {
+		if (directory == null) {
+			throw new IllegalArgumentException("Spill directory cannot be null!");
+		}
+		return new ResultSpill(directory);
+	}
+
+	/**
+	 * Set the size of each chunk of the spill, allocated (or mapped) as the results arrive.
+	 * @param chunkSize The size of a chunk, in bytes.
+	 * @return A copy of this spill with the chunk size set.
+	 */
+	public ResultSpill withChunkSize(int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive!");
+		}
+		ResultSpill copy = new ResultSpill(this);
+		copy.chunkSize = chunkSize;
+		return copy;
+	}
+
+	/**
+	 * The directory of the temporary file.
+	 * @return The directory, or null for an off-heap spill.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Open an empty spill for a batch.
+	 * @param size          The number of microservices in the batch.
+	 * @param fallbackValue The value replacing failed microservices (Fail-Soft only), or null.
+	 * @return The spilled results, to be filled as the calls complete.
+	 * @throws UncheckedIOException If the temporary file cannot be created.
+	 */
+	SpilledResults open(int size, String fallbackValue) {
+		if (directory == null) {
+			return new SpilledResults(size, chunkSize, null, fallbackValue);
+		}
+		try {
+			Path file = Files.createTempFile(directory, "batch-", ".spill");
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.DELETE_ON_CLOSE);
+			return new SpilledResults(size, chunkSize, channel, fallbackValue);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
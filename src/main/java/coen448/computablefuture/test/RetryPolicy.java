@@ -0,0 +1,166 @@
+package coen448.computablefuture.test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * How failed microservice calls are retried before their failure reaches the failure policy. <br>
+ * A failed attempt is retried after an exponential backoff (the initial backoff, multiplied by the multiplier
+ * after every attempt, up to the maximum backoff), shortened by a random jitter so that the retries of many
+ * calls failing together do not all arrive at once.  Retries are scheduled on the {@link Scheduler} of the
+ * batch rather than by sleeping, and are never scheduled past the batch deadline.  Policies are immutable:
+ * every {@code with...} method returns a modified copy.
+ */
+public final class RetryPolicy {
+	private static final RetryPolicy NONE = new RetryPolicy(1);
+
+	private final int maxAttempts;
+	private Duration initialBackoff = Duration.ofMillis(50);
+	private double multiplier = 2.0;
+	private Duration maxBackoff = Duration.ofSeconds(2);
+	private double jitter = 0.5;
+	private Predicate<? super Throwable> retryOn = error -> true;
+
+	private RetryPolicy(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	private RetryPolicy(RetryPolicy other) {
+		this.maxAttempts = other.maxAttempts;
+		this.initialBackoff = other.initialBackoff;
+		this.multiplier = other.multiplier;
+		this.maxBackoff = other.maxBackoff;
+		this.jitter = other.jitter;
+		this.retryOn = other.retryOn;
+	}
+
+	/**
+	 * The policy that never retries (the default): every call is attempted once.
+	 * @return The policy without retries.
+	 */
+	public static RetryPolicy none() {
+		return NONE;
+	}
+
+	/**
+	 * A policy attempting every call up to the given number of times, with a backoff of 50 ms doubling up to
+	 * 2 s, a jitter of 0.5, and retrying every failure.
+	 * @param maxAttempts The maximum number of attempts of a call, including the first one.
+	 * @return A new retry policy.
+	 */
+	public static RetryPolicy maxAttempts(int maxAttempts) {
+		if (maxAttempts <= 0) {
+			throw new IllegalArgumentException("Maximum number of attempts must be positive!");
+		}
+		return new RetryPolicy(maxAttempts);
+	}
+
+	/**
+	 * Set the exponential backoff between attempts.
+	 * @param initialBackoff The delay before the second attempt.
+	 * @param multiplier     The factor applied to the delay after every further attempt (at least 1).
+	 * @return A copy of this policy with the backoff set.
+	 */
+	public RetryPolicy withBackoff(Duration initialBackoff, double multiplier) {
+		if (initialBackoff == null || initialBackoff.isNegative()) {
+			throw new IllegalArgumentException("Initial backoff cannot be null or negative!");
+		}
+		if (!(multiplier >= 1.0)) {
+			throw new IllegalArgumentException("Backoff multiplier must be at least 1!");
+		}
+		RetryPolicy copy = new RetryPolicy(this);
+		copy.initialBackoff = initialBackoff;
+		copy.multiplier = multiplier;
+		return copy;
+	}
+
+	/**
+	 * Set the upper bound of the backoff between attempts.
+	 * @param maxBackoff The longest delay between two attempts.
+	 * @return A copy of this policy with the maximum backoff set.
+	 */
+	public RetryPolicy withMaxBackoff(Duration maxBackoff) {
+		if (maxBackoff == null || maxBackoff.isNegative()) {
+			throw new IllegalArgumentException("Maximum backoff cannot be null or negative!");
+		}
+		RetryPolicy copy = new RetryPolicy(this);
+		copy.maxBackoff = maxBackoff;
+		return copy;
+	}
+
+	/**
+	 * Set the jitter of the backoff: each delay is shortened by a random fraction between 0 and the jitter.
+	 * @param jitter The jitter, from 0 (fixed delays) to 1 (delays anywhere between 0 and the backoff).
+	 * @return A copy of this policy with the jitter set.
+	 */
+	public RetryPolicy withJitter(double jitter) {
+		if (!(jitter >= 0.0 && jitter <= 1.0)) {
+			throw new IllegalArgumentException("Jitter must be between 0 and 1!");
+		}
+		RetryPolicy copy = new RetryPolicy(this);
+		copy.jitter = jitter;
+		return copy;
+	}
+
+	/**
+	 * Set which failures are retried; the others fail the call right away.  Cancellations and calls rejected by
+	 * an open circuit (see {@link CircuitBreaker}) or a full bulkhead (see {@link Bulkheads}) are never retried.
+	 * @param retryOn Predicate accepting the cause of a retryable failure (e.g., a timeout or an I/O error).
+	 * @return A copy of this policy with the predicate set.
+	 */
+	public RetryPolicy withRetryOn(Predicate<? super Throwable> retryOn) {
+		if (retryOn == null) {
+			throw new IllegalArgumentException("Retry predicate cannot be null!");
+		}
+		RetryPolicy copy = new RetryPolicy(this);
+		copy.retryOn = retryOn;
+		return copy;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public Duration getInitialBackoff() {
+		return initialBackoff;
+	}
+
+	public double getMultiplier() {
+		return multiplier;
+	}
+
+	public Duration getMaxBackoff() {
+		return maxBackoff;
+	}
+
+	public double getJitter() {
+		return jitter;
+	}
+
+	/**
+	 * Whether a failed attempt should be retried.
+	 * @param attempt The number of the failed attempt, starting at 1.
+	 * @param error   The cause of the failure.
+	 * @return True if the call has attempts left and the failure is retryable.
+	 */
+	boolean shouldRetry(int attempt, Throwable error) {
+		return attempt < maxAttempts && !(error instanceof CancellationException)
+				&& !(error instanceof CircuitOpenException) && !(error instanceof BulkheadFullException)
+				&& retryOn.test(error);
+	}
+
+	/**
+	 * The delay before the next attempt, including the jitter.
+	 * @param attempt The number of the failed attempt, starting at 1.
+	 * @return The delay in nanoseconds.
+	 */
+	long backoffNanos(int attempt) {
+		double backoff = Math.min(
+				initialBackoff.toNanos() * Math.pow(multiplier, attempt - 1),
+				(double) maxBackoff.toNanos());
+		double jittered = backoff * (1.0 - jitter * ThreadLocalRandom.current().nextDouble());
+		return (long) jittered;
+	}
+}
@@ -0,0 +1,34 @@
+package coen448.computablefuture.test;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source of time and delayed execution for the processor (deadlines, and any other timed behaviour). <br>
+ * All timing goes through this interface instead of {@link System#nanoTime()} and a private timer thread,
+ * so that an alternative implementation can drive the processor on a different clock.
+ */
+public interface Scheduler {
+	/**
+	 * The current time of this scheduler's clock.
+	 * @return The current time in nanoseconds, only meaningful relative to other values of this method.
+	 */
+	long nanoTime();
+
+	/**
+	 * Run a task once, after the given delay.  The task runs on the scheduler's timer thread, so it must be short.
+	 * @param task  The task to be run.
+	 * @param delay The delay before the task runs.
+	 * @param unit  The unit of the delay.
+	 * @return A future that can be used to cancel the task before it runs.
+	 */
+	Future<?> schedule(Runnable task, long delay, TimeUnit unit);
+
+	/**
+	 * The scheduler backed by the system clock and a shared daemon timer thread.
+	 * @return The system scheduler.
+	 */
+	static Scheduler system() {
+		return SystemScheduler.INSTANCE;
+	}
+}
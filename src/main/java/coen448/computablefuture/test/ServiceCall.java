@@ -0,0 +1,262 @@
+package coen448.computablefuture.test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The future result of one microservice call in a batch. <br>
+ * Unlike the microservice's own future, it can be settled early (e.g., by a deadline), in which case the
+ * microservice call is cancelled.  A failed attempt (including one past its per-call deadline) is retried
+ * according to the {@link RetryPolicy} of the batch, on the batch's timer, for as long as the batch deadline
+ * allows, and each attempt may be hedged by a duplicate request (see {@link HedgedCall}).  Whichever of the last
+ * attempt or a deadline settles it first also reports the outcome to the batch's listener, before the result
+ * becomes visible to the policy.  Under a {@link LoadShedder} and an {@link AdaptiveLimit}, the call only starts
+ * once both allow it (in that order), and holds their permits until it settles.  The latency of a successful or
+ * timed out call updates the {@link LatencyEstimator} of the batch, if any.
+ */
+final class ServiceCall extends CompletableFuture<String> {
+	private static final int NO_PERMIT = 0;
+	private static final int PERMIT_HELD = 1;
+	private static final int PERMIT_RELEASED = 2;
+	// Releases the permits of a call that was cancelled, without adjusting the limit.
+	private static final CancellationException CANCELLED = new CancellationException();
+
+	private final FailurePolicy policy;
+	private final Microservice service;
+	private final String message;
+	private final long perCallNanos;
+	private final RetryPolicy retry;
+	private final HedgePolicy hedge;
+	private final ProcessingOptions options;
+	private final Duration batchTimeout;
+	private final long batchStartNanos;
+	private final ProcessingListener listener;
+	private final Scheduler scheduler;
+	private final AdaptiveLimit adaptiveLimit;
+	private final LoadShedder loadShedder;
+	private final LatencyEstimator latencyEstimator;
+	private final AtomicBoolean settled = new AtomicBoolean();
+	// Whether the call holds a permit of the adaptive limit: none yet, held, or released.
+	private final AtomicInteger permit = new AtomicInteger(NO_PERMIT);
+	// Whether the call holds a permit of the load shedder: none yet, held, or released.
+	private final AtomicInteger shedderPermit = new AtomicInteger(NO_PERMIT);
+	// The attempt in flight.  Whichever of its completion and its deadline clears it first handles its outcome.
+	private final AtomicReference<CompletableFuture<String>> call = new AtomicReference<>();
+	// The deadline of the attempt in flight, or the backoff before the next attempt.
+	private volatile Future<?> timer;
+	private volatile boolean started;
+	private long startNanos;
+
+	/**
+	 * @param policy          The failure policy of the batch.
+	 * @param service         The microservice to be called.
+	 * @param message         The message to be sent to the microservice.
+	 * @param options         Options of the batch.
+	 * @param batchStartNanos The start time of the batch on the options' scheduler (for the batch deadline).
+	 */
+	ServiceCall(FailurePolicy policy, Microservice service, String message, ProcessingOptions options, long batchStartNanos) {
+		this.policy = policy;
+		this.service = service;
+		this.message = message;
+		this.perCallNanos = options.getPerCallTimeout() == null ? 0 : options.getPerCallTimeout().toNanos();
+		this.retry = options.getRetry();
+		this.hedge = options.getHedge();
+		this.options = options;
+		this.batchTimeout = options.getBatchTimeout();
+		this.batchStartNanos = batchStartNanos;
+		this.listener = options.getListener();
+		this.scheduler = options.getScheduler();
+		this.adaptiveLimit = options.getAdaptiveLimit();
+		this.loadShedder = options.getLoadShedder();
+		this.latencyEstimator = options.getLatencyEstimator();
+	}
+
+	/**
+	 * Start the first attempt of the call, once the load shedder and adaptive limit (if any) allow it.
+	 */
+	void start() {
+		if (loadShedder == null) {
+			admit();
+		} else {
+			loadShedder.acquire(this, options.getPriority());
+		}
+	}
+
+	/**
+	 * Start the first attempt of the call, once the adaptive limit (if any) allows it.  Under a load shedder, the
+	 * caller has acquired a permit for it, which is released once the call settles (or right away, if it already has).
+	 */
+	void admit() {
+		if (loadShedder != null) {
+			shedderPermit.set(PERMIT_HELD);
+			// Settled (or cancelled) while waiting for the permit.
+			if (isDone()) {
+				releasePermits(0, CANCELLED);
+				return;
+			}
+		}
+		if (adaptiveLimit == null) {
+			begin();
+		} else {
+			adaptiveLimit.acquire(this);
+		}
+	}
+
+	/**
+	 * Start the first attempt of the call, now.  Under an adaptive limit, the caller has acquired a permit for it,
+	 * which is released once the call settles (or right away, if it already has).
+	 */
+	void begin() {
+		if (adaptiveLimit != null) {
+			permit.set(PERMIT_HELD);
+			// Settled (or cancelled) while waiting for the permit.
+			if (isDone()) {
+				releasePermits(0, CANCELLED);
+				return;
+			}
+		}
+		if (listener != ProcessingListener.NONE || adaptiveLimit != null || latencyEstimator != null) {
+			startNanos = scheduler.nanoTime();
+		}
+		started = true;
+		launch(1);
+	}
+
+	private void launch(int attempt) {
+		if (isDone()) {
+			return;
+		}
+		CompletableFuture<String> current = hedge == HedgePolicy.none()
+				? AsyncProcessor.launch(service, message, options)
+				: HedgedCall.launch(policy, service, message, options);
+		call.set(current);
+		if (perCallNanos > 0) {
+			timer = scheduler.schedule(() -> {
+				if (call.compareAndSet(current, null)) {
+					current.cancel(true);
+					failed(attempt, new TimeoutException(
+							"Microservice call exceeded its deadline of " + TimeUnit.NANOSECONDS.toMillis(perCallNanos) + " ms"));
+				}
+			}, perCallNanos, TimeUnit.NANOSECONDS);
+		}
+		current.handle((result, ex) -> {
+			if (call.compareAndSet(current, null)) {
+				if (ex == null) {
+					settle(result, null);
+				} else {
+					failed(attempt, AsyncProcessor.unwrap(ex));
+				}
+			}
+			return null;
+		});
+		// Settled (or cancelled) before the call was attached: the call is no longer needed.
+		if (isDone()) {
+			current.cancel(true);
+		}
+	}
+
+	/**
+	 * Retry a failed attempt after its backoff, or settle with its failure if it cannot be retried.
+	 * @param attempt The number of the failed attempt, starting at 1.
+	 * @param error   The cause of the failure.
+	 */
+	private void failed(int attempt, Throwable error) {
+		cancelTimer();
+		if (isDone()) {
+			return;
+		}
+		if (retry.shouldRetry(attempt, error)) {
+			long backoffNanos = retry.backoffNanos(attempt);
+			// A retry that could only start after the batch deadline would be cancelled anyway.
+			if (batchTimeout == null || scheduler.nanoTime() - batchStartNanos + backoffNanos < batchTimeout.toNanos()) {
+				if (listener != ProcessingListener.NONE) {
+					listener.onServiceRetry(policy, service.getServiceId(), attempt, error);
+				}
+				timer = scheduler.schedule(() -> launch(attempt + 1), backoffNanos, TimeUnit.NANOSECONDS);
+				// Settled while the retry was being scheduled: it is no longer needed.
+				if (isDone()) {
+					cancelTimer();
+				}
+				return;
+			}
+		}
+		settle(null, error);
+	}
+
+	/**
+	 * Settle this future with the outcome of the call, unless it is already settled.
+	 * @param result The result of the call (if successful).
+	 * @param error  The cause of the failure, or null if successful.
+	 * @return Whether this outcome settled the future.
+	 */
+	boolean settle(String result, Throwable error) {
+		if (!settled.compareAndSet(false, true)) {
+			return false;
+		}
+		cancelTimer();
+		if (latencyEstimator != null && started && (error == null || error instanceof TimeoutException)) {
+			latencyEstimator.record(service.getServiceId(), scheduler.nanoTime() - startNanos);
+		}
+		if (adaptiveLimit != null || loadShedder != null) {
+			releasePermits(started ? scheduler.nanoTime() - startNanos : 0, error);
+		}
+		if (listener != ProcessingListener.NONE) {
+			// A call settled before it was started (e.g., queued past the batch deadline) took no time.
+			long latencyNanos = started ? scheduler.nanoTime() - startNanos : 0;
+			if (error == null) {
+				listener.onServiceSuccess(policy, service.getServiceId(), latencyNanos);
+			} else if (!(error instanceof CancellationException)) {
+				listener.onServiceFailure(policy, service.getServiceId(), latencyNanos, error);
+			}
+		}
+		if (error == null) {
+			complete(result);
+		} else {
+			completeExceptionally(error);
+			// Settled by a deadline: stop the call itself.
+			cancelCall();
+		}
+		return true;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		// A cancellation by the processor is not an outcome of the call, and is not reported.
+		settled.set(true);
+		boolean cancelled = super.cancel(mayInterruptIfRunning);
+		cancelCall();
+		cancelTimer();
+		releasePermits(0, CANCELLED);
+		return cancelled;
+	}
+
+	private void releasePermits(long latencyNanos, Throwable error) {
+		if (adaptiveLimit != null && permit.compareAndSet(PERMIT_HELD, PERMIT_RELEASED)) {
+			adaptiveLimit.release(latencyNanos, error);
+		}
+		if (loadShedder != null && shedderPermit.compareAndSet(PERMIT_HELD, PERMIT_RELEASED)) {
+			loadShedder.release();
+		}
+	}
+
+	private void cancelCall() {
+		CompletableFuture<String> current = call.getAndSet(null);
+		if (current != null) {
+			current.cancel(true);
+		}
+	}
+
+	private void cancelTimer() {
+		Future<?> pendingTimer = timer;
+		if (pendingTimer != null) {
+			pendingTimer.cancel(false);
+		}
+	}
+}
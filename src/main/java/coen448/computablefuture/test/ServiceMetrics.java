@@ -0,0 +1,206 @@
+package coen448.computablefuture.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ProcessingListener} recording the counts and latencies of the calls to each microservice, under each
+ * failure policy. <br>
+ * Every service id and policy has a recorder of its own: striped counters of successes, failures and fallbacks,
+ * and a fixed-memory {@link LatencyHistogram} (created on its first call), so that recording a call is a few lock-free increments and never
+ * allocates (after the first call of a service id).  {@link #snapshot()} reads the counts since the last reset,
+ * while {@link #snapshotAndReset()} also starts a new interval, without stopping the recording: each recorder
+ * swaps in a fresh interval and waits for the calls still recording into the previous one (as HdrHistogram's
+ * interval recorder does), so that no call is lost or counted twice.
+ */
+public class ServiceMetrics implements ProcessingListener {
+	private static final int POLICIES = FailurePolicy.values().length;
+	// The latencies of a microservice never called under a policy: never recorded into.
+	private static final LatencyHistogram NO_LATENCY = new LatencyHistogram();
+
+	private final Scheduler scheduler;
+	// The recorders of each service id, indexed by policy, created on the first call under the policy.
+	private final ConcurrentHashMap<String, AtomicReferenceArray<Recorder>> recorders = new ConcurrentHashMap<>();
+
+	public ServiceMetrics() {
+		this(Scheduler.system());
+	}
+
+	/**
+	 * @param scheduler The clock measuring the intervals.
+	 */
+	public ServiceMetrics(Scheduler scheduler) {
+		if (scheduler == null) {
+			throw new IllegalArgumentException("Scheduler cannot be null!");
+		}
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public void onServiceSuccess(FailurePolicy policy, String serviceId, long latencyNanos) {
+		Recorder recorder = recorder(policy, serviceId);
+		Interval interval = recorder.enter();
+		interval.successes.increment();
+		interval.latency.record(latencyNanos);
+		recorder.exit(interval);
+	}
+
+	@Override
+	public void onServiceFailure(FailurePolicy policy, String serviceId, long latencyNanos, Throwable error) {
+		Recorder recorder = recorder(policy, serviceId);
+		Interval interval = recorder.enter();
+		interval.failures.increment();
+		interval.latency.record(latencyNanos);
+		recorder.exit(interval);
+	}
+
+	@Override
+	public void onFallbackApplied(FailurePolicy policy, String serviceId, String fallbackValue) {
+		Recorder recorder = recorder(policy, serviceId);
+		Interval interval = recorder.enter();
+		interval.fallbacks.increment();
+		recorder.exit(interval);
+	}
+
+	private Recorder recorder(FailurePolicy policy, String serviceId) {
+		AtomicReferenceArray<Recorder> byPolicy = recorders.get(serviceId);
+		if (byPolicy == null) {
+			byPolicy = recorders.computeIfAbsent(serviceId, id -> new AtomicReferenceArray<>(POLICIES));
+		}
+		Recorder recorder = byPolicy.get(policy.ordinal());
+		if (recorder == null) {
+			byPolicy.compareAndSet(policy.ordinal(), null, new Recorder(serviceId, policy));
+			recorder = byPolicy.get(policy.ordinal());
+		}
+		return recorder;
+	}
+
+	/**
+	 * The counts and latencies of a microservice under a policy, since the last reset.
+	 * @param serviceId The id of the microservice.
+	 * @param policy    The failure policy.
+	 * @return The snapshot, empty for a microservice never called under the policy.
+	 */
+	public ServiceSnapshot snapshot(String serviceId, FailurePolicy policy) {
+		// Only read: a microservice never called gets no recorder.
+		AtomicReferenceArray<Recorder> byPolicy = recorders.get(serviceId);
+		Recorder recorder = byPolicy == null ? null : byPolicy.get(policy.ordinal());
+		return recorder == null
+				? new ServiceSnapshot(serviceId, policy, 0, 0, 0, 0, NO_LATENCY)
+				: recorder.snapshot(false);
+	}
+
+	/**
+	 * The number of service ids with recorded calls, under any policy.
+	 * @return The count of service ids.
+	 */
+	int getServiceCount() {
+		return recorders.size();
+	}
+
+	/**
+	 * The counts and latencies of every microservice called under each policy, since the last reset.  The calls
+	 * recording concurrently may or may not be included.
+	 * @return The snapshots of every service id and policy that recorded calls.
+	 */
+	public List<ServiceSnapshot> snapshot() {
+		return snapshotAll(false);
+	}
+
+	/**
+	 * The counts and latencies of every microservice called under each policy, since the last reset, starting a new
+	 * interval.  Every call is included in exactly one interval.
+	 * @return The snapshots of every service id and policy that recorded calls.
+	 */
+	public List<ServiceSnapshot> snapshotAndReset() {
+		return snapshotAll(true);
+	}
+
+	private List<ServiceSnapshot> snapshotAll(boolean reset) {
+		List<ServiceSnapshot> snapshots = new ArrayList<>();
+		for (AtomicReferenceArray<Recorder> byPolicy : recorders.values()) {
+			for (int i = 0; i < byPolicy.length(); i++) {
+				Recorder recorder = byPolicy.get(i);
+				if (recorder == null) {
+					continue;
+				}
+				ServiceSnapshot snapshot = recorder.snapshot(reset);
+				if (snapshot.getSuccessCount() + snapshot.getFailureCount() + snapshot.getFallbackCount() > 0) {
+					snapshots.add(snapshot);
+				}
+			}
+		}
+		return snapshots;
+	}
+
+	/**
+	 * The recorder of a single service id and policy.
+	 */
+	private final class Recorder {
+		private final String serviceId;
+		private final FailurePolicy policy;
+		private final AtomicReference<Interval> current;
+
+		Recorder(String serviceId, FailurePolicy policy) {
+			this.serviceId = serviceId;
+			this.policy = policy;
+			this.current = new AtomicReference<>(new Interval(scheduler.nanoTime()));
+		}
+
+		/**
+		 * Enter the current interval, to record into it.
+		 * @return The interval, which the caller must exit once recorded.
+		 */
+		Interval enter() {
+			while (true) {
+				Interval interval = current.get();
+				interval.entered.increment();
+				// Swapped out in the meantime: its snapshot may already be waiting for this call to exit.
+				if (current.get() == interval) {
+					return interval;
+				}
+				interval.exited.increment();
+			}
+		}
+
+		void exit(Interval interval) {
+			interval.exited.increment();
+		}
+
+		ServiceSnapshot snapshot(boolean reset) {
+			long now = scheduler.nanoTime();
+			Interval interval = current.get();
+			if (reset) {
+				interval = current.getAndSet(new Interval(now));
+				// Exits are read before entries: a call counted as exited was counted as entered, so equal sums
+				// mean that every call that entered the interval has left it.
+				while (interval.exited.sum() != interval.entered.sum()) {
+					Thread.onSpinWait();
+				}
+			}
+			return new ServiceSnapshot(serviceId, policy, now - interval.startNanos, interval.successes.sum(),
+					interval.failures.sum(), interval.fallbacks.sum(), interval.latency);
+		}
+	}
+
+	/**
+	 * The counts and latencies of a recorder over one interval.
+	 */
+	private static final class Interval {
+		private final long startNanos;
+		private final LongAdder entered = new LongAdder();
+		private final LongAdder exited = new LongAdder();
+		private final LongAdder successes = new LongAdder();
+		private final LongAdder failures = new LongAdder();
+		private final LongAdder fallbacks = new LongAdder();
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		Interval(long startNanos) {
+			this.startNanos = startNanos;
+		}
+	}
+}
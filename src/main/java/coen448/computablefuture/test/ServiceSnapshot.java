@@ -0,0 +1,116 @@
+package coen448.computablefuture.test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The counts and latency percentiles of the calls to one microservice under one failure policy, over an interval
+ * (see {@link ServiceMetrics}).  Snapshots are immutable.
+ */
+public final class ServiceSnapshot {
+	private final String serviceId;
+	private final FailurePolicy policy;
+	private final long intervalNanos;
+	private final long successes;
+	private final long failures;
+	private final long fallbacks;
+	private final long p50;
+	private final long p90;
+	private final long p99;
+	private final long p999;
+	private final long max;
+
+	/**
+	 * @param serviceId     The id of the microservice.
+	 * @param policy        The failure policy of the batches.
+	 * @param intervalNanos The length of the interval.
+	 * @param successes     The number of successful calls.
+	 * @param failures      The number of failed calls.
+	 * @param fallbacks     The number of failed calls replaced by the fallback value.
+	 * @param latency       The latencies of the successful and failed calls.
+	 */
+	ServiceSnapshot(String serviceId, FailurePolicy policy, long intervalNanos, long successes, long failures,
+			long fallbacks, LatencyHistogram latency) {
+		this.serviceId = serviceId;
+		this.policy = policy;
+		this.intervalNanos = intervalNanos;
+		this.successes = successes;
+		this.failures = failures;
+		this.fallbacks = fallbacks;
+		this.p50 = latency.getPercentile(50);
+		this.p90 = latency.getPercentile(90);
+		this.p99 = latency.getPercentile(99);
+		this.p999 = latency.getPercentile(99.9);
+		this.max = latency.getMax();
+	}
+
+	public String getServiceId() {
+		return serviceId;
+	}
+
+	public FailurePolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * The length of the interval covered by the snapshot: since the recorder was created, or last reset.
+	 * @return The interval in nanoseconds.
+	 */
+	public long getIntervalNanos() {
+		return intervalNanos;
+	}
+
+	public long getSuccessCount() {
+		return successes;
+	}
+
+	public long getFailureCount() {
+		return failures;
+	}
+
+	/**
+	 * The number of failed calls replaced by the fallback value (Fail-Soft only), also counted as failures.
+	 * @return The count of fallbacks.
+	 */
+	public long getFallbackCount() {
+		return fallbacks;
+	}
+
+	/**
+	 * The median latency of the calls.
+	 * @return The p50 in nanoseconds, or 0 if no call completed.
+	 */
+	public long getP50() {
+		return p50;
+	}
+
+	public long getP90() {
+		return p90;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	/**
+	 * The 99.9th percentile latency of the calls.
+	 * @return The p999 in nanoseconds, or 0 if no call completed.
+	 */
+	public long getP999() {
+		return p999;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + policy + "] " + serviceId + ": " + successes + " successes, " + failures + " failures ("
+				+ fallbacks + " fallbacks), p50 " + micros(p50) + " us, p90 " + micros(p90) + " us, p99 "
+				+ micros(p99) + " us, p999 " + micros(p999) + " us, max " + micros(max) + " us";
+	}
+
+	private static long micros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+}
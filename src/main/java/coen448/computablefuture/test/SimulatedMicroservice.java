@@ -0,0 +1,87 @@
+package coen448.computablefuture.test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A microservice replying after a simulated latency, on a {@link Scheduler} instead of a thread. <br>
+ * Each call draws its latency from a {@link LatencyModel}, and whether it fails from a failure rate, both with a
+ * random generator seeded by the microservice's seed.  The reply (or failure) is then scheduled on the scheduler:
+ * no thread sleeps, and the executor of the call is not used.  On a {@link VirtualTimeScheduler}, a scenario
+ * replays identically for the same seeds.  A cancelled call cancels its scheduled reply.
+ */
+final class SimulatedMicroservice extends Microservice {
+	private final Scheduler scheduler;
+	private final LatencyModel latency;
+	private final double failureRate;
+	// Guarded by this.
+	private final SplittableRandom random;
+	private int calls;
+
+	/**
+	 * @param serviceId   The id of the microservice.
+	 * @param scheduler   The scheduler replying to the calls.
+	 * @param latency     The latency of the calls.
+	 * @param failureRate The probability of a call failing, from 0 to 1.
+	 * @param seed        The seed of the random generator.
+	 */
+	SimulatedMicroservice(String serviceId, Scheduler scheduler, LatencyModel latency, double failureRate, long seed) {
+		super(serviceId);
+		if (!(failureRate >= 0.0 && failureRate <= 1.0)) {
+			throw new IllegalArgumentException("Failure rate must be between 0 and 1!");
+		}
+		this.scheduler = scheduler;
+		this.latency = latency;
+		this.failureRate = failureRate;
+		this.random = new SplittableRandom(seed);
+	}
+
+	@Override
+	public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+		long latencyNanos;
+		boolean fails;
+		int call;
+		synchronized (this) {
+			latencyNanos = latency.sampleNanos(random);
+			fails = random.nextDouble() < failureRate;
+			call = ++calls;
+		}
+		Reply reply = new Reply();
+		reply.event = scheduler.schedule(() -> {
+			if (fails) {
+				reply.completeExceptionally(new RuntimeException("Simulated failure #" + call + " of " + getServiceId()));
+			} else {
+				reply.complete(getServiceId() + ":" + input.toUpperCase());
+			}
+		}, latencyNanos, TimeUnit.NANOSECONDS);
+		return reply;
+	}
+
+	/**
+	 * The number of calls received.
+	 * @return The count of calls.
+	 */
+	synchronized int getCallCount() {
+		return calls;
+	}
+
+	/**
+	 * The reply of a call.  Cancelling it cancels its scheduled completion.
+	 */
+	private static final class Reply extends CompletableFuture<String> {
+		private volatile Future<?> event;
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			Future<?> scheduled = event;
+			if (cancelled && scheduled != null) {
+				scheduled.cancel(false);
+			}
+			return cancelled;
+		}
+	}
+}
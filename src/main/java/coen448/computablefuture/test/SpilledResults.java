@@ -0,0 +1,275 @@
+package coen448.computablefuture.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The results of a batch, spilled outside the heap as the calls complete (see {@link ResultSpill}). <br>
+ * Each reply is encoded in UTF-8 and appended to the spill as soon as its call completes, so that the heap only
+ * holds a position and a length per microservice.  The output is the same as that of the corresponding
+ * {@code processAsync...} method: the results in the order of the microservices, separated by {@code ", "}.
+ * Rather than being built as one string, it is streamed to a channel or an output stream with
+ * {@link #writeTo(WritableByteChannel)}, as many times as needed.  The spilled results must be closed once
+ * written: the temporary file of a memory-mapped spill is then deleted, while the memory itself is released once
+ * its buffers are garbage collected (the JDK has no public way to release it sooner).
+ */
+public final class SpilledResults implements AutoCloseable {
+	private static final byte[] SEPARATOR = ResultAggregator.SEPARATOR.getBytes(StandardCharsets.UTF_8);
+	private static final int ABSENT = -1;
+	private static final int FALLBACK = -2;
+	private static final int NULL = -3;
+	// A null reply as written in the output, as in the joined string.
+	private static final byte[] NULL_BYTES = "null".getBytes(StandardCharsets.UTF_8);
+	private static final int STAGING_SIZE = 64 * 1024;
+
+	private final int chunkSize;
+	private final FileChannel file;
+	private final String fallbackValue;
+	// The fallback value as written in the output ("null" for a null fallback value, as in the joined string).
+	private final byte[] fallbackBytes;
+	// The position and length of each result in the spill, or ABSENT, FALLBACK or NULL for its length.
+	private final long[] offsets;
+	private final int[] lengths;
+	private final AtomicLong position = new AtomicLong();
+	// Guarded by this.
+	private final List<ByteBuffer> chunks = new ArrayList<>();
+	private boolean closed;
+
+	/**
+	 * @param size          The number of microservices in the batch.
+	 * @param chunkSize     The size of each chunk, in bytes.
+	 * @param file          The temporary file to be mapped, or null for direct buffers.
+	 * @param fallbackValue The value replacing failed microservices (Fail-Soft only), or null.
+	 */
+	SpilledResults(int size, int chunkSize, FileChannel file, String fallbackValue) {
+		this.chunkSize = chunkSize;
+		this.file = file;
+		this.fallbackValue = fallbackValue;
+		this.fallbackBytes = String.valueOf(fallbackValue).getBytes(StandardCharsets.UTF_8);
+		this.offsets = new long[size];
+		this.lengths = new int[size];
+		Arrays.fill(lengths, ABSENT);
+	}
+
+	/**
+	 * Spill the reply of a call.  Concurrent calls write into distinct regions of the spill.
+	 * @param index The index of the call in the batch.
+	 * @param value The reply of the call, which may be null.
+	 */
+	void write(int index, String value) {
+		// Not spilled, like the fallback value.
+		if (value == null) {
+			lengths[index] = NULL;
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		long offset = position.getAndAdd(bytes.length);
+		int written = 0;
+		while (written < bytes.length) {
+			long at = offset + written;
+			ByteBuffer chunk = chunk((int) (at / chunkSize));
+			// Closed by a failed batch: the reply is no longer needed.
+			if (chunk == null) {
+				return;
+			}
+			int within = (int) (at % chunkSize);
+			int length = Math.min(bytes.length - written, chunkSize - within);
+			chunk.put(within, bytes, written, length);
+			written += length;
+		}
+		offsets[index] = offset;
+		lengths[index] = bytes.length;
+	}
+
+	/**
+	 * Replace a failed call with the fallback value, which is only spilled once.
+	 * @param index The index of the call in the batch.
+	 */
+	void writeFallback(int index) {
+		lengths[index] = FALLBACK;
+	}
+
+	private synchronized ByteBuffer chunk(int index) {
+		if (closed) {
+			return null;
+		}
+		while (chunks.size() <= index) {
+			if (file == null) {
+				chunks.add(ByteBuffer.allocateDirect(chunkSize));
+			} else {
+				try {
+					chunks.add(file.map(FileChannel.MapMode.READ_WRITE, (long) chunks.size() * chunkSize, chunkSize));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+		return chunks.get(index);
+	}
+
+	public int size() {
+		return lengths.length;
+	}
+
+	/**
+	 * The number of bytes of replies spilled, excluding the separators and fallback values.
+	 * @return The size of the spilled replies, in bytes.
+	 */
+	public long getSpilledBytes() {
+		return position.get();
+	}
+
+	/**
+	 * The value of a call, decoded from the spill.
+	 * @param index The index of the call in the batch.
+	 * @return The reply of a success, the fallback value of a replaced failure, or null for a failure (or a null reply).
+	 */
+	public String getValue(int index) {
+		int length = lengths[index];
+		if (length == ABSENT || length == NULL) {
+			return null;
+		}
+		if (length == FALLBACK) {
+			return fallbackValue;
+		}
+		ByteBuffer bytes = ByteBuffer.allocate(length);
+		read(offsets[index], length, segment -> bytes.put(segment));
+		return new String(bytes.array(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Stream the output of the batch to a channel, through a single 64 KiB staging buffer.  The channel is not
+	 * closed.
+	 * @param channel The channel to be written.
+	 * @return The number of bytes written.
+	 * @throws IOException If the channel cannot be written.
+	 */
+	public long writeTo(WritableByteChannel channel) throws IOException {
+		Output output = new Output(channel);
+		boolean first = true;
+		for (int i = 0; i < lengths.length; i++) {
+			int length = lengths[i];
+			if (length == ABSENT) {
+				continue;
+			}
+			if (!first) {
+				output.write(ByteBuffer.wrap(SEPARATOR));
+			}
+			first = false;
+			if (length == FALLBACK) {
+				output.write(ByteBuffer.wrap(fallbackBytes));
+			} else if (length == NULL) {
+				output.write(ByteBuffer.wrap(NULL_BYTES));
+			} else {
+				read(offsets[i], length, output::write);
+			}
+		}
+		output.flush();
+		return output.written;
+	}
+
+	/**
+	 * Stream the output of the batch to an output stream.  The stream is neither flushed nor closed.
+	 * @param out The stream to be written.
+	 * @return The number of bytes written.
+	 * @throws IOException If the stream cannot be written.
+	 */
+	public long writeTo(OutputStream out) throws IOException {
+		return writeTo(Channels.newChannel(out));
+	}
+
+	private <E extends Exception> void read(long offset, int length, SegmentConsumer<E> consumer) throws E {
+		int read = 0;
+		while (read < length) {
+			long at = offset + read;
+			ByteBuffer chunk = chunk((int) (at / chunkSize));
+			if (chunk == null) {
+				throw new IllegalStateException("Spilled results are closed!");
+			}
+			int within = (int) (at % chunkSize);
+			int segment = Math.min(length - read, chunkSize - within);
+			// A slice of its own, so that concurrent readers do not share a position.
+			consumer.accept(chunk.slice(within, segment));
+			read += segment;
+		}
+	}
+
+	/**
+	 * Release the spill.  The results can no longer be read.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			chunks.clear();
+		}
+		if (file != null) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface SegmentConsumer<E extends Exception> {
+		void accept(ByteBuffer segment) throws E;
+	}
+
+	/**
+	 * Writes to a channel through a staging buffer, so that short results are not written one by one.
+	 */
+	private static final class Output {
+		private final WritableByteChannel channel;
+		private final ByteBuffer staging = ByteBuffer.allocate(STAGING_SIZE);
+		private long written;
+
+		Output(WritableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		void write(ByteBuffer source) throws IOException {
+			written += source.remaining();
+			// A segment as large as the staging buffer is written as it is.
+			if (source.remaining() >= STAGING_SIZE) {
+				flush();
+				drain(source);
+				return;
+			}
+			while (source.hasRemaining()) {
+				if (!staging.hasRemaining()) {
+					flush();
+				}
+				int length = Math.min(source.remaining(), staging.remaining());
+				staging.put(source.slice(source.position(), length));
+				source.position(source.position() + length);
+			}
+		}
+
+		void flush() throws IOException {
+			staging.flip();
+			drain(staging);
+			staging.clear();
+		}
+
+		private void drain(ByteBuffer source) throws IOException {
+			while (source.hasRemaining()) {
+				channel.write(source);
+			}
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package coen448.computablefuture.test;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default {@link Scheduler}: the system clock, and a single daemon timer thread shared by every processor.
+ */
+final class SystemScheduler implements Scheduler {
+	static final SystemScheduler INSTANCE = new SystemScheduler();
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	private SystemScheduler() {
+		timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "async-processor-timer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// Most timers (e.g., deadlines) are cancelled before they fire, so do not let them pile up in the queue.
+		timer.setRemoveOnCancelPolicy(true);
+	}
+
+	@Override
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+
+	@Override
+	public Future<?> schedule(Runnable task, long delay, TimeUnit unit) {
+		return timer.schedule(task, delay, unit);
+	}
+}
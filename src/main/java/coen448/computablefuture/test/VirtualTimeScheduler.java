@@ -0,0 +1,128 @@
+package coen448.computablefuture.test;
+
+import java.time.Duration;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock, timer and executor on virtual time, for deterministic simulations. <br>
+ * Nothing runs on its own: scheduled tasks (and executed ones, which are due right away) are queued as events,
+ * and {@link #runUntilIdle()} runs them one after the other on the calling thread, in order of their due time,
+ * then of their scheduling.  The clock jumps to the due time of each event, so that a scenario spanning minutes of
+ * latencies runs in microseconds, and runs the same way every time.  Set it as both the executor and the scheduler
+ * of the {@link ProcessingOptions}, with microservices completing on it (see {@link SimulatedMicroservice}).
+ */
+public final class VirtualTimeScheduler implements Scheduler, Executor {
+	// Guarded by this.
+	private final PriorityQueue<Event> events = new PriorityQueue<>();
+	private long now;
+	private long sequence;
+	private long executed;
+
+	@Override
+	public synchronized long nanoTime() {
+		return now;
+	}
+
+	@Override
+	public synchronized Future<?> schedule(Runnable task, long delay, TimeUnit unit) {
+		Event event = new Event(task, now + Math.max(0, unit.toNanos(delay)), sequence++);
+		events.add(event);
+		return event;
+	}
+
+	/**
+	 * Queue a task due right away, after the events already due.
+	 * @param task The task to be run.
+	 */
+	@Override
+	public void execute(Runnable task) {
+		schedule(task, 0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Run every event, including those scheduled by the events themselves, until none is left.
+	 * @return The number of events run.
+	 */
+	public long runUntilIdle() {
+		return runUntil(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Run the events due within the given duration, and move the clock forward by that duration.
+	 * @param duration The time to move forward.
+	 * @return The number of events run.
+	 */
+	public long advance(Duration duration) {
+		long deadline;
+		synchronized (this) {
+			deadline = now + duration.toNanos();
+		}
+		long count = runUntil(deadline);
+		synchronized (this) {
+			now = Math.max(now, deadline);
+		}
+		return count;
+	}
+
+	private long runUntil(long deadline) {
+		long count = 0;
+		while (true) {
+			Event next;
+			synchronized (this) {
+				next = events.peek();
+				if (next == null || next.dueNanos > deadline) {
+					return count;
+				}
+				events.poll();
+				// A cancelled timer does not move the clock.
+				if (next.isCancelled()) {
+					continue;
+				}
+				now = Math.max(now, next.dueNanos);
+				executed++;
+			}
+			next.run();
+			count++;
+		}
+	}
+
+	/**
+	 * The number of events run since the scheduler was created.
+	 * @return The count of events run.
+	 */
+	public synchronized long getExecutedCount() {
+		return executed;
+	}
+
+	/**
+	 * The number of events waiting, including cancelled timers not yet reached.
+	 * @return The count of waiting events.
+	 */
+	public synchronized int getPendingCount() {
+		return events.size();
+	}
+
+	/**
+	 * A task due at a point of virtual time.
+	 */
+	private static final class Event extends FutureTask<Void> implements Comparable<Event> {
+		private final long dueNanos;
+		private final long sequence;
+
+		Event(Runnable task, long dueNanos, long sequence) {
+			super(task, null);
+			this.dueNanos = dueNanos;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Event other) {
+			int byTime = Long.compare(dueNanos, other.dueNanos);
+			return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+		}
+	}
+}
@@ -7,13 +7,32 @@ import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class AsyncProcessorTest {
 	// Setting up an object of AsyncProcessor to be called in all test cases.
@@ -243,7 +262,63 @@ public class AsyncProcessorTest {
     	assertTrue(ex.getCause() instanceof IllegalArgumentException);
     	System.out.println("[Fail-Fast] Size Mismatch Between Services and Messages - Test Successful: " + ex.getCause().getMessage() + "\n");
 	}
-	
+
+	@Test
+	@DisplayName("[Fail-Fast] In-Flight Microservices are Cancelled and Interrupted")
+	public void testProcessAsyncFailFastCancelsInFlightServices() throws InterruptedException {
+		// Dedicated threads, so the blocking services cannot starve the common pool.
+		ExecutorService executor = Executors.newCachedThreadPool();
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch interrupted = new CountDownLatch(2);
+
+		// Create a list of microservices to be processed.  Two block until interrupted, one fails once they are running.
+		Microservice blocking = new Microservice("svc") {
+			@Override
+			public CompletableFuture<String> retrieveAsync(String input) {
+				return InterruptibleFuture.submit(() -> {
+					started.countDown();
+					try {
+						Thread.sleep(10_000);
+					} catch (InterruptedException e) {
+						interrupted.countDown();
+						Thread.currentThread().interrupt();
+					}
+					return input;
+				}, executor);
+			}
+		};
+		List<Microservice> services = List.of(
+			blocking,
+			new Microservice("svc") {
+				@Override
+				public CompletableFuture<String> retrieveAsync(String input) {
+					return InterruptibleFuture.submit(() -> {
+						try {
+							started.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						throw new RuntimeException("Microservice B Failure");
+					}, executor);
+				}
+			},
+			blocking
+		);
+
+		try {
+			// Call the processAsyncFailFast method to process the microservices.
+			CompletableFuture<String> future = processor.processAsyncFailFast(services, List.of("msg-a", "msg-b", "msg-c"));
+
+			// Assertions: the failure propagates, and the blocked siblings are interrupted well before their 10s sleep ends.
+			ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+			assertEquals("Microservice B Failure", ex.getCause().getMessage());
+			assertTrue(interrupted.await(5, TimeUnit.SECONDS), "Fail-Fast should interrupt in-flight sibling calls.");
+			System.out.println("[Fail-Fast] In-Flight Microservices are Cancelled and Interrupted - Test Successful: " + ex.getCause().getMessage() + "\n");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	// Fail-Partial Policy Tests
 	@Test
     @DisplayName("[Fail-Partial] All Microservices are Successful")
@@ -597,6 +672,24 @@ public class AsyncProcessorTest {
     	});
     }
     
+    @Test
+    @DisplayName("[Fail-Soft] Null Fallback Value Keeps Its Place")
+    public void testProcessAsyncFailSoftNullFallback() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: the middle microservice fails, and is replaced by a null fallback value.
+    	List<Microservice> services = List.of(
+    			new ControlledDelayMicroservice("svc-a", 0, false, null),
+    			new ControlledDelayMicroservice("svc-b", 0, true, null),
+    			new ControlledDelayMicroservice("svc-c", 0, false, null));
+    	List<String> messages = List.of("a", "b", "c");
+
+    	// Act
+    	String result = processor.processAsyncFailSoft(services, messages, null).get(5, TimeUnit.SECONDS);
+
+    	// Assert: Fail-Soft keeps one result per microservice, even a null one.
+    	assertEquals("A, null, C", result);
+    	System.out.println("[Fail-Soft] Null Fallback Value Keeps Its Place - Test Successful: " + result + "\n");
+    }
+
     @Test
 	@DisplayName("[Fail-Soft] Size Mismatch Between Services and Messages")
 	public void testProcessAsyncFailSoftSizeMismatch() throws ExecutionException, InterruptedException, TimeoutException {
@@ -686,126 +779,2446 @@ public class AsyncProcessorTest {
     	assertEquals(10, tokens.stream().filter(token -> token.startsWith("MSG-")).count(), "Fail-Soft must keep successful responses.");
     	System.out.println("\n[Liveness][Fail-Soft] Completed within timeout. Result: " + result + "\n");
     }
-    
-    // Nondeterminism Tests 
+
     @Test
-    @DisplayName("[Nondeterminism] Completion order is observed and logged (not asserted)")
-    public void testNondeterminismCompletionOrderObserved() throws ExecutionException, InterruptedException, TimeoutException {
-    	// Arrange
-    	int serviceCount = 12;
-    	List<String> completionOrder = new CopyOnWriteArrayList<>();
-    	List<Microservice> services = createDelayedServices(serviceCount, Set.of(), completionOrder);
+    @DisplayName("[Liveness][Virtual Threads] Completes with 10,000 concurrent blocking microservices")
+    public void testLivenessVirtualThreadsWithTenThousandServices() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: every call blocks for up to 30ms, far more calls than there are platform threads.
+    	int serviceCount = 10_000;
+    	AsyncProcessor virtualProcessor = new AsyncProcessor(MicroserviceExecutors.virtualThreads());
+    	List<Microservice> services = IntStream.range(0, serviceCount)
+    			.mapToObj(i -> new Microservice("svc"))
+    			.collect(Collectors.toList());
     	List<String> messages = createMessages(serviceCount);
-    	String fallbackValue = "FALLBACK";
-    	
+
     	// Act
-    	CompletableFuture<String> future = processor.processAsyncFailSoft(services, messages, fallbackValue);
-    	String result = future.get(4, TimeUnit.SECONDS);
-    	
+    	CompletableFuture<String> future = virtualProcessor.processAsyncFailPartial(services, messages);
+    	String result = future.get(10, TimeUnit.SECONDS);
+
     	// Assert
-    	assertEquals(serviceCount, completionOrder.size(), "All microservices should be observed as completed.");
-    	assertEquals(serviceCount, splitResults(result).size(), "Fail-Soft still preserves cardinality.");
-    	System.out.println("\n[Nondeterminism] Input order     : " + messages);
-    	System.out.println("[Nondeterminism] Completion order: " + completionOrder);
-    	System.out.println("[Nondeterminism] Aggregated result: " + result + "\n");
+    	assertEquals(serviceCount, splitResults(result).size(), "Every blocking call should complete on its own virtual thread.");
+    	System.out.println("\n[Liveness][Virtual Threads] Completed within timeout. Result count: " + serviceCount + "\n");
     }
-    
-    // Helper Methods
-    /**
-     * Creates synthetic asynchronous microservices with staggered delays and optional failures.
-     * 
-     * @param count total number of microservices to create.
-     * @param failingIndices service indices that should fail.
-     * @param completionOrder optional thread-safe sink used to record completion order.
-     * @return list of configured microservice instances.
-     */
-    private List<Microservice> createDelayedServices(int count, Set<Integer> failingIndices, List<String> completionOrder) {
-    	return IntStream.range(0, count)
+
+    @Test
+    @DisplayName("[Liveness][Fail-Soft] Sustains a constant arrival rate of 50 batches per second")
+    public void testLivenessFailSoftSustainsTargetRate() throws InterruptedException {
+    	// Arrange: an open model, so that a processor falling behind shows up as a lower throughput and corrected latency.
+    	LoadGenerator generator = LoadGenerator.at(50, Duration.ofSeconds(1))
+    			.withPolicy(FailurePolicy.FAIL_SOFT)
+    			.withBatchSize(12)
+    			.withFailureRatio(0.2)
+    			.withLatency(LatencyModel.uniform(Duration.ZERO, Duration.ofMillis(30)))
+    			.withSampleInterval(Duration.ofMillis(250));
+
+    	// Act
+    	LoadReport report = generator.run();
+
+    	// Assert
+    	assertEquals(50, report.getSentCount(), "Every batch due within the duration should be sent.");
+    	assertEquals(report.getSentCount(), report.getCompletedCount(), "Every batch should complete.");
+    	assertEquals(0, report.getFailedCount(), "Fail-Soft batches never fail.");
+    	assertTrue(report.getThroughput() > 50 * 0.8, "The achieved throughput should keep up with the target rate: " + report.getThroughput());
+    	assertTrue(report.getLatency(99) >= report.getServiceTime(99), "The corrected latency includes the time spent sending late.");
+    	assertTrue(report.getLatency(99) < TimeUnit.SECONDS.toNanos(1), "No batch should wait for long at this rate.");
+    	assertFalse(report.getSamples().isEmpty(), "The threads and heap should be sampled over time.");
+    	assertTrue(report.getSamples().stream().allMatch(sample -> sample.threads() > 0 && sample.heapUsedBytes() > 0));
+    	System.out.println("[Liveness][Fail-Soft] Sustains a constant arrival rate of 50 batches per second - Test Successful\n" + report);
+    }
+
+    @Test
+    @DisplayName("[Executor] Processor executor overrides each microservice's executor")
+    public void testProcessorExecutorIsUsedForEveryCall() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a bounded pool whose threads are named "microservice-N".
+    	ExecutorService pool = MicroserviceExecutors.newBoundedPlatformPool(2);
+    	List<String> threadNames = new CopyOnWriteArrayList<>();
+    	Executor recordingExecutor = task -> pool.execute(() -> {
+    		threadNames.add(Thread.currentThread().getName());
+    		task.run();
+    	});
+    	AsyncProcessor pooledProcessor = new AsyncProcessor(recordingExecutor);
+    	List<Microservice> services = List.of(new Microservice("svc"), new Microservice("svc"), new Microservice("svc"));
+
+    	try {
+    		// Act
+    		String result = pooledProcessor.processAsyncFailFast(services, List.of("msg-a", "msg-b", "msg-c")).get(5, TimeUnit.SECONDS);
+
+    		// Assert
+    		assertEquals("svc:MSG-A, svc:MSG-B, svc:MSG-C", result);
+    		assertEquals(3, threadNames.size(), "Every call should be submitted to the processor's executor.");
+    		assertTrue(threadNames.stream().allMatch(name -> name.startsWith("microservice-")));
+    		System.out.println("[Executor] Processor executor overrides each microservice's executor - Test Successful: " + threadNames + "\n");
+    	} finally {
+    		pool.shutdownNow();
+    	}
+    }
+
+    // Deadline Tests
+    @Test
+    @DisplayName("[Deadline][Fail-Fast] Late microservice fails the computation")
+    public void testDeadlineFailFastPerCallTimeout() {
+    	// Arrange: one microservice is far slower than the per-call deadline.
+    	List<Microservice> services = List.of(
+    			new ControlledDelayMicroservice("svc-0", 10, false, null),
+    			new ControlledDelayMicroservice("svc-1", 10_000, false, null),
+    			new ControlledDelayMicroservice("svc-2", 10, false, null));
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withPerCallTimeout(Duration.ofMillis(200));
+
+    	// Act
+    	long start = System.nanoTime();
+    	CompletableFuture<String> future = processor.processAsyncFailFast(services, createMessages(3), options);
+    	ExecutionException thrown = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+    	long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    	// Assert
+    	assertTrue(thrown.getCause() instanceof TimeoutException, "A late microservice is a failure under Fail-Fast.");
+    	assertTrue(elapsedMs < 2_000, "Fail-Fast should be bounded by the deadline, not the slowest service.");
+    	System.out.println("[Deadline][Fail-Fast] Late microservice fails the computation - Test Successful: " + thrown.getCause().getMessage() + "\n");
+    }
+
+    @Test
+    @DisplayName("[Deadline][Fail-Partial] Late microservices are dropped at the batch deadline")
+    public void testDeadlineFailPartialBatchTimeout() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a processor whose default options carry the batch deadline.
+    	AsyncProcessor deadlineProcessor = new AsyncProcessor(
+    			ProcessingOptions.defaults()
+    					.withExecutor(MicroserviceExecutors.virtualThreads())
+    					.withBatchTimeout(Duration.ofMillis(300)));
+    	List<Microservice> services = List.of(
+    			new ControlledDelayMicroservice("svc-0", 10, false, null),
+    			new ControlledDelayMicroservice("svc-1", 10_000, false, null),
+    			new ControlledDelayMicroservice("svc-2", 10_000, false, null),
+    			new ControlledDelayMicroservice("svc-3", 10, false, null));
+
+    	// Act
+    	long start = System.nanoTime();
+    	String result = deadlineProcessor.processAsyncFailPartial(services, createMessages(4)).get(5, TimeUnit.SECONDS);
+    	long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    	// Assert
+    	assertEquals("MSG-0, MSG-3", result, "Late microservices are dropped under Fail-Partial.");
+    	assertTrue(elapsedMs < 2_000, "Fail-Partial should be bounded by the batch deadline, not the slowest service.");
+    	System.out.println("[Deadline][Fail-Partial] Late microservices are dropped at the batch deadline - Test Successful: " + result + "\n");
+    }
+
+    @Test
+    @DisplayName("[Deadline][Fail-Soft] Late microservice is replaced by the fallback value")
+    public void testDeadlineFailSoftPerCallTimeout() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange
+    	List<Microservice> services = List.of(
+    			new ControlledDelayMicroservice("svc-0", 10, false, null),
+    			new ControlledDelayMicroservice("svc-1", 10_000, false, null),
+    			new ControlledDelayMicroservice("svc-2", 10, false, null));
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withPerCallTimeout(Duration.ofMillis(200))
+    			.withBatchTimeout(Duration.ofSeconds(1));
+
+    	// Act
+    	String result = processor.processAsyncFailSoft(services, createMessages(3), "FALLBACK", options).get(5, TimeUnit.SECONDS);
+
+    	// Assert
+    	assertEquals("MSG-0, FALLBACK, MSG-2", result, "A late microservice is replaced by the fallback value under Fail-Soft.");
+    	System.out.println("[Deadline][Fail-Soft] Late microservice is replaced by the fallback value - Test Successful: " + result + "\n");
+    }
+
+    // Streaming Tests
+    @Test
+    @DisplayName("[Streaming][Fail-Partial] First reply is emitted before the slowest microservice completes")
+    public void testStreamingFailPartialEmitsInCompletionOrder() throws InterruptedException {
+    	// Arrange: a fast, a failing and a slow microservice.
+    	ProcessingOptions options = ProcessingOptions.defaults().withExecutor(MicroserviceExecutors.virtualThreads());
+    	List<Microservice> services = List.of(
+    			new ControlledDelayMicroservice("svc-0", 1_000, false, null),
+    			new ControlledDelayMicroservice("svc-1", 10, true, null),
+    			new ControlledDelayMicroservice("svc-2", 10, false, null));
+    	CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+
+    	// Act
+    	long start = System.nanoTime();
+    	processor.streamAsyncFailPartial(services, createMessages(3), options).subscribe(subscriber);
+    	String first = subscriber.items.poll(5, TimeUnit.SECONDS);
+    	long firstMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    	// Assert
+    	assertEquals("MSG-2", first, "The fastest successful reply should be emitted first.");
+    	assertTrue(firstMs < 800, "The first reply should not wait for the slowest microservice.");
+    	assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+    	assertNull(subscriber.error, "Fail-Partial streams complete normally.");
+    	assertEquals(List.of("MSG-0"), List.copyOf(subscriber.items), "The failed microservice should emit nothing.");
+    	System.out.println("[Streaming][Fail-Partial] First reply emitted after " + firstMs + " ms - Test Successful: " + first + "\n");
+    }
+
+    @Test
+    @DisplayName("[Streaming][Fail-Fast] Failure terminates the stream with an error")
+    public void testStreamingFailFastSignalsError() throws InterruptedException {
+    	// Arrange
+    	List<Microservice> services = List.of(
+    			new Microservice("svc"),
+    			new Microservice("svc") {
+    				@Override
+    				public CompletableFuture<String> retrieveAsync(String input) {
+    					return retrieveAsyncFail("Microservice B Failure");
+    				}
+    			});
+    	CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+
+    	// Act
+    	processor.streamAsyncFailFast(services, List.of("msg-a", "msg-b")).subscribe(subscriber);
+
+    	// Assert
+    	assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+    	assertNotNull(subscriber.error, "Fail-Fast streams must signal the failure.");
+    	assertEquals("Microservice B Failure", subscriber.error.getMessage());
+    	System.out.println("[Streaming][Fail-Fast] Failure terminates the stream with an error - Test Successful: " + subscriber.error.getMessage() + "\n");
+    }
+
+    @Test
+    @DisplayName("[Streaming][Fail-Soft] Replies are only emitted as they are requested")
+    public void testStreamingFailSoftRespectsBackpressure() throws InterruptedException {
+    	// Arrange: the subscriber initially requests a single reply.
+    	List<Microservice> services = createDelayedServices(4, Set.of(1), null);
+    	CollectingSubscriber subscriber = new CollectingSubscriber(1);
+
+    	// Act
+    	processor.streamAsyncFailSoft(services, createMessages(4), "FALLBACK").subscribe(subscriber);
+    	assertNotNull(subscriber.items.poll(5, TimeUnit.SECONDS));
+    	// Leave ample time for every microservice to complete.
+    	Thread.sleep(300);
+
+    	// Assert: nothing beyond the requested reply, until more is requested.
+    	assertTrue(subscriber.items.isEmpty(), "No reply should be emitted without demand.");
+    	assertEquals(1, subscriber.done.getCount(), "The stream cannot complete while replies are still queued.");
+    	subscriber.subscription.request(3);
+    	assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+    	assertNull(subscriber.error, "Fail-Soft streams never fail.");
+    	assertEquals(3, subscriber.items.size());
+    	assertTrue(subscriber.items.contains("FALLBACK"), "The failed microservice should emit the fallback value.");
+    	System.out.println("[Streaming][Fail-Soft] Replies are only emitted as they are requested - Test Successful: " + subscriber.items + "\n");
+    }
+
+    // Metrics Tests
+    @Test
+    @DisplayName("[Metrics][Fail-Soft] Listener receives counts and latencies per policy")
+    public void testMetricsListenerRecordsFailSoftBatch() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: 12 microservices, 2 of which fail.
+    	MetricsListener metrics = new MetricsListener();
+    	ProcessingOptions options = ProcessingOptions.defaults().withListener(metrics);
+    	List<Microservice> services = createDelayedServices(12, Set.of(2, 7), null);
+
+    	// Act
+    	String result = processor.processAsyncFailSoft(services, createMessages(12), "FALLBACK", options).get(4, TimeUnit.SECONDS);
+
+    	// Assert
+    	assertEquals(12, splitResults(result).size());
+    	assertEquals(1, metrics.getBatchCount(FailurePolicy.FAIL_SOFT));
+    	assertEquals(10, metrics.getSuccessCount(FailurePolicy.FAIL_SOFT));
+    	assertEquals(2, metrics.getFailureCount(FailurePolicy.FAIL_SOFT));
+    	assertEquals(2, metrics.getFallbackCount(FailurePolicy.FAIL_SOFT));
+    	assertEquals(0, metrics.getBatchCount(FailurePolicy.FAIL_FAST), "Metrics are kept per policy.");
+    	// The delayed services sleep between 50 and 160 ms.
+    	long p50Ms = TimeUnit.NANOSECONDS.toMillis(metrics.getServiceLatencyP50(FailurePolicy.FAIL_SOFT));
+    	long p99Ms = TimeUnit.NANOSECONDS.toMillis(metrics.getServiceLatencyP99(FailurePolicy.FAIL_SOFT));
+    	assertTrue(p50Ms >= 45 && p50Ms <= p99Ms, "p50 should be a plausible service latency.");
+    	assertEquals(1, metrics.getBatchLatency(FailurePolicy.FAIL_SOFT).getCount());
+    	System.out.println("[Metrics][Fail-Soft] Listener receives counts and latencies per policy - Test Successful: p50=" + p50Ms + "ms, p99=" + p99Ms + "ms\n");
+    }
+
+    @Test
+    @DisplayName("[Metrics] Latency histogram percentiles are within the bucket precision")
+    public void testLatencyHistogramPercentiles() {
+    	// Arrange: latencies of 1 to 1000 ms, uniformly.
+    	LatencyHistogram histogram = new LatencyHistogram();
+    	for (long ms = 1; ms <= 1_000; ms++) {
+    		histogram.record(TimeUnit.MILLISECONDS.toNanos(ms));
+    	}
+
+    	// Act
+    	double p50Ms = histogram.getPercentile(50) / 1_000_000.0;
+    	double p99Ms = histogram.getPercentile(99) / 1_000_000.0;
+
+    	// Assert: log-linear buckets are accurate to about 6%.
+    	assertEquals(1_000, histogram.getCount());
+    	assertEquals(500, p50Ms, 500 * 0.07);
+    	assertEquals(990, p99Ms, 990 * 0.07);
+    	assertEquals(TimeUnit.MILLISECONDS.toNanos(1_000), histogram.getPercentile(100));
+    	System.out.println("[Metrics] Latency histogram percentiles - Test Successful: p50=" + p50Ms + "ms, p99=" + p99Ms + "ms\n");
+    }
+
+    @Test
+    @DisplayName("[Metrics][Fail-Soft] Service metrics keep counts and percentiles per service id and per policy")
+    public void testServiceMetricsPerServiceAndPolicy() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: svc-0 fails under Fail-Soft, while the same services all succeed under Fail-Partial.
+    	ServiceMetrics metrics = new ServiceMetrics();
+    	ProcessingOptions options = ProcessingOptions.defaults().withListener(metrics);
+
+    	// Act
+    	processor.processAsyncFailSoft(createDelayedServices(3, Set.of(0), null), createMessages(3), "FALLBACK", options)
+    			.get(4, TimeUnit.SECONDS);
+    	processor.processAsyncFailPartial(createDelayedServices(3, Set.of(), null), createMessages(3), options)
+    			.get(4, TimeUnit.SECONDS);
+    	ServiceSnapshot failing = metrics.snapshot("svc-0", FailurePolicy.FAIL_SOFT);
+    	ServiceSnapshot healthy = metrics.snapshot("svc-0", FailurePolicy.FAIL_PARTIAL);
+
+    	// Assert: svc-0 sleeps for 70 ms.
+    	assertEquals(0, failing.getSuccessCount());
+    	assertEquals(1, failing.getFailureCount());
+    	assertEquals(1, failing.getFallbackCount());
+    	assertEquals(1, healthy.getSuccessCount());
+    	assertEquals(0, healthy.getFailureCount());
+    	long p50Ms = TimeUnit.NANOSECONDS.toMillis(healthy.getP50());
+    	assertTrue(p50Ms >= 65, "p50 should be a plausible service latency, but is " + p50Ms + " ms.");
+    	assertTrue(healthy.getP50() <= healthy.getP90() && healthy.getP90() <= healthy.getP99()
+    			&& healthy.getP99() <= healthy.getP999() && healthy.getP999() <= healthy.getMax());
+    	assertEquals(6, metrics.snapshot().size());
+    	assertEquals(0, metrics.snapshot("svc-0", FailurePolicy.FAIL_FAST).getSuccessCount());
+    	System.out.println("[Metrics][Fail-Soft] " + healthy + " - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Metrics] Snapshot and reset never lose nor double-count a call recorded concurrently")
+    public void testServiceMetricsSnapshotAndResetWhileRecording() throws InterruptedException {
+    	// Arrange: 4 threads recording 50,000 calls each, while the intervals are reset.
+    	ServiceMetrics metrics = new ServiceMetrics();
+    	int threads = 4;
+    	int callsPerThread = 50_000;
+    	CountDownLatch done = new CountDownLatch(threads);
+    	for (int t = 0; t < threads; t++) {
+    		Thread.ofPlatform().daemon().start(() -> {
+    			for (int i = 0; i < callsPerThread; i++) {
+    				metrics.onServiceSuccess(FailurePolicy.FAIL_PARTIAL, "svc", 1_000 + i);
+    			}
+    			done.countDown();
+    		});
+    	}
+
+    	// Act
+    	long counted = 0;
+    	int intervals = 0;
+    	while (done.getCount() > 0) {
+    		for (ServiceSnapshot snapshot : metrics.snapshotAndReset()) {
+    			counted += snapshot.getSuccessCount();
+    		}
+    		intervals++;
+    	}
+    	done.await();
+    	for (ServiceSnapshot snapshot : metrics.snapshotAndReset()) {
+    		counted += snapshot.getSuccessCount();
+    	}
+
+    	// Assert
+    	assertEquals((long) threads * callsPerThread, counted);
+    	assertEquals(0, metrics.snapshot("svc", FailurePolicy.FAIL_PARTIAL).getSuccessCount());
+    	System.out.println("[Metrics] " + counted + " calls over " + intervals + " intervals - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Metrics][Fail-Soft] A metrics listener and service metrics record the same batches together")
+    public void testCompositeListenerAndSnapshotReads() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange
+    	MetricsListener metrics = new MetricsListener();
+    	ServiceMetrics serviceMetrics = new ServiceMetrics();
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withListener(ProcessingListener.composite(metrics, ProcessingListener.NONE, serviceMetrics));
+
+    	// Act
+    	processor.processAsyncFailSoft(createDelayedServices(3, Set.of(1), null), createMessages(3), "FALLBACK", options)
+    			.get(4, TimeUnit.SECONDS);
+    	ServiceSnapshot unknown = serviceMetrics.snapshot("svc-unknown", FailurePolicy.FAIL_SOFT);
+
+    	// Assert: both listeners saw every event, and reading a snapshot created no recorder.
+    	assertEquals(2, metrics.getSuccessCount(FailurePolicy.FAIL_SOFT));
+    	assertEquals(1, metrics.getFallbackCount(FailurePolicy.FAIL_SOFT));
+    	assertEquals(1, serviceMetrics.snapshot("svc-1", FailurePolicy.FAIL_SOFT).getFallbackCount());
+    	assertEquals(0, unknown.getSuccessCount() + unknown.getFailureCount() + unknown.getMax());
+    	assertEquals(3, serviceMetrics.getServiceCount());
+    	assertSame(ProcessingListener.NONE, ProcessingListener.composite(ProcessingListener.NONE));
+    	assertSame(metrics, ProcessingListener.composite(metrics));
+    	assertThrows(IllegalArgumentException.class, () -> ProcessingListener.composite(metrics, null));
+    	System.out.println("[Metrics][Fail-Soft] A metrics listener and service metrics record the same batches together - Test Successful\n");
+    }
+
+    // Allocation Tests
+    @Test
+    @DisplayName("[Allocation][Fail-Soft] Aggregating 10,000 results stays within the allocation budget")
+    public void testAggregationAllocationBudget() {
+    	// Arrange: completed futures, so that the whole batch runs (and allocates) on this thread.
+    	com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    	assumeTrue(threads.isThreadAllocatedMemorySupported(), "Allocation tracking is not supported by this JVM.");
+    	int serviceCount = 10_000;
+    	RuntimeException failure = new RuntimeException("Synthetic failure");
+    	List<Microservice> services = IntStream.range(0, serviceCount)
     			.mapToObj(index -> {
-    				long delayMs = 40L + ((count - index) * 10L);
-    				boolean shouldFail = failingIndices.contains(index);
-    				String serviceId = "svc-" + index;
-    				return new ControlledDelayMicroservice(serviceId, delayMs, shouldFail, completionOrder);
+    				// The reply is built once here, so that the measurement only covers the processor.
+    				String reply = "svc:MSG-" + index;
+    				return (Microservice) new Microservice("svc") {
+    					@Override
+    					public CompletableFuture<String> retrieveAsync(String input) {
+    						return index % 10 == 0
+    								? CompletableFuture.failedFuture(failure)
+    								: CompletableFuture.completedFuture(reply);
+    					}
+    				};
     			})
     			.collect(Collectors.toList());
+    	List<String> messages = createMessages(serviceCount);
+    	for (int warmUp = 0; warmUp < 20; warmUp++) {
+    		processor.processAsyncFailSoft(services, messages, "FALLBACK").join();
+    	}
+
+    	// Act
+    	long before = threads.getCurrentThreadAllocatedBytes();
+    	String result = processor.processAsyncFailSoft(services, messages, "FALLBACK").join();
+    	long bytesPerService = (threads.getCurrentThreadAllocatedBytes() - before) / serviceCount;
+
+    	// Assert: about 60 bytes per service, half of which is the output itself (the stream/allOf
+    	// aggregation this replaced needed about 150).
+    	assertEquals(serviceCount, splitResults(result).size());
+    	assertTrue(bytesPerService < 100, "Aggregation allocated " + bytesPerService + " bytes per service.");
+    	System.out.println("[Allocation][Fail-Soft] Aggregation allocated " + bytesPerService + " bytes per service - Test Successful\n");
     }
-    
-    /**
-     * Creates a list of request messages in ascending order.
-     * 
-     * @param count total number of messages.
-     * @return ordered message list (e.g., msg-0, msg-1, ...).
-     */
-    private List<String> createMessages(int count) {
-    	return IntStream.range(0, count)
-    			.mapToObj(i -> "msg-" + i)
-    			.collect(Collectors.toList());
+
+    @Test
+    @DisplayName("[Allocation] Joined results skip absent values and keep the input order")
+    public void testResultAggregatorJoin() {
+    	// Assert: null slots (dropped failures) are skipped, empty results are kept.
+    	assertEquals("a, , c", ResultAggregator.join(new String[] {"a", null, "", "c"}));
+    	assertEquals("", ResultAggregator.join(new String[] {null, null}));
+    	assertEquals("", ResultAggregator.join(new String[0]));
+    	System.out.println("[Allocation] Joined results skip absent values and keep the input order - Test Successful\n");
     }
-    
-    /**
-     * Splits a comma-delimited aggregate result into tokens.
-     * 
-     * @param result aggregated processor output.
-     * @return trimmed list of result tokens.
-     */
-    private List<String> splitResults(String result) {
-    	if (result == null || result.isBlank()) {
-    		return List.of();
+
+    // Concurrency Limit Tests
+    @Test
+    @DisplayName("[Concurrency Limit][Fail-Partial] No more calls than the limit are in flight, and results keep the input order")
+    public void testMaxInFlightBoundsConcurrentCalls() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange
+    	int serviceCount = 40;
+    	int maxInFlight = 4;
+    	AtomicInteger inFlight = new AtomicInteger();
+    	AtomicInteger peak = new AtomicInteger();
+    	AtomicInteger started = new AtomicInteger();
+    	List<Microservice> services = createTrackedServices(serviceCount, 10, Set.of(), inFlight, peak, started);
+    	List<String> messages = createMessages(serviceCount);
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withMaxInFlight(maxInFlight);
+
+    	// Act
+    	String result = processor.processAsyncFailPartial(services, messages, options).get(10, TimeUnit.SECONDS);
+    	List<String> tokens = splitResults(result);
+
+    	// Assert
+    	assertEquals(serviceCount, tokens.size());
+    	for (int i = 0; i < serviceCount; i++) {
+    		assertEquals("svc-" + i + ":MSG-" + i, tokens.get(i), "Results must keep the order of the services.");
     	}
-    	return List.of(result.split(", "))
-    			.stream()
-    			.map(String::trim)
+    	assertEquals(serviceCount, started.get());
+    	assertTrue(peak.get() <= maxInFlight, "Peak of " + peak.get() + " calls in flight exceeds the limit.");
+    	System.out.println("[Concurrency Limit][Fail-Partial] Peak of " + peak.get() + " calls in flight - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Concurrency Limit][Fail-Soft] 100,000 synchronously completing calls under a limit of one")
+    public void testMaxInFlightWithSynchronousCalls() {
+    	// Arrange: completed futures, so that each call completes while the previous one is still being started.
+    	int serviceCount = 100_000;
+    	AsyncProcessor limitedProcessor = new AsyncProcessor(ProcessingOptions.defaults().withMaxInFlight(1));
+    	List<Microservice> services = IntStream.range(0, serviceCount)
+    			.mapToObj(index -> (Microservice) new Microservice("svc-" + index) {
+    				@Override
+    				public CompletableFuture<String> retrieveAsync(String input) {
+    					return index % 2 == 0
+    							? CompletableFuture.completedFuture(input)
+    							: CompletableFuture.failedFuture(new RuntimeException("Synthetic failure"));
+    				}
+    			})
     			.collect(Collectors.toList());
+
+    	// Act
+    	String result = limitedProcessor.processAsyncFailSoft(services, createMessages(serviceCount), "FALLBACK").join();
+    	List<String> tokens = splitResults(result);
+
+    	// Assert: no stack overflow, and every slot in order.
+    	assertEquals(serviceCount, tokens.size());
+    	assertEquals("msg-0", tokens.get(0));
+    	assertEquals("FALLBACK", tokens.get(1));
+    	assertEquals("msg-99998", tokens.get(serviceCount - 2));
+    	assertThrows(IllegalArgumentException.class, () -> ProcessingOptions.defaults().withMaxInFlight(-1));
+    	System.out.println("[Concurrency Limit][Fail-Soft] 100,000 synchronously completing calls under a limit of one - Test Successful\n");
     }
-    
-    /**
-     * Test helper microservice that supports controlled delay, deterministic failure,
-     * and optional completion-order tracing.
-     */
-    private static class ControlledDelayMicroservice extends Microservice {
-    	private static final AtomicInteger FAILURE_COUNTER = new AtomicInteger(0);
-    	
-    	private final String serviceId;
-    	private final long delayMs;
-    	private final boolean shouldFail;
-    	private final List<String> completionOrder;
-    	
-    	/**
-    	 * Creates a synthetic microservice with configurable behavior.
-    	 * 
-    	 * @param serviceId service identifier used for logs and completion tracking.
-    	 * @param delayMs artificial execution delay in milliseconds.
-    	 * @param shouldFail whether this microservice should fail.
-    	 * @param completionOrder optional thread-safe completion-order sink.
-    	 */
-    	ControlledDelayMicroservice(String serviceId, long delayMs, boolean shouldFail, List<String> completionOrder) {
-    		super(serviceId);
-    		this.serviceId = serviceId;
-    		this.delayMs = delayMs;
-    		this.shouldFail = shouldFail;
-    		this.completionOrder = completionOrder;
-    	}
-    	
-    	@Override
-    	public CompletableFuture<String> retrieveAsync(String input) {
-    		return CompletableFuture.supplyAsync(() -> {
-    			try {
-    				Thread.sleep(delayMs);
-    			} catch (InterruptedException e) {
-    				Thread.currentThread().interrupt();
-    				throw new RuntimeException("Interrupted: " + serviceId, e);
-    			}
-    			
-    			if (shouldFail) {
-    				int failureId = FAILURE_COUNTER.incrementAndGet();
-    				throw new RuntimeException("Synthetic failure #" + failureId + " from " + serviceId);
-    			}
-    			return input.toUpperCase();
-    		}).whenComplete((value, ex) -> {
-    			if (completionOrder != null) {
-    				completionOrder.add(serviceId);
-    			}
-    		});
+
+    @Test
+    @DisplayName("[Concurrency Limit][Fail-Fast] Waiting calls are never started after a failure")
+    public void testMaxInFlightFailFastSkipsWaitingCalls() {
+    	// Arrange: the first microservice fails, while the limit holds back most of the others.
+    	int serviceCount = 20;
+    	AtomicInteger started = new AtomicInteger();
+    	List<Microservice> services = createTrackedServices(
+    			serviceCount, 100, Set.of(0), new AtomicInteger(), new AtomicInteger(), started);
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withMaxInFlight(2);
+
+    	// Act
+    	CompletableFuture<String> future = processor.processAsyncFailFast(services, createMessages(serviceCount), options);
+    	ExecutionException thrown = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+
+    	// Assert: only the calls in flight at the time of the failure were started.
+    	assertEquals("Synthetic failure svc-0", thrown.getCause().getMessage());
+    	assertTrue(started.get() <= 3, started.get() + " calls were started after the batch had failed.");
+    	System.out.println("[Concurrency Limit][Fail-Fast] " + started.get() + " of " + serviceCount + " calls started - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Adaptive Limit][Fail-Partial] Concurrent batches sharing a limit never exceed it together")
+    public void testAdaptiveLimitSharedAcrossBatches() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: two batches of 10 microservices, tracked together, under a limit that cannot grow past 4.
+    	AtomicInteger inFlight = new AtomicInteger();
+    	AtomicInteger peak = new AtomicInteger();
+    	List<Microservice> first = createTrackedServices(10, 30, Set.of(), inFlight, peak, new AtomicInteger());
+    	List<Microservice> second = createTrackedServices(10, 30, Set.of(), inFlight, peak, new AtomicInteger());
+    	AdaptiveLimit limit = AdaptiveLimit.aimd(4, 1, 4, Duration.ofSeconds(1));
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withAdaptiveLimit(limit);
+
+    	// Act
+    	CompletableFuture<String> firstResult = processor.processAsyncFailPartial(first, createMessages(10), options);
+    	CompletableFuture<String> secondResult = processor.processAsyncFailPartial(second, createMessages(10), options);
+
+    	// Assert
+    	assertEquals(10, splitResults(firstResult.get(5, TimeUnit.SECONDS)).size());
+    	assertEquals("svc-9:MSG-9", splitResults(secondResult.get(5, TimeUnit.SECONDS)).get(9));
+    	assertTrue(peak.get() <= 4, "No more than 4 calls should be in flight, but " + peak.get() + " were.");
+    	assertEquals(0, limit.getInFlight());
+    	assertEquals(0, limit.getWaiting());
+    	System.out.println("[Adaptive Limit][Fail-Partial] Concurrent batches sharing a limit never exceed it together - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Adaptive Limit][Fail-Soft] The AIMD limit shrinks on failures and grows back on fast successes")
+    public void testAdaptiveLimitAimd() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange
+    	AdaptiveLimit limit = AdaptiveLimit.aimd(10, 1, 100, Duration.ofSeconds(1));
+    	ProcessingOptions options = ProcessingOptions.defaults().withAdaptiveLimit(limit);
+    	List<Microservice> failing = createTrackedServices(
+    			10, 10, IntStream.range(0, 10).boxed().collect(Collectors.toSet()), new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+    	List<Microservice> healthy = createTrackedServices(
+    			20, 1, Set.of(), new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+
+    	// Act & Assert: ten failures shrink the limit by 10% each.
+    	processor.processAsyncFailSoft(failing, createMessages(10), "FALLBACK", options).get(5, TimeUnit.SECONDS);
+    	int shrunk = limit.getLimit();
+    	assertEquals(3, shrunk);
+
+    	// Act & Assert: fast successes grow it back, by about one per round of calls.
+    	processor.processAsyncFailSoft(healthy, createMessages(20), "FALLBACK", options).get(5, TimeUnit.SECONDS);
+    	assertTrue(limit.getLimit() > shrunk, "The limit should grow back, but is " + limit.getLimit() + ".");
+    	System.out.println("[Adaptive Limit][Fail-Soft] The AIMD limit shrinks on failures and grows back on fast successes - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Adaptive Limit][Fail-Fast] The gradient limit shrinks once the latency rises above its idle latency")
+    public void testAdaptiveLimitGradient() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange
+    	AdaptiveLimit limit = AdaptiveLimit.gradient(20, 1, 100);
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withAdaptiveLimit(limit);
+    	List<Microservice> fast = createTrackedServices(10, 5, Set.of(), new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+    	List<Microservice> slow = createTrackedServices(10, 100, Set.of(), new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+
+    	// Act
+    	processor.processAsyncFailFast(fast, createMessages(10), options).get(5, TimeUnit.SECONDS);
+    	int idleLimit = limit.getLimit();
+    	processor.processAsyncFailFast(slow, createMessages(10), options).get(5, TimeUnit.SECONDS);
+    	int loadedLimit = limit.getLimit();
+
+    	// Assert: calls 20 times slower than the idle latency shrink the limit after every call.
+    	assertTrue(loadedLimit < idleLimit, "Slower calls should shrink the limit, but it went from " + idleLimit + " to " + loadedLimit + ".");
+    	System.out.println("[Adaptive Limit][Fail-Fast] The gradient limit shrinks once the latency rises above its idle latency - Test Successful\n");
+    }
+
+    // Latency-Aware Dispatch Tests
+    @Test
+    @DisplayName("[Latency-Aware Dispatch][Fail-Partial] Starting the expected-slowest call first shortens a bounded batch")
+    public void testLatencyAwareDispatchShortensMakespan() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: 2 calls in flight at once, and the slow microservice last in the list.
+    	List<Microservice> services = new ArrayList<>();
+    	for (int i = 0; i < 4; i++) {
+    		services.add(new ControlledDelayMicroservice("fast-" + i, 50, false, null));
+    	}
+    	services.add(new ControlledDelayMicroservice("slow", 250, false, null));
+    	LatencyEstimator estimator = new LatencyEstimator();
+    	ProcessingOptions inOrder = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withMaxInFlight(2);
+    	ProcessingOptions slowestFirst = inOrder.withLatencyEstimator(estimator);
+
+    	// Act: a first batch learns the latencies, the second one uses them.
+    	processor.processAsyncFailPartial(services, createMessages(5), slowestFirst).get(5, TimeUnit.SECONDS);
+    	long start = System.nanoTime();
+    	processor.processAsyncFailPartial(services, createMessages(5), inOrder).get(5, TimeUnit.SECONDS);
+    	long inOrderMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    	start = System.nanoTime();
+    	String result = processor.processAsyncFailPartial(services, createMessages(5), slowestFirst).get(5, TimeUnit.SECONDS);
+    	long slowestFirstMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    	// Assert: about 350 ms in order, against about 250 ms slowest first, with the results still in order.
+    	assertEquals("MSG-0, MSG-1, MSG-2, MSG-3, MSG-4", result);
+    	assertTrue(estimator.getEstimate("slow") > estimator.getEstimate("fast-0"));
+    	assertTrue(slowestFirstMs + 50 < inOrderMs,
+    			"Slowest first should be faster, but took " + slowestFirstMs + " ms against " + inOrderMs + " ms in order.");
+    	System.out.println("[Latency-Aware Dispatch][Fail-Partial] " + inOrderMs + " ms in order, " + slowestFirstMs + " ms slowest first - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Latency-Aware Dispatch] The estimate is a moving average, and unknown services are started first")
+    public void testLatencyEstimatorOrder() {
+    	// Arrange
+    	LatencyEstimator estimator = new LatencyEstimator(0.5);
+    	List<Microservice> services = List.of(new Microservice("a"), new Microservice("b"), new Microservice("c"), new Microservice("d"));
+
+    	// Act
+    	estimator.record("a", 100);
+    	estimator.record("a", 200);
+    	estimator.record("b", 1_000);
+    	estimator.record("d", 150);
+
+    	// Assert
+    	assertEquals(150, estimator.getEstimate("a"));
+    	assertEquals(-1, estimator.getEstimate("c"));
+    	assertArrayEquals(new int[] {2, 1, 0, 3}, estimator.dispatchOrder(services));
+    	assertThrows(IllegalArgumentException.class, () -> new LatencyEstimator(0));
+    	System.out.println("[Latency-Aware Dispatch] The estimate is a moving average, and unknown services are started first - Test Successful\n");
+    }
+
+    // Retry Tests
+    @Test
+    @DisplayName("[Retry][Fail-Fast] Transient failures are retried until the call succeeds")
+    public void testRetryRecoversTransientFailures() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: svc-1 fails twice before succeeding.
+    	FlakyMicroservice flaky = new FlakyMicroservice("svc-1", 2, 0);
+    	List<Microservice> services = List.of(new Microservice("svc-0"), flaky, new Microservice("svc-2"));
+    	MetricsListener metrics = new MetricsListener();
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withRetry(RetryPolicy.maxAttempts(3).withBackoff(Duration.ofMillis(10), 2.0))
+    			.withListener(metrics);
+
+    	// Act
+    	String result = processor.processAsyncFailFast(services, createMessages(3), options).get(5, TimeUnit.SECONDS);
+
+    	// Assert: the retries are reported, but only the last attempt counts as an outcome.
+    	assertEquals("svc-0:MSG-0, svc-1:MSG-1, svc-2:MSG-2", result);
+    	assertEquals(3, flaky.getAttempts());
+    	assertEquals(2, metrics.getRetryCount(FailurePolicy.FAIL_FAST));
+    	assertEquals(0, metrics.getFailureCount(FailurePolicy.FAIL_FAST));
+    	assertEquals(3, metrics.getSuccessCount(FailurePolicy.FAIL_FAST));
+    	System.out.println("[Retry][Fail-Fast] Transient failures are retried until the call succeeds - Test Successful: " + result + "\n");
+    }
+
+    @Test
+    @DisplayName("[Retry][Fail-Partial] Failures rejected by the retry predicate are not retried")
+    public void testRetrySkipsNonRetryableFailures() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: only timeouts are retryable, while svc-1 fails with a RuntimeException.
+    	FlakyMicroservice flaky = new FlakyMicroservice("svc-1", 2, 0);
+    	List<Microservice> services = List.of(new Microservice("svc-0"), flaky);
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withRetry(RetryPolicy.maxAttempts(3).withRetryOn(error -> error instanceof TimeoutException));
+
+    	// Act
+    	String result = processor.processAsyncFailPartial(services, createMessages(2), options).get(5, TimeUnit.SECONDS);
+
+    	// Assert
+    	assertEquals("svc-0:MSG-0", result);
+    	assertEquals(1, flaky.getAttempts());
+    	System.out.println("[Retry][Fail-Partial] Failures rejected by the retry predicate are not retried - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Retry][Fail-Soft] An attempt past its per-call deadline is retried")
+    public void testRetryAfterPerCallTimeout() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: the first attempt of svc-0 hangs far beyond the per-call deadline.
+    	FlakyMicroservice flaky = new FlakyMicroservice("svc-0", 1, 10_000);
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withPerCallTimeout(Duration.ofMillis(100))
+    			.withRetry(RetryPolicy.maxAttempts(2).withBackoff(Duration.ZERO, 1.0));
+
+    	// Act
+    	long start = System.nanoTime();
+    	String result = processor.processAsyncFailSoft(List.of(flaky), createMessages(1), "FALLBACK", options)
+    			.get(5, TimeUnit.SECONDS);
+    	long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    	// Assert
+    	assertEquals("svc-0:MSG-0", result);
+    	assertEquals(2, flaky.getAttempts());
+    	assertTrue(elapsedMs < 2_000, "The hanging attempt should be abandoned at its deadline.");
+    	System.out.println("[Retry][Fail-Soft] An attempt past its per-call deadline is retried - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Retry][Fail-Soft] Retries stop at the batch deadline")
+    public void testRetryRespectsBatchTimeout() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: svc-1 always fails, and could be retried far longer than the batch deadline.
+    	FlakyMicroservice flaky = new FlakyMicroservice("svc-1", Integer.MAX_VALUE, 0);
+    	List<Microservice> services = List.of(new Microservice("svc-0"), flaky);
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withBatchTimeout(Duration.ofMillis(300))
+    			.withRetry(RetryPolicy.maxAttempts(1_000).withBackoff(Duration.ofMillis(50), 1.0).withJitter(0));
+
+    	// Act
+    	long start = System.nanoTime();
+    	String result = processor.processAsyncFailSoft(services, createMessages(2), "FALLBACK", options)
+    			.get(5, TimeUnit.SECONDS);
+    	long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    	// Assert: the last retry that fits before the deadline fails, and the fallback is used right away.
+    	assertEquals("svc-0:MSG-0, FALLBACK", result);
+    	assertTrue(flaky.getAttempts() <= 7, flaky.getAttempts() + " attempts within a 300 ms deadline.");
+    	assertTrue(elapsedMs < 2_000, "Retries should not outlive the batch deadline.");
+    	assertThrows(IllegalArgumentException.class, () -> RetryPolicy.maxAttempts(0));
+    	assertThrows(IllegalArgumentException.class, () -> RetryPolicy.maxAttempts(2).withJitter(1.5));
+    	System.out.println("[Retry][Fail-Soft] " + flaky.getAttempts() + " attempts before the batch deadline - Test Successful\n");
+    }
+
+    // Hedging Tests
+    @Test
+    @DisplayName("[Hedging][Fail-Partial] A slow request is hedged, and the hedge's reply wins")
+    public void testHedgeWinsOverSlowRequest() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: the first request of svc-1 hangs, while any duplicate replies quickly.
+    	AtomicBoolean interrupted = new AtomicBoolean();
+    	HedgeableMicroservice slow = new HedgeableMicroservice("svc-1", 10_000, interrupted);
+    	List<Microservice> services = List.of(new HedgeableMicroservice("svc-0", 10, null), slow);
+    	MetricsListener metrics = new MetricsListener();
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withHedge(HedgePolicy.afterDelay(Duration.ofMillis(100)))
+    			.withListener(metrics);
+
+    	// Act
+    	long start = System.nanoTime();
+    	String result = processor.processAsyncFailPartial(services, createMessages(2), options).get(5, TimeUnit.SECONDS);
+    	long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    	Thread.sleep(100);
+
+    	// Assert: only the slow call was hedged, its hedge won, and the losing request was interrupted.
+    	assertEquals("svc-0:MSG-0, svc-1:MSG-1", result);
+    	assertTrue(elapsedMs < 2_000, "The hedge should bound the latency of the slow call.");
+    	assertEquals(2, slow.getRequests());
+    	assertEquals(1, metrics.getHedgeCount(FailurePolicy.FAIL_PARTIAL));
+    	assertEquals(1, metrics.getHedgeWinCount(FailurePolicy.FAIL_PARTIAL));
+    	assertTrue(interrupted.get(), "The losing request should be cancelled.");
+    	System.out.println("[Hedging][Fail-Partial] A slow request is hedged, and the hedge's reply wins - Test Successful (" + elapsedMs + " ms)\n");
+    }
+
+    @Test
+    @DisplayName("[Hedging][Fail-Fast] Failures are not hedged, and fast calls are not duplicated")
+    public void testHedgeNotFiredForFastOrFailedCalls() {
+    	// Arrange: svc-1 fails long before the hedge delay.
+    	HedgeableMicroservice fast = new HedgeableMicroservice("svc-0", 10, null);
+    	MetricsListener metrics = new MetricsListener();
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withHedge(HedgePolicy.afterDelay(Duration.ofMillis(500)))
+    			.withListener(metrics);
+    	List<Microservice> services = List.of(fast, new Microservice("svc-1") {
+    		@Override
+    		public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+    			return CompletableFuture.failedFuture(new RuntimeException("Microservice B Failure"));
+    		}
+    	});
+
+    	// Act
+    	CompletableFuture<String> future = processor.processAsyncFailFast(services, createMessages(2), options);
+    	ExecutionException thrown = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+
+    	// Assert
+    	assertEquals("Microservice B Failure", thrown.getCause().getMessage());
+    	assertEquals(0, metrics.getHedgeCount(FailurePolicy.FAIL_FAST));
+    	assertEquals(1, fast.getRequests());
+    	System.out.println("[Hedging][Fail-Fast] Failures are not hedged, and fast calls are not duplicated - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Hedging][Fail-Soft] The percentile delay adapts to the observed latencies")
+    public void testHedgeAtPercentileAdapts() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: an initial delay far beyond the test's timeout, and a first batch of fast calls to learn from.
+    	HedgePolicy hedge = HedgePolicy.atPercentile(95, Duration.ofSeconds(30));
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withHedge(hedge);
+    	List<Microservice> fastServices = IntStream.range(0, 50)
+    			.mapToObj(index -> (Microservice) new HedgeableMicroservice("svc-" + index, 5, null))
+    			.collect(Collectors.toList());
+    	processor.processAsyncFailSoft(fastServices, createMessages(50), "FALLBACK", options).get(5, TimeUnit.SECONDS);
+    	HedgeableMicroservice slow = new HedgeableMicroservice("svc-0", 10_000, null);
+
+    	// Act
+    	String result = processor.processAsyncFailSoft(List.of(slow), createMessages(1), "FALLBACK", options)
+    			.get(5, TimeUnit.SECONDS);
+
+    	// Assert: the slow call was hedged after about the p95 of the fast calls, not after 30 s.
+    	assertEquals("svc-0:MSG-0", result);
+    	assertEquals(2, slow.getRequests());
+    	assertTrue(hedge.delayNanos() < TimeUnit.SECONDS.toNanos(1), "Hedge delay: " + hedge.delayNanos() + " ns");
+    	assertThrows(IllegalArgumentException.class, () -> HedgePolicy.atPercentile(100, Duration.ZERO));
+    	System.out.println("[Hedging][Fail-Soft] Hedge delay adapted to " + TimeUnit.NANOSECONDS.toMillis(hedge.delayNanos()) + " ms - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Hedging][Fail-Partial] A hedge is refused while the circuit of its microservice is open")
+    public void testHedgeRefusedByOpenCircuit() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: the first request of svc-1 is slow, and a single failure opens its circuit.
+    	HedgeableMicroservice slow = new HedgeableMicroservice("svc-1", 300, null);
+    	Microservice failing = new Microservice("svc-1") {
+    		@Override
+    		public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+    			return CompletableFuture.failedFuture(new RuntimeException("Microservice B Failure"));
+    		}
+    	};
+    	CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMinutes(1));
+    	MetricsListener metrics = new MetricsListener();
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withHedge(HedgePolicy.afterDelay(Duration.ofMillis(100)))
+    			.withCircuitBreaker(breaker)
+    			.withListener(metrics);
+
+    	// Act: the circuit opens while the slow request is in flight, before its hedge is due.
+    	CompletableFuture<String> hedged = processor.processAsyncFailPartial(List.of(slow), createMessages(1), options);
+    	processor.processAsyncFailPartial(List.of(failing), createMessages(1), options).get(5, TimeUnit.SECONDS);
+    	String result = hedged.get(5, TimeUnit.SECONDS);
+
+    	// Assert: the hedge fired, but never reached the microservice, and the slow request replied on its own.
+    	assertEquals("svc-1:MSG-0", result);
+    	assertEquals(CircuitBreaker.State.OPEN, breaker.getState("svc-1"));
+    	assertEquals(1, metrics.getHedgeCount(FailurePolicy.FAIL_PARTIAL));
+    	assertEquals(0, metrics.getHedgeWinCount(FailurePolicy.FAIL_PARTIAL));
+    	assertEquals(1, slow.getRequests());
+    	assertEquals(1, breaker.getRejectedCount());
+    	System.out.println("[Hedging][Fail-Partial] A hedge is refused while the circuit of its microservice is open - Test Successful\n");
+    }
+
+    // Cache Tests
+    @Test
+    @DisplayName("[Cache][Fail-Fast] A repeated batch is served from the cache")
+    public void testCacheServesRepeatedBatch() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange
+    	int serviceCount = 10;
+    	AtomicInteger started = new AtomicInteger();
+    	List<Microservice> services = createTrackedServices(
+    			serviceCount, 5, Set.of(), new AtomicInteger(), new AtomicInteger(), started);
+    	List<String> messages = createMessages(serviceCount);
+    	ResultCache cache = new ResultCache(100, Duration.ofMinutes(1));
+    	AsyncProcessor cachingProcessor = new AsyncProcessor(ProcessingOptions.defaults().withCache(cache));
+
+    	// Act
+    	String first = cachingProcessor.processAsyncFailFast(services, messages).get(5, TimeUnit.SECONDS);
+    	String second = cachingProcessor.processAsyncFailFast(services, messages).get(5, TimeUnit.SECONDS);
+
+    	// Assert: the second batch never reached the microservices.
+    	assertEquals(first, second);
+    	assertEquals(serviceCount, started.get());
+    	assertEquals(serviceCount, cache.getMissCount());
+    	assertEquals(serviceCount, cache.getHitCount());
+    	System.out.println("[Cache][Fail-Fast] A repeated batch is served from the cache - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Cache][Fail-Partial] Concurrent identical calls share a single call in flight")
+    public void testCacheSharesCallsInFlight() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: the same service and message, five times in one batch and again in a concurrent batch.
+    	AtomicInteger started = new AtomicInteger();
+    	Microservice service = createTrackedServices(1, 100, Set.of(), new AtomicInteger(), new AtomicInteger(), started).get(0);
+    	List<Microservice> services = List.of(service, service, service, service, service);
+    	List<String> messages = List.of("msg-0", "msg-0", "msg-0", "msg-0", "msg-0");
+    	ResultCache cache = new ResultCache(100, Duration.ofMinutes(1));
+    	ProcessingOptions options = ProcessingOptions.defaults().withCache(cache);
+
+    	// Act
+    	CompletableFuture<String> first = processor.processAsyncFailPartial(services, messages, options);
+    	CompletableFuture<String> second = processor.processAsyncFailPartial(services, messages, options);
+
+    	// Assert
+    	String expected = "svc-0:MSG-0, svc-0:MSG-0, svc-0:MSG-0, svc-0:MSG-0, svc-0:MSG-0";
+    	assertEquals(expected, first.get(5, TimeUnit.SECONDS));
+    	assertEquals(expected, second.get(5, TimeUnit.SECONDS));
+    	assertEquals(1, started.get());
+    	assertEquals(1, cache.getMissCount());
+    	assertEquals(9, cache.getHitCount());
+    	System.out.println("[Cache][Fail-Partial] Concurrent identical calls share a single call in flight - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Cache][Fail-Soft] Failures are only cached when configured, and entries expire and are evicted")
+    public void testCacheFailuresExpirationAndEviction() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a manual clock, and a microservice failing its first attempt only.
+    	ManualClockScheduler clock = new ManualClockScheduler();
+    	FlakyMicroservice flaky = new FlakyMicroservice("svc-0", 1, 0);
+    	ResultCache cache = new ResultCache(2, Duration.ofSeconds(10), null, clock);
+    	ProcessingOptions options = ProcessingOptions.defaults().withCache(cache);
+
+    	// Act & Assert: the failure is not cached, so the next batch calls the microservice again.
+    	assertEquals("FALLBACK", processor.processAsyncFailSoft(List.of(flaky), List.of("a"), "FALLBACK", options).get(5, TimeUnit.SECONDS));
+    	assertEquals("svc-0:A", processor.processAsyncFailSoft(List.of(flaky), List.of("a"), "FALLBACK", options).get(5, TimeUnit.SECONDS));
+    	assertEquals("svc-0:A", processor.processAsyncFailSoft(List.of(flaky), List.of("a"), "FALLBACK", options).get(5, TimeUnit.SECONDS));
+    	assertEquals(2, flaky.getAttempts());
+
+    	// Act & Assert: the reply expires after its time to live.
+    	clock.advance(Duration.ofSeconds(11));
+    	processor.processAsyncFailSoft(List.of(flaky), List.of("a"), "FALLBACK", options).get(5, TimeUnit.SECONDS);
+    	assertEquals(3, flaky.getAttempts());
+    	assertEquals(1, cache.getExpirationCount());
+
+    	// Act & Assert: a third message evicts the least recently used one.
+    	processor.processAsyncFailSoft(List.of(flaky, flaky), List.of("b", "c"), "FALLBACK", options).get(5, TimeUnit.SECONDS);
+    	assertEquals(1, cache.getEvictionCount());
+    	assertEquals(2, cache.size());
+
+    	// Act & Assert: with a time to live for failures, a failure is served from the cache.
+    	FlakyMicroservice failing = new FlakyMicroservice("svc-1", 1, 0);
+    	ResultCache failureCache = new ResultCache(2, Duration.ofSeconds(10), Duration.ofSeconds(1), clock);
+    	ProcessingOptions failureOptions = ProcessingOptions.defaults().withCache(failureCache);
+    	processor.processAsyncFailSoft(List.of(failing), List.of("a"), "FALLBACK", failureOptions).get(5, TimeUnit.SECONDS);
+    	assertEquals("FALLBACK", processor.processAsyncFailSoft(List.of(failing), List.of("a"), "FALLBACK", failureOptions).get(5, TimeUnit.SECONDS));
+    	assertEquals(1, failing.getAttempts());
+    	System.out.println("[Cache][Fail-Soft] Failures are only cached when configured, and entries expire and are evicted - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Cache][Fail-Fast/Fail-Soft/Fail-Partial] A batch cancelling a shared call only detaches itself")
+    public void testCacheSharedCallOutlivesCancellingBatch() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a slow microservice shared by concurrent batches with different policies and deadlines.
+    	Microservice shared = new ControlledDelayMicroservice("svc-shared", 300, false, null);
+    	Microservice failing = new ControlledDelayMicroservice("svc-failing", 20, true, null);
+    	ResultCache cache = new ResultCache(100, Duration.ofMinutes(1));
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withCache(cache);
+
+    	// Act: the Fail-Fast batch cancels its call to the shared microservice once its sibling fails.
+    	CompletableFuture<String> fast = processor.processAsyncFailFast(List.of(shared, failing), List.of("m", "x"), options);
+    	CompletableFuture<String> soft = processor.processAsyncFailSoft(List.of(shared), List.of("m"), "FB", options);
+
+    	// Assert
+    	assertThrows(ExecutionException.class, () -> fast.get(5, TimeUnit.SECONDS));
+    	assertEquals("M", soft.get(5, TimeUnit.SECONDS), "The other batch should still get the reply of the shared call.");
+    	assertEquals(2, cache.getMissCount(), "Only the first batch should have called the microservices.");
+
+    	// Act: the batch with a deadline gives up on the shared call long before it completes.
+    	ProcessingOptions deadline = options.withBatchTimeout(Duration.ofMillis(100));
+    	CompletableFuture<String> late = processor.processAsyncFailPartial(List.of(shared), List.of("n"), deadline);
+    	CompletableFuture<String> patient = processor.processAsyncFailPartial(List.of(shared), List.of("n"), options);
+
+    	// Assert: the reply is cached for the next batch, too.
+    	assertEquals("", late.get(5, TimeUnit.SECONDS));
+    	assertEquals("N", patient.get(5, TimeUnit.SECONDS), "A deadline of another batch should not reach this batch.");
+    	assertEquals("N", processor.processAsyncFailPartial(List.of(shared), List.of("n"), deadline).get(5, TimeUnit.SECONDS));
+    	assertEquals(3, cache.getMissCount());
+    	System.out.println("[Cache][Fail-Fast/Fail-Soft/Fail-Partial] A batch cancelling a shared call only detaches itself - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Cache] A call that cannot be started is not left in the cache")
+    public void testCacheRemovesCallNeverStarted() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: an executor rejecting every call, as once it is shut down.
+    	Executor rejecting = task -> {
+    		throw new RejectedExecutionException("Executor is shut down");
+    	};
+    	HedgeableMicroservice service = new HedgeableMicroservice("svc-0", 10, null);
+    	ResultCache cache = new ResultCache(100, Duration.ofMinutes(1));
+
+    	// Act
+    	assertThrows(RejectedExecutionException.class,
+    			() -> cache.lookup("svc-0", "msg-0", () -> service.retrieveAsync("msg-0", rejecting)));
+    	CompletableFuture<String> retried = cache.lookup(
+    			"svc-0", "msg-0", () -> service.retrieveAsync("msg-0", MicroserviceExecutors.virtualThreads()));
+
+    	// Assert: the next lookup called the microservice again, rather than waiting for the rejected call.
+    	assertEquals("svc-0:MSG-0", retried.get(5, TimeUnit.SECONDS));
+    	assertEquals(2, cache.getMissCount());
+    	assertEquals(0, cache.getHitCount());
+    	System.out.println("[Cache] A call that cannot be started is not left in the cache - Test Successful\n");
+    }
+
+    // Coalescing Tests
+    @Test
+    @DisplayName("[Coalescing][Fail-Soft/Fail-Partial] Concurrent overlapping batches share their identical calls")
+    public void testCoalescingSharesOverlappingCalls() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: two batches over the same 10 services, 5 of them with the same messages.
+    	int serviceCount = 10;
+    	AtomicInteger started = new AtomicInteger();
+    	List<Microservice> services = createTrackedServices(
+    			serviceCount, 100, Set.of(), new AtomicInteger(), new AtomicInteger(), started);
+    	List<String> messages = createMessages(serviceCount);
+    	List<String> overlapping = IntStream.range(0, serviceCount)
+    			.mapToObj(i -> i < 5 ? "msg-" + i : "other-" + i)
+    			.collect(Collectors.toList());
+    	RequestCoalescer coalescer = new RequestCoalescer();
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withCoalescer(coalescer);
+
+    	// Act
+    	CompletableFuture<String> soft = processor.processAsyncFailSoft(services, messages, "FALLBACK", options);
+    	CompletableFuture<String> partial = processor.processAsyncFailPartial(services, overlapping, options);
+    	List<String> softTokens = splitResults(soft.get(5, TimeUnit.SECONDS));
+    	List<String> partialTokens = splitResults(partial.get(5, TimeUnit.SECONDS));
+
+    	// Assert: 15 distinct requests reached the microservices, instead of 20.
+    	assertEquals("svc-3:MSG-3", softTokens.get(3));
+    	assertEquals("svc-3:MSG-3", partialTokens.get(3));
+    	assertEquals("svc-7:OTHER-7", partialTokens.get(7));
+    	assertEquals(15, started.get());
+    	assertEquals(15, coalescer.getCallCount());
+    	assertEquals(5, coalescer.getJoinCount());
+    	assertEquals(0, coalescer.getInFlightCount());
+    	System.out.println("[Coalescing][Fail-Soft/Fail-Partial] Concurrent overlapping batches share their identical calls - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Coalescing][Fail-Fast] A caller's deadline does not affect the other callers of a shared call")
+    public void testCoalescingKeepsPerCallerDeadlines() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: the first caller has a per-call deadline far shorter than the shared call.
+    	AtomicBoolean interrupted = new AtomicBoolean();
+    	HedgeableMicroservice slow = new HedgeableMicroservice("svc-0", 300, interrupted);
+    	RequestCoalescer coalescer = new RequestCoalescer();
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withCoalescer(coalescer);
+
+    	// Act
+    	CompletableFuture<String> impatient = processor.processAsyncFailFast(
+    			List.of(slow), createMessages(1), options.withPerCallTimeout(Duration.ofMillis(50)));
+    	CompletableFuture<String> patient = processor.processAsyncFailFast(List.of(slow), createMessages(1), options);
+    	ExecutionException thrown = assertThrows(ExecutionException.class, () -> impatient.get(5, TimeUnit.SECONDS));
+
+    	// Assert: the shared call kept running for the patient caller.
+    	assertTrue(thrown.getCause() instanceof TimeoutException);
+    	assertEquals("svc-0:MSG-0", patient.get(5, TimeUnit.SECONDS));
+    	assertEquals(1, slow.getRequests());
+    	assertFalse(interrupted.get(), "The shared call should not be cancelled while a caller still waits for it.");
+    	System.out.println("[Coalescing][Fail-Fast] A caller's deadline does not affect the other callers of a shared call - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Coalescing] A shared call is cancelled once all of its callers have cancelled")
+    public void testCoalescingCancelsAbandonedCall() throws InterruptedException {
+    	// Arrange
+    	AtomicBoolean interrupted = new AtomicBoolean();
+    	HedgeableMicroservice slow = new HedgeableMicroservice("svc-0", 10_000, interrupted);
+    	RequestCoalescer coalescer = new RequestCoalescer();
+    	CompletableFuture<String> first = coalescer.call(slow, "msg-0", MicroserviceExecutors.virtualThreads());
+    	CompletableFuture<String> second = coalescer.call(slow, "msg-0", MicroserviceExecutors.virtualThreads());
+
+    	// Act & Assert: the first cancellation only detaches its caller.
+    	first.cancel(true);
+    	Thread.sleep(50);
+    	assertFalse(interrupted.get());
+    	assertFalse(second.isDone());
+    	second.cancel(true);
+    	Thread.sleep(100);
+
+    	// Assert
+    	assertTrue(interrupted.get(), "The abandoned call should be interrupted.");
+    	assertEquals(1, slow.getRequests());
+    	assertEquals(0, coalescer.getInFlightCount());
+    	System.out.println("[Coalescing] A shared call is cancelled once all of its callers have cancelled - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Coalescing] A call that cannot be started is not left in flight")
+    public void testCoalescingRemovesCallNeverStarted() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: an executor rejecting every call, as once it is shut down.
+    	Executor rejecting = task -> {
+    		throw new RejectedExecutionException("Executor is shut down");
+    	};
+    	HedgeableMicroservice service = new HedgeableMicroservice("svc-0", 10, null);
+    	RequestCoalescer coalescer = new RequestCoalescer();
+
+    	// Act
+    	assertThrows(RejectedExecutionException.class, () -> coalescer.call(service, "msg-0", rejecting));
+    	CompletableFuture<String> retried = coalescer.call(service, "msg-0", MicroserviceExecutors.virtualThreads());
+
+    	// Assert: the identical request started a call of its own, rather than joining the rejected one.
+    	assertEquals("svc-0:MSG-0", retried.get(5, TimeUnit.SECONDS));
+    	assertEquals(2, coalescer.getCallCount());
+    	assertEquals(0, coalescer.getJoinCount());
+    	assertEquals(0, coalescer.getInFlightCount());
+    	System.out.println("[Coalescing] A call that cannot be started is not left in flight - Test Successful\n");
+    }
+
+    // Circuit Breaker Tests
+    @Test
+    @DisplayName("[Circuit Breaker][Fail-Soft] An open circuit replaces calls by the fallback value without calling the microservice")
+    public void testCircuitBreakerShortCircuitsFailingService() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: one microservice that always fails, one healthy microservice, and retries.
+    	FlakyMicroservice failing = new FlakyMicroservice("svc-0", Integer.MAX_VALUE, 0);
+    	FlakyMicroservice healthy = new FlakyMicroservice("svc-1", 0, 0);
+    	CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofMinutes(1));
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withRetry(RetryPolicy.maxAttempts(3).withBackoff(Duration.ofMillis(1), 1.0))
+    			.withCircuitBreaker(breaker);
+
+    	// Act
+    	List<String> results = new ArrayList<>();
+    	for (int i = 0; i < 10; i++) {
+    		results.add(processor.processAsyncFailSoft(
+    				List.of(failing, healthy), createMessages(2), "FALLBACK", options).get(5, TimeUnit.SECONDS));
+    	}
+
+    	// Assert: the first batch used up the retries and opened the circuit; the rejections were not retried.
+    	results.forEach(result -> assertEquals("FALLBACK, svc-1:MSG-1", result));
+    	assertEquals(3, failing.getAttempts());
+    	assertEquals(10, healthy.getAttempts());
+    	assertEquals(CircuitBreaker.State.OPEN, breaker.getState("svc-0"));
+    	assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("svc-1"));
+    	assertEquals(1, breaker.getOpenCount());
+    	assertEquals(9, breaker.getRejectedCount());
+    	System.out.println("[Circuit Breaker][Fail-Soft] An open circuit replaces calls by the fallback value without calling the microservice - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Circuit Breaker][Fail-Fast] A successful probe closes the circuit after the open duration")
+    public void testCircuitBreakerProbeClosesCircuit() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a manual clock, and a microservice failing its first two attempts.
+    	ManualClockScheduler clock = new ManualClockScheduler();
+    	FlakyMicroservice flaky = new FlakyMicroservice("svc-0", 2, 0);
+    	CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(10), clock);
+    	ProcessingOptions options = ProcessingOptions.defaults().withCircuitBreaker(breaker);
+    	List<Microservice> services = List.of(flaky);
+
+    	// Act & Assert: two failures open the circuit, which then rejects calls.
+    	assertThrows(ExecutionException.class, () -> processor.processAsyncFailFast(services, createMessages(1), options).get(5, TimeUnit.SECONDS));
+    	assertThrows(ExecutionException.class, () -> processor.processAsyncFailFast(services, createMessages(1), options).get(5, TimeUnit.SECONDS));
+    	ExecutionException rejected = assertThrows(ExecutionException.class,
+    			() -> processor.processAsyncFailFast(services, createMessages(1), options).get(5, TimeUnit.SECONDS));
+    	assertTrue(rejected.getCause() instanceof CircuitOpenException);
+    	assertEquals(2, flaky.getAttempts());
+
+    	// Act & Assert: after the open duration, the probe succeeds and closes the circuit.
+    	clock.advance(Duration.ofSeconds(10));
+    	assertEquals("svc-0:MSG-0", processor.processAsyncFailFast(services, createMessages(1), options).get(5, TimeUnit.SECONDS));
+    	assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("svc-0"));
+    	assertEquals("svc-0:MSG-0", processor.processAsyncFailFast(services, createMessages(1), options).get(5, TimeUnit.SECONDS));
+    	assertEquals(4, flaky.getAttempts());
+    	assertEquals(1, breaker.getOpenCount());
+    	assertEquals(1, breaker.getHalfOpenCount());
+    	assertEquals(1, breaker.getCloseCount());
+    	System.out.println("[Circuit Breaker][Fail-Fast] A successful probe closes the circuit after the open duration - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Circuit Breaker][Fail-Partial] A half-open circuit lets a single probe through, and reopens when it fails")
+    public void testCircuitBreakerFailedProbeReopensCircuit() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a manual clock, and a microservice whose first two attempts fail after 50 ms.
+    	ManualClockScheduler clock = new ManualClockScheduler();
+    	FlakyMicroservice flaky = new FlakyMicroservice("svc-0", 2, 50);
+    	CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofSeconds(10), clock);
+    	ProcessingOptions options = ProcessingOptions.defaults().withCircuitBreaker(breaker);
+    	processor.processAsyncFailPartial(List.of(flaky), createMessages(1), options).get(5, TimeUnit.SECONDS);
+    	assertEquals(CircuitBreaker.State.OPEN, breaker.getState("svc-0"));
+
+    	// Act: three calls once the circuit can be probed.
+    	clock.advance(Duration.ofSeconds(10));
+    	String result = processor.processAsyncFailPartial(
+    			List.of(flaky, flaky, flaky), createMessages(3), options).get(5, TimeUnit.SECONDS);
+
+    	// Assert: only the probe reached the microservice, and its failure reopened the circuit.
+    	assertEquals("", result);
+    	assertEquals(2, flaky.getAttempts());
+    	assertEquals(CircuitBreaker.State.OPEN, breaker.getState("svc-0"));
+    	assertEquals(2, breaker.getOpenCount());
+    	assertEquals(1, breaker.getHalfOpenCount());
+    	assertEquals(2, breaker.getRejectedCount());
+    	System.out.println("[Circuit Breaker][Fail-Partial] A half-open circuit lets a single probe through, and reopens when it fails - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Circuit Breaker] Late failures of calls already in flight do not extend the open duration")
+    public void testCircuitBreakerLateFailuresKeepOpenDuration() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a manual clock, and two calls in flight when the circuit opens.
+    	ManualClockScheduler clock = new ManualClockScheduler();
+    	CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofSeconds(10), clock);
+    	CompletableFuture<String> first = new CompletableFuture<>();
+    	CompletableFuture<String> second = new CompletableFuture<>();
+    	breaker.call("svc-0", () -> first);
+    	breaker.call("svc-0", () -> second);
+
+    	// Act: the first failure opens the circuit, and the second one fails halfway through the open duration.
+    	first.completeExceptionally(new RuntimeException("Synthetic failure"));
+    	clock.advance(Duration.ofSeconds(5));
+    	second.completeExceptionally(new RuntimeException("Synthetic failure"));
+    	clock.advance(Duration.ofSeconds(5));
+
+    	// Assert: the circuit can be probed 10 s after it opened.
+    	assertEquals("ok", breaker.call("svc-0", () -> CompletableFuture.completedFuture("ok")).get(5, TimeUnit.SECONDS));
+    	assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("svc-0"));
+    	assertEquals(1, breaker.getOpenCount());
+    	assertEquals(0, breaker.getRejectedCount());
+    	System.out.println("[Circuit Breaker] Late failures of calls already in flight do not extend the open duration - Test Successful\n");
+    }
+
+    // Batching Tests
+    @Test
+    @DisplayName("[Batching][Fail-Partial] A repeated batch microservice gets one call, and replies keep the input order")
+    public void testBatchingGroupsMessagesPerService() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: two batch microservices appearing several times, around a plain microservice.
+    	CountingBatchMicroservice a = new CountingBatchMicroservice("svc-a", 20, false, null);
+    	CountingBatchMicroservice b = new CountingBatchMicroservice("svc-b", 20, false, null);
+    	FlakyMicroservice plain = new FlakyMicroservice("svc-c", 0, 0);
+    	List<Microservice> services = List.of(a, b, a, plain, a, b);
+
+    	// Act
+    	String result = processor.processAsyncFailPartial(services, createMessages(6)).get(5, TimeUnit.SECONDS);
+
+    	// Assert
+    	assertEquals("svc-a:MSG-0, svc-b:MSG-1, svc-a:MSG-2, svc-c:MSG-3, svc-a:MSG-4, svc-b:MSG-5", result);
+    	assertEquals(1, a.getBatchCalls());
+    	assertEquals(3, a.getBatchedMessages());
+    	assertEquals(1, b.getBatchCalls());
+    	assertEquals(2, b.getBatchedMessages());
+    	assertEquals(0, a.getSingleCalls() + b.getSingleCalls());
+    	assertEquals(1, plain.getAttempts());
+    	System.out.println("[Batching][Fail-Partial] A repeated batch microservice gets one call, and replies keep the input order - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Batching][Fail-Soft] A failed batched call falls back in each position, and retries are sent on their own")
+    public void testBatchingFailureAndRetries() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a batch microservice whose batched calls fail, but whose single calls succeed.
+    	CountingBatchMicroservice a = new CountingBatchMicroservice("svc-a", 0, true, null);
+    	FlakyMicroservice plain = new FlakyMicroservice("svc-c", 0, 0);
+    	List<Microservice> services = List.of(a, plain, a);
+    	ProcessingOptions retrying = ProcessingOptions.defaults()
+    			.withRetry(RetryPolicy.maxAttempts(2).withBackoff(Duration.ofMillis(1), 1.0));
+
+    	// Act
+    	String failed = processor.processAsyncFailSoft(services, createMessages(3), "FALLBACK").get(5, TimeUnit.SECONDS);
+    	String retried = processor.processAsyncFailSoft(services, createMessages(3), "FALLBACK", retrying).get(5, TimeUnit.SECONDS);
+
+    	// Assert
+    	assertEquals("FALLBACK, svc-c:MSG-1, FALLBACK", failed);
+    	assertEquals("svc-a:MSG-0, svc-c:MSG-1, svc-a:MSG-2", retried);
+    	assertEquals(2, a.getBatchCalls());
+    	assertEquals(2, a.getSingleCalls());
+    	System.out.println("[Batching][Fail-Soft] A failed batched call falls back in each position, and retries are sent on their own - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Batching][Fail-Fast] A batched call is cancelled once all of its positions are cancelled")
+    public void testBatchingCancelsAbandonedCall() throws InterruptedException {
+    	// Arrange: a slow batch microservice, and a plain microservice failing after 20 ms.
+    	AtomicBoolean interrupted = new AtomicBoolean();
+    	CountingBatchMicroservice slow = new CountingBatchMicroservice("svc-a", 10_000, false, interrupted);
+    	FlakyMicroservice failing = new FlakyMicroservice("svc-c", Integer.MAX_VALUE, 20);
+    	List<Microservice> services = List.of(slow, failing, slow);
+
+    	// Act
+    	CompletableFuture<String> result = processor.processAsyncFailFast(services, createMessages(3));
+    	assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+    	Thread.sleep(100);
+
+    	// Assert
+    	assertTrue(interrupted.get(), "The batched call should be interrupted once Fail-Fast cancels its positions.");
+    	assertEquals(1, slow.getBatchCalls());
+    	System.out.println("[Batching][Fail-Fast] A batched call is cancelled once all of its positions are cancelled - Test Successful\n");
+    }
+
+    // Micro-Batching Tests
+    @Test
+    @DisplayName("[Micro-Batching][Fail-Partial] Requests from concurrent callers are merged into one call once the window is full")
+    public void testMicroBatchingMergesConcurrentCallers() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a window far longer than the test, so that only its size can send it.
+    	CountingBatchMicroservice service = new CountingBatchMicroservice("svc-a", 0, false, null);
+    	MicroBatcher microBatcher = new MicroBatcher(8, Duration.ofMinutes(1));
+    	ProcessingOptions options = ProcessingOptions.defaults().withMicroBatcher(microBatcher);
+
+    	// Act: eight callers, one message each.
+    	List<CompletableFuture<String>> results = new ArrayList<>();
+    	for (int i = 0; i < 8; i++) {
+    		results.add(processor.processAsyncFailPartial(List.of(service), List.of("msg-" + i), options));
+    	}
+
+    	// Assert: every caller got its own reply from a single call.
+    	for (int i = 0; i < 8; i++) {
+    		assertEquals("svc-a:MSG-" + i, results.get(i).get(5, TimeUnit.SECONDS));
+    	}
+    	assertEquals(1, service.getBatchCalls());
+    	assertEquals(8, service.getBatchedMessages());
+    	assertEquals(1, microBatcher.getBatchCount());
+    	assertEquals(8, microBatcher.getRequestCount());
+    	System.out.println("[Micro-Batching][Fail-Partial] Requests from concurrent callers are merged into one call once the window is full - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Micro-Batching][Fail-Soft] A window that does not fill up is sent after its maximum delay")
+    public void testMicroBatchingSendsAfterMaxDelay() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a batch microservice and a plain microservice, which is never delayed.
+    	CountingBatchMicroservice service = new CountingBatchMicroservice("svc-a", 0, false, null);
+    	FlakyMicroservice plain = new FlakyMicroservice("svc-c", 0, 0);
+    	MicroBatcher microBatcher = new MicroBatcher(100, Duration.ofMillis(50));
+    	ProcessingOptions options = ProcessingOptions.defaults().withMicroBatcher(microBatcher);
+
+    	// Act
+    	long start = System.nanoTime();
+    	CompletableFuture<String> first = processor.processAsyncFailSoft(List.of(service, plain), List.of("a", "b"), "FALLBACK", options);
+    	CompletableFuture<String> second = processor.processAsyncFailSoft(List.of(service), List.of("c"), "FALLBACK", options);
+    	String firstResult = first.get(5, TimeUnit.SECONDS);
+    	String secondResult = second.get(5, TimeUnit.SECONDS);
+    	long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    	// Assert
+    	assertEquals("svc-a:A, svc-c:B", firstResult);
+    	assertEquals("svc-a:C", secondResult);
+    	assertTrue(elapsedMs >= 40, "The window should have waited for its maximum delay, but took " + elapsedMs + " ms.");
+    	assertEquals(1, service.getBatchCalls());
+    	assertEquals(2, microBatcher.getRequestCount());
+    	assertEquals(1, plain.getAttempts());
+    	System.out.println("[Micro-Batching][Fail-Soft] A window that does not fill up is sent after its maximum delay - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Micro-Batching][Fail-Fast] A request past its deadline is left out of the window")
+    public void testMicroBatchingDropsCancelledRequests() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a caller whose per-call deadline is shorter than the window.
+    	CountingBatchMicroservice service = new CountingBatchMicroservice("svc-a", 0, false, null);
+    	MicroBatcher microBatcher = new MicroBatcher(100, Duration.ofMillis(100));
+    	ProcessingOptions options = ProcessingOptions.defaults().withMicroBatcher(microBatcher);
+
+    	// Act
+    	CompletableFuture<String> impatient = processor.processAsyncFailFast(
+    			List.of(service), List.of("a"), options.withPerCallTimeout(Duration.ofMillis(20)));
+    	CompletableFuture<String> patient = processor.processAsyncFailFast(List.of(service), List.of("b"), options);
+    	ExecutionException thrown = assertThrows(ExecutionException.class, () -> impatient.get(5, TimeUnit.SECONDS));
+
+    	// Assert: only the patient request was sent.
+    	assertTrue(thrown.getCause() instanceof TimeoutException);
+    	assertEquals("svc-a:B", patient.get(5, TimeUnit.SECONDS));
+    	assertEquals(1, service.getBatchCalls());
+    	assertEquals(1, service.getBatchedMessages());
+    	System.out.println("[Micro-Batching][Fail-Fast] A request past its deadline is left out of the window - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Micro-Batching][Fail-Partial] Sent windows are removed, so short-lived microservices are not kept")
+    public void testMicroBatchingRemovesSentWindows() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a micro-batcher shared by many short-lived batch microservices.
+    	MicroBatcher microBatcher = new MicroBatcher(2, Duration.ofMillis(20));
+    	ProcessingOptions options = ProcessingOptions.defaults().withMicroBatcher(microBatcher);
+
+    	// Act: windows sent full, and windows sent after their maximum delay.
+    	for (int i = 0; i < 20; i++) {
+    		CountingBatchMicroservice service = new CountingBatchMicroservice("svc-" + i, 0, false, null);
+    		List<String> messages = i % 2 == 0 ? List.of("a", "b") : List.of("a");
+    		processor.processAsyncFailPartial(Collections.nCopies(messages.size(), service), messages, options).get(5, TimeUnit.SECONDS);
+    	}
+
+    	// Assert
+    	assertEquals(0, microBatcher.getWindowCount(), "No window should be left once every window was sent.");
+    	assertEquals(20, microBatcher.getBatchCount());
+    	System.out.println("[Micro-Batching][Fail-Partial] Sent windows are removed, so short-lived microservices are not kept - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Micro-Batching][Fail-Partial] A window filling up at its deadline is sent once")
+    public void testMicroBatchingSendsWindowFullAtDeadlineOnce() throws ExecutionException, InterruptedException {
+    	// Arrange: a timer that can no longer be cancelled, as when it already started and waits for the window.
+    	VirtualTimeScheduler clock = new VirtualTimeScheduler();
+    	Scheduler startedTimer = new Scheduler() {
+    		@Override
+    		public long nanoTime() {
+    			return clock.nanoTime();
+    		}
+    		
+    		@Override
+    		public Future<?> schedule(Runnable task, long delay, TimeUnit unit) {
+    			clock.schedule(task, delay, unit);
+    			return new CompletableFuture<Void>() {
+    				@Override
+    				public boolean cancel(boolean mayInterruptIfRunning) {
+    					return false;
+    				}
+    			};
+    		}
+    	};
+    	CountingBatchMicroservice service = new CountingBatchMicroservice("svc-a", 0, false, null);
+    	MicroBatcher microBatcher = new MicroBatcher(2, Duration.ofMillis(10), startedTimer);
+    	ProcessingOptions options = ProcessingOptions.defaults().withExecutor(clock).withScheduler(clock).withMicroBatcher(microBatcher);
+    	AtomicReference<CompletableFuture<String>> last = new AtomicReference<>();
+
+    	// Act: the second request, filling the window, arrives right at its deadline, before its timer runs.
+    	clock.schedule(() -> last.set(processor.processAsyncFailPartial(List.of(service), List.of("b"), options)), 10, TimeUnit.MILLISECONDS);
+    	CompletableFuture<String> first = processor.processAsyncFailPartial(List.of(service), List.of("a"), options);
+    	clock.runUntilIdle();
+
+    	// Assert
+    	assertEquals("svc-a:A", first.get());
+    	assertEquals("svc-a:B", last.get().get());
+    	assertEquals(1, service.getBatchCalls());
+    	assertEquals(1, microBatcher.getBatchCount());
+    	System.out.println("[Micro-Batching][Fail-Partial] A window filling up at its deadline is sent once - Test Successful\n");
+    }
+
+    // Reducer Tests
+    @Test
+    @DisplayName("[Reducer][Fail-Partial] Listed values keep the input order, even when they contain the separator")
+    public void testReducerToListKeepsValuesWhole() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: the second microservice fails, and the first reply contains the separator.
+    	List<Microservice> services = createTrackedServices(
+    			3, 5, Set.of(1), new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+    	List<String> messages = List.of("a, b", "c", "d");
+
+    	// Act
+    	List<String> result = processor.processAsync(
+    			FailurePolicy.FAIL_PARTIAL, services, messages, null, ResultReducer.toList()).get(5, TimeUnit.SECONDS);
+
+    	// Assert
+    	assertEquals(List.of("svc-0:A, B", "svc-2:D"), result);
+    	System.out.println("[Reducer][Fail-Partial] Listed values keep the input order, even when they contain the separator - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Reducer][Fail-Soft] Results hold the outcome of each call")
+    public void testReducerResultsHoldOutcomes() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange
+    	List<Microservice> services = createTrackedServices(
+    			4, 5, Set.of(1, 3), new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+
+    	// Act
+    	BatchResults results = processor.processAsync(
+    			FailurePolicy.FAIL_SOFT, services, createMessages(4), "FALLBACK", ResultReducer.results()).get(5, TimeUnit.SECONDS);
+
+    	// Assert
+    	assertEquals(4, results.size());
+    	assertEquals(BatchResults.Outcome.SUCCESS, results.getOutcome(0));
+    	assertEquals("svc-0:MSG-0", results.getValue(0));
+    	assertNull(results.getError(0));
+    	assertEquals(BatchResults.Outcome.FALLBACK, results.getOutcome(1));
+    	assertEquals("FALLBACK", results.getValue(1));
+    	assertEquals("Synthetic failure svc-1", results.getError(1).getMessage());
+    	assertEquals(2, results.count(BatchResults.Outcome.FALLBACK));
+    	assertEquals(List.of("svc-0:MSG-0", "FALLBACK", "svc-2:MSG-2", "FALLBACK"), results.getValues());
+    	System.out.println("[Reducer][Fail-Soft] Results hold the outcome of each call - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Reducer][Fail-Soft] Null fallback values line up with the microservices")
+    public void testReducerNullFallbackValuesLineUp() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange
+    	List<Microservice> services = createTrackedServices(
+    			3, 5, Set.of(1), new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+
+    	// Act
+    	BatchResults results = processor.processAsync(
+    			FailurePolicy.FAIL_SOFT, services, createMessages(3), null, ResultReducer.results()).get(5, TimeUnit.SECONDS);
+
+    	// Assert: the null fallback value keeps the index of its microservice.
+    	assertEquals(BatchResults.Outcome.FALLBACK, results.getOutcome(1));
+    	assertNull(results.getValue(1));
+    	assertEquals(Arrays.asList("svc-0:MSG-0", null, "svc-2:MSG-2"), results.getValues());
+    	System.out.println("[Reducer][Fail-Soft] Null fallback values line up with the microservices - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Reducer][Fail-Fast] Custom reducers replace the default join, and a failing reducer fails the batch")
+    public void testReducerCustomReducers() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange
+    	List<Microservice> services = createTrackedServices(
+    			3, 5, Set.of(), new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+    	List<String> messages = createMessages(3);
+
+    	// Act
+    	String joined = processor.processAsync(
+    			FailurePolicy.FAIL_FAST, services, messages, null, ResultReducer.joining(" | ")).get(5, TimeUnit.SECONDS);
+    	Integer successes = processor.processAsync(FailurePolicy.FAIL_FAST, services, messages, null,
+    			results -> results.count(BatchResults.Outcome.SUCCESS)).get(5, TimeUnit.SECONDS);
+    	CompletableFuture<Object> failing = processor.processAsync(FailurePolicy.FAIL_FAST, services, messages, null,
+    			results -> { throw new IllegalStateException("Reducer failure"); });
+
+    	// Assert
+    	assertEquals("svc-0:MSG-0 | svc-1:MSG-1 | svc-2:MSG-2", joined);
+    	assertEquals(3, successes);
+    	ExecutionException thrown = assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS));
+    	assertTrue(thrown.getCause() instanceof IllegalStateException);
+    	System.out.println("[Reducer][Fail-Fast] Custom reducers replace the default join, and a failing reducer fails the batch - Test Successful\n");
+    }
+
+    // Quorum Tests
+    @Test
+    @DisplayName("[Quorum] With a quorum of 1, the first successful replica wins and the others are cancelled")
+    public void testQuorumFirstReplicaWins() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: three replicas, only one of them fast.
+    	AtomicBoolean firstInterrupted = new AtomicBoolean();
+    	AtomicBoolean lastInterrupted = new AtomicBoolean();
+    	List<Microservice> replicas = List.of(
+    			new HedgeableMicroservice("svc-0", 5_000, firstInterrupted),
+    			new HedgeableMicroservice("svc-1", 20, null),
+    			new HedgeableMicroservice("svc-2", 5_000, lastInterrupted));
+    	MetricsListener metrics = new MetricsListener();
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withListener(metrics);
+
+    	// Act
+    	long start = System.nanoTime();
+    	String result = processor.processAsyncQuorum(replicas, createMessages(3), 1, ResultOrder.INPUT_ORDER, options)
+    			.get(5, TimeUnit.SECONDS);
+    	long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    	Thread.sleep(100);
+
+    	// Assert
+    	assertEquals("svc-1:MSG-1", result);
+    	assertTrue(elapsedMs < 1_000, "The quorum should not wait for the slow replicas, but took " + elapsedMs + " ms.");
+    	assertTrue(firstInterrupted.get() && lastInterrupted.get(), "The slow replicas should be interrupted.");
+    	assertEquals(1, metrics.getBatchCount(FailurePolicy.QUORUM));
+    	assertEquals(1, metrics.getSuccessCount(FailurePolicy.QUORUM));
+    	System.out.println("[Quorum] With a quorum of 1, the first successful replica wins and the others are cancelled - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Quorum] The first K successes are kept in input order or in completion order")
+    public void testQuorumResultOrders() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: svc-1 replies first, then svc-0, long before the others.
+    	long[] delaysMs = {150, 10, 3_000, 3_000};
+    	List<Microservice> services = IntStream.range(0, 4)
+    			.mapToObj(i -> (Microservice) new HedgeableMicroservice("svc-" + i, delaysMs[i], null))
+    			.collect(Collectors.toList());
+    	List<Microservice> sameServices = IntStream.range(0, 4)
+    			.mapToObj(i -> (Microservice) new HedgeableMicroservice("svc-" + i, delaysMs[i], null))
+    			.collect(Collectors.toList());
+    	ProcessingOptions options = ProcessingOptions.defaults().withExecutor(MicroserviceExecutors.virtualThreads());
+
+    	// Act
+    	CompletableFuture<String> inputOrder = processor.processAsyncQuorum(
+    			services, createMessages(4), 2, ResultOrder.INPUT_ORDER, options);
+    	CompletableFuture<String> completionOrder = processor.processAsyncQuorum(
+    			sameServices, createMessages(4), 2, ResultOrder.COMPLETION_ORDER, options);
+
+    	// Assert
+    	assertEquals("svc-0:MSG-0, svc-1:MSG-1", inputOrder.get(2, TimeUnit.SECONDS));
+    	assertEquals("svc-1:MSG-1, svc-0:MSG-0", completionOrder.get(2, TimeUnit.SECONDS));
+    	System.out.println("[Quorum] The first K successes are kept in input order or in completion order - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Quorum] The batch fails as soon as the quorum can no longer be reached")
+    public void testQuorumUnreachable() throws InterruptedException {
+    	// Arrange: two of three microservices fail quickly, the third is slow.
+    	AtomicBoolean interrupted = new AtomicBoolean();
+    	List<Microservice> services = List.of(
+    			new FlakyMicroservice("svc-0", Integer.MAX_VALUE, 10),
+    			new HedgeableMicroservice("svc-1", 5_000, interrupted),
+    			new FlakyMicroservice("svc-2", Integer.MAX_VALUE, 20));
+    	ProcessingOptions options = ProcessingOptions.defaults().withExecutor(MicroserviceExecutors.virtualThreads());
+
+    	// Act
+    	CompletableFuture<String> result = processor.processAsyncQuorum(services, createMessages(3), 2, ResultOrder.INPUT_ORDER, options);
+    	ExecutionException thrown = assertThrows(ExecutionException.class, () -> result.get(2, TimeUnit.SECONDS));
+    	Thread.sleep(100);
+    	CompletableFuture<String> invalid = processor.processAsyncQuorum(services, createMessages(3), 4, ResultOrder.INPUT_ORDER);
+
+    	// Assert
+    	assertTrue(thrown.getCause() instanceof QuorumNotReachedException);
+    	assertTrue(thrown.getCause().getCause().getMessage().startsWith("Transient failure"));
+    	assertTrue(interrupted.get(), "The remaining call should be cancelled once the quorum is unreachable.");
+    	ExecutionException rejected = assertThrows(ExecutionException.class, () -> invalid.get(1, TimeUnit.SECONDS));
+    	assertTrue(rejected.getCause() instanceof IllegalArgumentException);
+    	System.out.println("[Quorum] The batch fails as soon as the quorum can no longer be reached - Test Successful\n");
+    }
+
+    // Load Shedding Tests
+    @Test
+    @DisplayName("[Load Shedding][Fail-Partial] Waiting calls are started by priority, critical batches first")
+    public void testLoadShedderServesByPriority() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: one call in flight at a time, so that the completion order is the start order.
+    	List<String> order = new CopyOnWriteArrayList<>();
+    	LoadShedder shedder = new LoadShedder(1, 100, Duration.ofSeconds(10));
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withLoadShedder(shedder);
+    	List<CompletableFuture<String>> results = new ArrayList<>();
+
+    	// Act: the low-priority batch arrives first, and the critical one last.
+    	for (Priority priority : List.of(Priority.LOW, Priority.NORMAL, Priority.CRITICAL)) {
+    		List<Microservice> services = IntStream.range(0, 3)
+    				.mapToObj(i -> (Microservice) new ControlledDelayMicroservice(priority + "-" + i, 30, false, order))
+    				.collect(Collectors.toList());
+    		results.add(processor.processAsyncFailPartial(services, createMessages(3), options.withPriority(priority)));
+    	}
+    	for (CompletableFuture<String> result : results) {
+    		assertEquals(3, splitResults(result.get(5, TimeUnit.SECONDS)).size());
+    	}
+
+    	// Assert: only the call already in flight ran before the critical batch.
+    	assertEquals(List.of("LOW-0", "CRITICAL-0", "CRITICAL-1", "CRITICAL-2",
+    			"NORMAL-0", "NORMAL-1", "NORMAL-2", "LOW-1", "LOW-2"), order);
+    	assertEquals(0, shedder.getShedCount());
+    	assertEquals(0, shedder.getInFlight());
+    	assertEquals(0, shedder.getQueueDepth());
+    	System.out.println("[Load Shedding][Fail-Partial] Waiting calls are started by priority, critical batches first - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Load Shedding] Past the queue depth, low-priority batches are shed up front and critical ones still run")
+    public void testLoadShedderShedsLowPriority() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a normal batch fills the queue with 3 waiting calls, past its depth of 2.
+    	AtomicInteger started = new AtomicInteger();
+    	LoadShedder shedder = new LoadShedder(1, 2, Duration.ofSeconds(10));
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withLoadShedder(shedder);
+    	CompletableFuture<String> normal = processor.processAsyncFailPartial(
+    			createTrackedServices(4, 50, Set.of(), new AtomicInteger(), new AtomicInteger(), new AtomicInteger()),
+    			createMessages(4), options);
+    	List<Microservice> services = createTrackedServices(3, 10, Set.of(), new AtomicInteger(), new AtomicInteger(), started);
+    	ProcessingOptions low = options.withPriority(Priority.LOW);
+
+    	// Act
+    	assertTrue(shedder.isOverloaded());
+    	CompletableFuture<String> soft = processor.processAsyncFailSoft(services, createMessages(3), "FALLBACK", low);
+    	CompletableFuture<String> fast = processor.processAsyncFailFast(services, createMessages(3), low);
+    	CompletableFuture<String> critical = processor.processAsyncFailFast(
+    			services, createMessages(3), options.withPriority(Priority.CRITICAL));
+
+    	// Assert: the shed batches complete right away, without calling their microservices.
+    	assertEquals("FALLBACK, FALLBACK, FALLBACK", soft.getNow(null));
+    	ExecutionException thrown = assertThrows(ExecutionException.class, () -> fast.get(1, TimeUnit.SECONDS));
+    	assertTrue(thrown.getCause() instanceof BatchShedException);
+    	assertEquals(3, splitResults(critical.get(5, TimeUnit.SECONDS)).size());
+    	assertEquals(4, splitResults(normal.get(5, TimeUnit.SECONDS)).size());
+    	assertEquals(3, started.get(), "Only the critical batch should call the microservices.");
+    	assertEquals(2, shedder.getShedCount());
+    	assertFalse(shedder.isOverloaded());
+    	System.out.println("[Load Shedding] Past the queue depth, low-priority batches are shed up front and critical ones still run - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Load Shedding] The load shedder is overloaded once the oldest waiting call has waited too long")
+    public void testLoadShedderQueueWait() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: a single waiting call, well below the queue depth.
+    	ManualClockScheduler clock = new ManualClockScheduler();
+    	LoadShedder shedder = new LoadShedder(1, 100, Duration.ofMillis(50), clock);
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withLoadShedder(shedder);
+    	CompletableFuture<String> result = processor.processAsyncFailPartial(
+    			createTrackedServices(2, 100, Set.of(), new AtomicInteger(), new AtomicInteger(), new AtomicInteger()),
+    			createMessages(2), options);
+
+    	// Act & Assert
+    	assertEquals(1, shedder.getQueueDepth());
+    	assertFalse(shedder.isOverloaded());
+    	clock.advance(Duration.ofMillis(50));
+    	assertTrue(shedder.isOverloaded());
+    	assertEquals(2, splitResults(result.get(5, TimeUnit.SECONDS)).size());
+    	assertFalse(shedder.isOverloaded());
+    	assertThrows(IllegalArgumentException.class, () -> new LoadShedder(1, 0, Duration.ofMillis(50)));
+    	assertThrows(IllegalArgumentException.class, () -> options.withPriority(null));
+    	System.out.println("[Load Shedding] The load shedder is overloaded once the oldest waiting call has waited too long - Test Successful\n");
+    }
+
+    // Spill Tests
+    @Test
+    @DisplayName("[Spill][Fail-Soft] Results spilled off-heap stream out exactly as the joined string")
+    public void testSpillOffHeapMatchesJoinedResult() throws ExecutionException, InterruptedException, TimeoutException, IOException {
+    	// Arrange: chunks of 16 bytes, so that most results straddle two chunks.
+    	Set<Integer> failing = Set.of(1, 4, 7);
+    	List<Microservice> services = createTrackedServices(10, 5, failing, new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+    	ResultSpill spill = ResultSpill.offHeap().withChunkSize(16);
+
+    	// Act
+    	String joined = processor.processAsyncFailSoft(services, createMessages(10), "FALLBACK").get(5, TimeUnit.SECONDS);
+    	ByteArrayOutputStream out = new ByteArrayOutputStream();
+    	try (SpilledResults spilled = processor.processAsyncSpilled(
+    			FailurePolicy.FAIL_SOFT, services, createMessages(10), "FALLBACK", spill).get(5, TimeUnit.SECONDS)) {
+    		long written = spilled.writeTo(out);
+
+    		// Assert
+    		assertEquals(joined, out.toString(StandardCharsets.UTF_8));
+    		assertEquals(out.size(), written);
+    		assertEquals(10, spilled.size());
+    		assertEquals("svc-0:MSG-0", spilled.getValue(0));
+    		assertEquals("FALLBACK", spilled.getValue(4));
+    		assertEquals(7 * "svc-0:MSG-0".length(), spilled.getSpilledBytes());
+    	}
+    	System.out.println("[Spill][Fail-Soft] Results spilled off-heap stream out exactly as the joined string - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Spill][Fail-Soft] A null fallback value is spilled as the joined string writes it")
+    public void testSpillNullFallback() throws ExecutionException, InterruptedException, TimeoutException, IOException {
+    	// Arrange
+    	List<Microservice> services = createTrackedServices(3, 5, Set.of(1), new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+
+    	// Act
+    	String joined = processor.processAsyncFailSoft(services, createMessages(3), null).get(5, TimeUnit.SECONDS);
+    	ByteArrayOutputStream out = new ByteArrayOutputStream();
+    	try (SpilledResults spilled = processor.processAsyncSpilled(
+    			FailurePolicy.FAIL_SOFT, services, createMessages(3), null, ResultSpill.offHeap()).get(5, TimeUnit.SECONDS)) {
+    		spilled.writeTo(out);
+
+    		// Assert
+    		assertEquals("svc-0:MSG-0, null, svc-2:MSG-2", joined);
+    		assertEquals(joined, out.toString(StandardCharsets.UTF_8));
+    		assertNull(spilled.getValue(1));
+    	}
+    	System.out.println("[Spill][Fail-Soft] A null fallback value is spilled as the joined string writes it - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Spill][Fail-Soft] A null reply is spilled as the joined string writes it")
+    public void testSpillNullReply() throws ExecutionException, InterruptedException, TimeoutException, IOException {
+    	// Arrange: a microservice replying null right away, and one replying null once the batch is under way.
+    	Microservice immediate = new Microservice("svc-null") {
+    		@Override
+    		public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+    			return CompletableFuture.completedFuture(null);
+    		}
+    	};
+    	Microservice delayed = new Microservice("svc-late-null") {
+    		@Override
+    		public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+    			return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(20, TimeUnit.MILLISECONDS));
+    		}
+    	};
+    	List<Microservice> services = List.of(new FlakyMicroservice("svc-0", 0, 0), immediate, delayed);
+
+    	// Act
+    	String joined = processor.processAsyncFailSoft(services, createMessages(3), "FALLBACK").get(5, TimeUnit.SECONDS);
+    	ByteArrayOutputStream out = new ByteArrayOutputStream();
+    	try (SpilledResults spilled = processor.processAsyncSpilled(
+    			FailurePolicy.FAIL_SOFT, services, createMessages(3), "FALLBACK", ResultSpill.offHeap()).get(5, TimeUnit.SECONDS)) {
+    		spilled.writeTo(out);
+
+    		// Assert
+    		assertEquals("svc-0:MSG-0, null, null", joined);
+    		assertEquals(joined, out.toString(StandardCharsets.UTF_8));
+    		assertNull(spilled.getValue(1));
+    		assertNull(spilled.getValue(2));
+    	}
+    	System.out.println("[Spill][Fail-Soft] A null reply is spilled as the joined string writes it - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Spill][Fail-Partial] A large batch spilled to a mapped file streams to a channel, and the file is deleted on close")
+    public void testSpillMappedToChannel(@TempDir Path directory) throws ExecutionException, InterruptedException, TimeoutException, IOException {
+    	// Arrange
+    	int serviceCount = 2_000;
+    	Set<Integer> failing = IntStream.range(0, serviceCount).filter(i -> i % 100 == 0).boxed().collect(Collectors.toSet());
+    	List<Microservice> services = createTrackedServices(serviceCount, 0, failing, new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+    	ProcessingOptions options = ProcessingOptions.defaults().withExecutor(MicroserviceExecutors.virtualThreads());
+    	ResultSpill spill = ResultSpill.mapped(directory).withChunkSize(4_096);
+    	Path output = directory.resolve("output.txt");
+
+    	// Act
+    	String joined = processor.processAsyncFailPartial(services, createMessages(serviceCount), options).get(5, TimeUnit.SECONDS);
+    	SpilledResults spilled = processor.processAsyncSpilled(
+    			FailurePolicy.FAIL_PARTIAL, services, createMessages(serviceCount), null, spill, options).get(5, TimeUnit.SECONDS);
+    	try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+    		spilled.writeTo(channel);
+    	}
+    	spilled.close();
+
+    	// Assert
+    	assertEquals(joined, Files.readString(output));
+    	assertNull(spilled.getValue(100));
+    	assertEquals(List.of(output), listFiles(directory), "The spill file should be deleted once closed.");
+    	assertThrows(IllegalStateException.class, () -> spilled.getValue(1));
+    	System.out.println("[Spill][Fail-Partial] A large batch spilled to a mapped file streams to a channel, and the file is deleted on close - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Spill][Fail-Fast] A failed batch releases its spill")
+    public void testSpillReleasedOnFailure(@TempDir Path directory) throws InterruptedException, IOException {
+    	// Arrange
+    	List<Microservice> services = createTrackedServices(5, 50, Set.of(2), new AtomicInteger(), new AtomicInteger(), new AtomicInteger());
+
+    	// Act
+    	CompletableFuture<SpilledResults> result = processor.processAsyncSpilled(
+    			FailurePolicy.FAIL_FAST, services, createMessages(5), null, ResultSpill.mapped(directory));
+    	ExecutionException thrown = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+    	for (int i = 0; i < 100 && !listFiles(directory).isEmpty(); i++) {
+    		Thread.sleep(10);
+    	}
+
+    	// Assert
+    	assertEquals("Synthetic failure svc-2", thrown.getCause().getMessage());
+    	assertEquals(List.of(), listFiles(directory), "The spill file should be deleted once the batch fails.");
+    	assertThrows(IllegalArgumentException.class, () -> processor.processAsyncSpilled(
+    			FailurePolicy.QUORUM, services, createMessages(5), null, ResultSpill.offHeap()));
+    	assertThrows(IllegalArgumentException.class, () -> ResultSpill.offHeap().withChunkSize(0));
+    	System.out.println("[Spill][Fail-Fast] A failed batch releases its spill - Test Successful\n");
+    }
+
+    // Bulkhead Tests
+    @Test
+    @DisplayName("[Bulkhead][Fail-Partial] A slow microservice only saturates its own compartment of a shared pool")
+    public void testBulkheadIsolatesSlowService() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: 4 shared threads, and 10 slow calls that would otherwise hold all of them.
+    	ExecutorService pool = MicroserviceExecutors.newBoundedPlatformPool(4);
+    	Microservice slow = new ControlledDelayMicroservice("slow", 300, false, null);
+    	List<Microservice> fast = IntStream.range(0, 4)
+    			.mapToObj(i -> (Microservice) new ControlledDelayMicroservice("fast-" + i, 20, false, null))
+    			.collect(Collectors.toList());
+    	Bulkheads bulkheads = new Bulkheads(2, 100);
+    	ProcessingOptions options = ProcessingOptions.defaults().withExecutor(pool).withBulkheads(bulkheads);
+
+    	try {
+    		// Act
+    		CompletableFuture<String> slowResult = processor.processAsyncFailPartial(
+    				Collections.nCopies(10, slow), createMessages(10), options);
+    		long start = System.nanoTime();
+    		String fastResult = processor.processAsyncFailPartial(fast, createMessages(4), options).get(5, TimeUnit.SECONDS);
+    		long fastMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    		Bulkhead compartment = bulkheads.forService("slow");
+    		double saturation = compartment.getSaturation();
+
+    		// Assert
+    		assertEquals(4, splitResults(fastResult).size());
+    		assertTrue(fastMs < 250, "The fast calls should not wait for the slow ones, but took " + fastMs + " ms.");
+    		assertEquals(1.0, saturation);
+    		assertEquals(10, splitResults(slowResult.get(5, TimeUnit.SECONDS)).size());
+    		assertEquals(2, compartment.getPeakActive());
+    		assertEquals(8, compartment.getQueuedCount());
+    		assertEquals(10, compartment.getCompletedCount());
+    		assertEquals(0, compartment.getQueued());
+    		assertEquals(1, bulkheads.forService("fast-0").getCompletedCount());
+    	} finally {
+    		pool.shutdownNow();
+    	}
+    	System.out.println("[Bulkhead][Fail-Partial] A slow microservice only saturates its own compartment of a shared pool - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Bulkhead][Fail-Soft] A group shares one compartment, and calls beyond its queue are rejected")
+    public void testBulkheadGroupRejectsWhenFull() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: both payment services share a single call in flight, and a single waiting call.
+    	Bulkheads bulkheads = new Bulkheads(10, 10).defineGroup("payments", 1, 1, "pay-0", "pay-1");
+    	Microservice first = new ControlledDelayMicroservice("pay-0", 100, false, null);
+    	Microservice second = new ControlledDelayMicroservice("pay-1", 100, false, null);
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withRetry(RetryPolicy.maxAttempts(3).withBackoff(Duration.ZERO, 1.0))
+    			.withBulkheads(bulkheads);
+
+    	// Act
+    	String result = processor.processAsyncFailSoft(List.of(first, second, first), createMessages(3), "FALLBACK", options)
+    			.get(5, TimeUnit.SECONDS);
+
+    	// Assert: the third call is rejected right away, and not retried.
+    	Bulkhead payments = bulkheads.forService("pay-1");
+    	assertEquals("MSG-0, MSG-1, FALLBACK", result);
+    	assertSame(payments, bulkheads.forService("pay-0"));
+    	assertEquals(Set.of("payments"), bulkheads.getGroupBulkheads().keySet());
+    	assertTrue(bulkheads.getServiceBulkheads().isEmpty());
+    	assertEquals(1, payments.getRejectedCount());
+    	assertEquals(1, payments.getQueuedCount());
+    	assertEquals(2, payments.getCompletedCount());
+    	assertThrows(IllegalArgumentException.class, () -> bulkheads.defineGroup("payments", 1, 1));
+    	assertThrows(IllegalArgumentException.class, () -> new Bulkheads(0, 1));
+    	System.out.println("[Bulkhead][Fail-Soft] A group shares one compartment, and calls beyond its queue are rejected - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Bulkhead] A group named like a service id does not share that microservice's compartment")
+    public void testBulkheadGroupAndServiceNamesKeptApart() {
+    	// Arrange: a group named after a microservice that is not assigned to it.
+    	Bulkheads bulkheads = new Bulkheads(10, 10).defineGroup("search", 1, 0, "search-eu", "search-us");
+
+    	// Act
+    	Bulkhead group = bulkheads.forService("search-eu");
+    	Bulkhead own = bulkheads.forService("search");
+
+    	// Assert
+    	assertNotSame(group, own);
+    	assertEquals(1, group.getMaxConcurrent());
+    	assertEquals(10, own.getMaxConcurrent());
+    	assertSame(group, bulkheads.getGroupBulkheads().get("search"));
+    	assertSame(own, bulkheads.getServiceBulkheads().get("search"));
+    	System.out.println("[Bulkhead] A group named like a service id does not share that microservice's compartment - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Bulkhead][Fail-Soft] Calls to an open circuit are rejected before they take a place in the compartment")
+    public void testBulkheadSkipsOpenCircuit() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange: one call in flight and one waiting call for both payment services, and an open circuit for pay-1.
+    	Bulkheads bulkheads = new Bulkheads(10, 10).defineGroup("payments", 1, 1, "pay-0", "pay-1");
+    	CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMinutes(1));
+    	Microservice healthy = new ControlledDelayMicroservice("pay-0", 100, false, null);
+    	FlakyMicroservice broken = new FlakyMicroservice("pay-1", Integer.MAX_VALUE, 0);
+    	ProcessingOptions options = ProcessingOptions.defaults()
+    			.withExecutor(MicroserviceExecutors.virtualThreads())
+    			.withCircuitBreaker(breaker)
+    			.withBulkheads(bulkheads);
+    	processor.processAsyncFailSoft(List.of(broken), createMessages(1), "FALLBACK", options).get(5, TimeUnit.SECONDS);
+    	assertEquals(CircuitBreaker.State.OPEN, breaker.getState("pay-1"));
+
+    	// Act
+    	String result = processor.processAsyncFailSoft(
+    			List.of(healthy, broken, broken, broken, healthy), createMessages(5), "FALLBACK", options).get(5, TimeUnit.SECONDS);
+
+    	// Assert: the rejected calls never held the waiting place of the second healthy call.
+    	Bulkhead payments = bulkheads.forService("pay-0");
+    	assertEquals("MSG-0, FALLBACK, FALLBACK, FALLBACK, MSG-4", result);
+    	assertEquals(3, breaker.getRejectedCount());
+    	assertEquals(0, payments.getRejectedCount());
+    	assertEquals(1, payments.getQueuedCount());
+    	assertEquals(1, broken.getAttempts());
+    	System.out.println("[Bulkhead][Fail-Soft] Calls to an open circuit are rejected before they take a place in the compartment - Test Successful\n");
+    }
+
+    // Simulation Tests
+    @Test
+    @DisplayName("[Simulation][Fail-Soft] A seeded scenario on virtual time replays identically")
+    public void testSimulationReplaysDeterministically() {
+    	// Act: the same seed twice, and another seed.
+    	String first = runSimulatedScenario(42, 20, 0.2);
+    	String replay = runSimulatedScenario(42, 20, 0.2);
+    	String other = runSimulatedScenario(43, 20, 0.2);
+
+    	// Assert: the completion order, results and virtual end time are all reproduced.
+    	assertEquals(first, replay);
+    	assertNotEquals(first, other);
+    	System.out.println("[Simulation][Fail-Soft] " + first + " - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Simulation][Fail-Partial] Ten thousand latency scenarios with deadlines run in virtual time")
+    public void testSimulationRunsManyScenariosQuickly() throws ExecutionException, InterruptedException {
+    	// Arrange: latencies of 0 to 30 ms against a deadline of 25 ms, so about 1 call in 6 times out.
+    	int scenarios = 10_000;
+    	int serviceCount = 10;
+    	LatencyModel latency = LatencyModel.uniform(Duration.ZERO, Duration.ofMillis(30));
+    	long results = 0;
+    	long virtualNanos = 0;
+
+    	// Act
+    	long start = System.nanoTime();
+    	for (int seed = 0; seed < scenarios; seed++) {
+    		VirtualTimeScheduler clock = new VirtualTimeScheduler();
+    		List<Microservice> services = new ArrayList<>(serviceCount);
+    		for (int i = 0; i < serviceCount; i++) {
+    			services.add(new SimulatedMicroservice("svc-" + i, clock, latency, 0.0, seed * 31L + i));
+    		}
+    		ProcessingOptions options = ProcessingOptions.defaults()
+    				.withExecutor(clock)
+    				.withScheduler(clock)
+    				.withPerCallTimeout(Duration.ofMillis(25));
+    		CompletableFuture<String> result = processor.processAsyncFailPartial(services, createMessages(serviceCount), options);
+    		clock.runUntilIdle();
+    		results += splitResults(result.get()).size();
+    		virtualNanos += clock.nanoTime();
+    	}
+    	long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    	// Assert
+    	double timeoutRate = 1.0 - (double) results / (scenarios * serviceCount);
+    	assertEquals(5.0 / 30, timeoutRate, 0.01);
+    	assertTrue(elapsedMs < 10_000, "The scenarios should run far faster than real time, but took " + elapsedMs + " ms.");
+    	System.out.println("[Simulation][Fail-Partial] " + scenarios + " scenarios, " + TimeUnit.NANOSECONDS.toSeconds(virtualNanos)
+    			+ " s of virtual time in " + elapsedMs + " ms, timeout rate " + timeoutRate + " - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Simulation] Latencies loaded from a trace file reproduce its distribution")
+    public void testSimulationLatencyFromTrace(@TempDir Path directory) throws IOException, ExecutionException, InterruptedException {
+    	// Arrange: a trace where 1 call in 4 takes 100 ms.
+    	Path trace = directory.resolve("latencies.txt");
+    	Files.writeString(trace, "# latency (ms)\n5\n5.5\n\n4.5\n100\n");
+    	LatencyModel latency = LatencyModel.fromTrace(trace);
+    	SplittableRandom random = new SplittableRandom(7);
+    	VirtualTimeScheduler clock = new VirtualTimeScheduler();
+    	Microservice service = new SimulatedMicroservice("svc-0", clock, LatencyModel.fixed(Duration.ofMillis(100)), 0.0, 7);
+
+    	// Act
+    	int slow = 0;
+    	for (int i = 0; i < 10_000; i++) {
+    		if (latency.sampleNanos(random) == TimeUnit.MILLISECONDS.toNanos(100)) {
+    			slow++;
+    		}
+    	}
+    	CompletableFuture<String> result = processor.processAsyncFailFast(List.of(service), createMessages(1),
+    			ProcessingOptions.defaults().withExecutor(clock).withScheduler(clock));
+    	clock.advance(Duration.ofMillis(99));
+    	boolean doneEarly = result.isDone();
+    	clock.advance(Duration.ofMillis(1));
+
+    	// Assert
+    	assertEquals(2_500, slow, 150);
+    	assertFalse(doneEarly, "The reply is due after 100 ms of virtual time.");
+    	assertEquals("svc-0:MSG-0", result.get());
+    	assertEquals(TimeUnit.MILLISECONDS.toNanos(100), clock.nanoTime());
+    	Files.writeString(trace, "# nothing\n");
+    	assertThrows(IOException.class, () -> LatencyModel.fromTrace(trace));
+    	System.out.println("[Simulation] Latencies loaded from a trace file reproduce its distribution - Test Successful\n");
+    }
+
+    @Test
+    @DisplayName("[Simulation] Seeded microservices draw the same latencies, and batched calls draw from their model")
+    public void testSeededMicroserviceLatencies() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange
+    	LatencyModel latency = LatencyModel.uniform(Duration.ZERO, Duration.ofMillis(30));
+    	Microservice first = new Microservice("svc-0", MicroserviceExecutors.virtualThreads(), latency, new SplittableRandom(7));
+    	Microservice replay = new BatchMicroservice("svc-0", MicroserviceExecutors.virtualThreads(), latency, new SplittableRandom(7));
+    	Microservice other = new Microservice("svc-0", MicroserviceExecutors.virtualThreads(), latency, new SplittableRandom(8));
+    	AtomicInteger draws = new AtomicInteger();
+    	BatchMicroservice batch = new BatchMicroservice("svc-1", MicroserviceExecutors.virtualThreads(), random -> {
+    		draws.incrementAndGet();
+    		return 0;
+    	});
+
+    	// Act
+    	List<Long> firstLatencies = new ArrayList<>();
+    	List<Long> replayLatencies = new ArrayList<>();
+    	List<Long> otherLatencies = new ArrayList<>();
+    	for (int i = 0; i < 100; i++) {
+    		firstLatencies.add(first.sampleLatencyNanos());
+    		replayLatencies.add(replay.sampleLatencyNanos());
+    		otherLatencies.add(other.sampleLatencyNanos());
+    	}
+    	List<String> replies = batch.retrieveBatchAsync(List.of("a", "b", "c")).get(5, TimeUnit.SECONDS);
+
+    	// Assert: the same seed draws the same latencies, and a batched call draws a single latency from its model.
+    	assertEquals(firstLatencies, replayLatencies);
+    	assertNotEquals(firstLatencies, otherLatencies);
+    	assertEquals(List.of("svc-1:A", "svc-1:B", "svc-1:C"), replies);
+    	assertEquals(1, draws.get());
+    	System.out.println("[Simulation] Seeded microservices draw the same latencies, and batched calls draw from their model - Test Successful\n");
+    }
+
+    // Nondeterminism Tests 
+    @Test
+    @DisplayName("[Nondeterminism] Completion order is observed and logged (not asserted)")
+    public void testNondeterminismCompletionOrderObserved() throws ExecutionException, InterruptedException, TimeoutException {
+    	// Arrange
+    	int serviceCount = 12;
+    	List<String> completionOrder = new CopyOnWriteArrayList<>();
+    	List<Microservice> services = createDelayedServices(serviceCount, Set.of(), completionOrder);
+    	List<String> messages = createMessages(serviceCount);
+    	String fallbackValue = "FALLBACK";
+    	
+    	// Act
+    	CompletableFuture<String> future = processor.processAsyncFailSoft(services, messages, fallbackValue);
+    	String result = future.get(4, TimeUnit.SECONDS);
+    	
+    	// Assert
+    	assertEquals(serviceCount, completionOrder.size(), "All microservices should be observed as completed.");
+    	assertEquals(serviceCount, splitResults(result).size(), "Fail-Soft still preserves cardinality.");
+    	System.out.println("\n[Nondeterminism] Input order     : " + messages);
+    	System.out.println("[Nondeterminism] Completion order: " + completionOrder);
+    	System.out.println("[Nondeterminism] Aggregated result: " + result + "\n");
+    }
+    
+    // Helper Methods
+    /**
+     * Creates synthetic asynchronous microservices with staggered delays and optional failures.
+     * 
+     * @param count total number of microservices to create.
+     * @param failingIndices service indices that should fail.
+     * @param completionOrder optional thread-safe sink used to record completion order.
+     * @return list of configured microservice instances.
+     */
+    private List<Microservice> createDelayedServices(int count, Set<Integer> failingIndices, List<String> completionOrder) {
+    	return IntStream.range(0, count)
+    			.mapToObj(index -> {
+    				long delayMs = 40L + ((count - index) * 10L);
+    				boolean shouldFail = failingIndices.contains(index);
+    				String serviceId = "svc-" + index;
+    				return new ControlledDelayMicroservice(serviceId, delayMs, shouldFail, completionOrder);
+    			})
+    			.collect(Collectors.toList());
+    }
+    
+    /**
+     * Lists the files of a directory.
+     * 
+     * @param directory directory to be listed.
+     * @return the files of the directory.
+     */
+    private List<Path> listFiles(Path directory) throws IOException {
+    	try (Stream<Path> files = Files.list(directory)) {
+    		return files.collect(Collectors.toList());
+    	}
+    }
+    
+    /**
+     * Runs a Fail-Soft batch of simulated microservices on virtual time.
+     * 
+     * @param seed seed of the scenario.
+     * @param count number of microservices.
+     * @param failureRate probability of each call failing.
+     * @return the completion order, the result and the virtual end time of the batch.
+     */
+    private String runSimulatedScenario(long seed, int count, double failureRate) {
+    	VirtualTimeScheduler clock = new VirtualTimeScheduler();
+    	LatencyModel latency = LatencyModel.uniform(Duration.ofMillis(1), Duration.ofMillis(50));
+    	List<Microservice> services = new ArrayList<>(count);
+    	for (int i = 0; i < count; i++) {
+    		services.add(new SimulatedMicroservice("svc-" + i, clock, latency, failureRate, seed * 31 + i));
+    	}
+    	List<String> completionOrder = new ArrayList<>();
+    	ProcessingListener listener = new ProcessingListener() {
+    		@Override
+    		public void onServiceSuccess(FailurePolicy policy, String serviceId, long latencyNanos) {
+    			completionOrder.add(serviceId);
+    		}
+    		
+    		@Override
+    		public void onServiceFailure(FailurePolicy policy, String serviceId, long latencyNanos, Throwable error) {
+    			completionOrder.add(serviceId + "!");
+    		}
+    	};
+    	ProcessingOptions options = ProcessingOptions.defaults().withExecutor(clock).withScheduler(clock).withListener(listener);
+    	CompletableFuture<String> result = processor.processAsyncFailSoft(services, createMessages(count), "FALLBACK", options);
+    	clock.runUntilIdle();
+    	return completionOrder + " -> " + result.getNow(null) + " at " + clock.nanoTime() + " ns";
+    }
+    
+    /**
+     * Creates a list of request messages in ascending order.
+     * 
+     * @param count total number of messages.
+     * @return ordered message list (e.g., msg-0, msg-1, ...).
+     */
+    private List<String> createMessages(int count) {
+    	return IntStream.range(0, count)
+    			.mapToObj(i -> "msg-" + i)
+    			.collect(Collectors.toList());
+    }
+    
+    /**
+     * Creates microservices that record how many of their calls were started and are in flight.
+     * 
+     * @param count number of microservices to create.
+     * @param delayMs execution delay of every call, in milliseconds (failing calls fail after a tenth of it).
+     * @param failingIndices indices of the microservices that fail.
+     * @param inFlight number of calls currently in flight.
+     * @param peak highest number of calls observed in flight at once.
+     * @param started number of calls started.
+     * @return list of tracked microservices replying with {@code serviceId:MESSAGE}.
+     */
+    private List<Microservice> createTrackedServices(int count, long delayMs, Set<Integer> failingIndices,
+    		AtomicInteger inFlight, AtomicInteger peak, AtomicInteger started) {
+    	return IntStream.range(0, count)
+    			.mapToObj(index -> (Microservice) new Microservice("svc-" + index) {
+    				@Override
+    				public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+    					return InterruptibleFuture.submit(() -> {
+    						started.incrementAndGet();
+    						peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    						boolean shouldFail = failingIndices.contains(index);
+    						try {
+    							Thread.sleep(shouldFail ? delayMs / 10 : delayMs);
+    						} catch (InterruptedException e) {
+    							Thread.currentThread().interrupt();
+    						} finally {
+    							inFlight.decrementAndGet();
+    						}
+    						if (shouldFail) {
+    							throw new RuntimeException("Synthetic failure " + getServiceId());
+    						}
+    						return getServiceId() + ":" + input.toUpperCase();
+    					}, executor);
+    				}
+    			})
+    			.collect(Collectors.toList());
+    }
+    
+    /**
+     * Splits a comma-delimited aggregate result into tokens.
+     * 
+     * @param result aggregated processor output.
+     * @return trimmed list of result tokens.
+     */
+    private List<String> splitResults(String result) {
+    	if (result == null || result.isBlank()) {
+    		return List.of();
+    	}
+    	return List.of(result.split(", "))
+    			.stream()
+    			.map(String::trim)
+    			.collect(Collectors.toList());
+    }
+    
+    /**
+     * Test helper subscriber that records the emitted items and the terminal signal.
+     */
+    private static class CollectingSubscriber implements Flow.Subscriber<String> {
+    	private final long initialRequest;
+    	private final BlockingQueue<String> items = new LinkedBlockingQueue<>();
+    	private final CountDownLatch done = new CountDownLatch(1);
+    	private volatile Flow.Subscription subscription;
+    	private volatile Throwable error;
+    	
+    	/**
+    	 * Creates a subscriber that requests the given number of items upon subscription.
+    	 * 
+    	 * @param initialRequest number of items requested upon subscription.
+    	 */
+    	CollectingSubscriber(long initialRequest) {
+    		this.initialRequest = initialRequest;
+    	}
+    	
+    	@Override
+    	public void onSubscribe(Flow.Subscription subscription) {
+    		this.subscription = subscription;
+    		subscription.request(initialRequest);
+    	}
+    	
+    	@Override
+    	public void onNext(String item) {
+    		items.add(item);
+    	}
+    	
+    	@Override
+    	public void onError(Throwable throwable) {
+    		error = throwable;
+    		done.countDown();
+    	}
+    	
+    	@Override
+    	public void onComplete() {
+    		done.countDown();
+    	}
+    }
+    
+    /**
+     * Test helper microservice whose first attempts fail (after an optional delay), and whose later attempts succeed.
+     */
+    private static class FlakyMicroservice extends Microservice {
+    	private final int failingAttempts;
+    	private final long failingDelayMs;
+    	private final AtomicInteger attempts = new AtomicInteger();
+    	
+    	/**
+    	 * Creates a flaky microservice.
+    	 * 
+    	 * @param serviceId service identifier, also used as the prefix of the reply.
+    	 * @param failingAttempts number of attempts that fail before the first success.
+    	 * @param failingDelayMs delay of each failing attempt before it fails, in milliseconds.
+    	 */
+    	FlakyMicroservice(String serviceId, int failingAttempts, long failingDelayMs) {
+    		super(serviceId);
+    		this.failingAttempts = failingAttempts;
+    		this.failingDelayMs = failingDelayMs;
+    	}
+    	
+    	@Override
+    	public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+    		int attempt = attempts.incrementAndGet();
+    		return InterruptibleFuture.submit(() -> {
+    			if (attempt > failingAttempts) {
+    				return getServiceId() + ":" + input.toUpperCase();
+    			}
+    			try {
+    				Thread.sleep(failingDelayMs);
+    			} catch (InterruptedException e) {
+    				Thread.currentThread().interrupt();
+    			}
+    			throw new RuntimeException("Transient failure " + attempt + " of " + getServiceId());
+    		}, executor);
+    	}
+    	
+    	/**
+    	 * @return number of attempts made so far.
+    	 */
+    	int getAttempts() {
+    		return attempts.get();
+    	}
+    }
+    
+    /**
+     * Test helper microservice whose first request is slow, and whose later requests (e.g., hedges) reply quickly.
+     */
+    private static class HedgeableMicroservice extends Microservice {
+    	private final long firstDelayMs;
+    	private final AtomicBoolean interrupted;
+    	private final AtomicInteger requests = new AtomicInteger();
+    	
+    	/**
+    	 * Creates a microservice with a slow first request.
+    	 * 
+    	 * @param serviceId service identifier, also used as the prefix of the reply.
+    	 * @param firstDelayMs delay of the first request, in milliseconds (later requests take 5 ms).
+    	 * @param interrupted optional flag set when the first request is interrupted.
+    	 */
+    	HedgeableMicroservice(String serviceId, long firstDelayMs, AtomicBoolean interrupted) {
+    		super(serviceId);
+    		this.firstDelayMs = firstDelayMs;
+    		this.interrupted = interrupted;
+    	}
+    	
+    	@Override
+    	public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+    		boolean first = requests.incrementAndGet() == 1;
+    		return InterruptibleFuture.submit(() -> {
+    			try {
+    				Thread.sleep(first ? firstDelayMs : 5);
+    			} catch (InterruptedException e) {
+    				if (interrupted != null) {
+    					interrupted.set(true);
+    				}
+    				Thread.currentThread().interrupt();
+    				throw new RuntimeException(e);
+    			}
+    			return getServiceId() + ":" + input.toUpperCase();
+    		}, executor);
+    	}
+    	
+    	/**
+    	 * @return number of requests received so far.
+    	 */
+    	int getRequests() {
+    		return requests.get();
+    	}
+    }
+    
+    /**
+     * Test helper batch microservice counting its batched and single calls, whose batched calls may fail.
+     */
+    private static class CountingBatchMicroservice extends BatchMicroservice {
+    	private final long delayMs;
+    	private final boolean failBatches;
+    	private final AtomicBoolean interrupted;
+    	private final AtomicInteger batchCalls = new AtomicInteger();
+    	private final AtomicInteger batchedMessages = new AtomicInteger();
+    	private final AtomicInteger singleCalls = new AtomicInteger();
+    	
+    	/**
+    	 * Creates a counting batch microservice.
+    	 * 
+    	 * @param serviceId service identifier, also used as the prefix of the reply.
+    	 * @param delayMs delay of each batched call, in milliseconds (single calls reply right away).
+    	 * @param failBatches whether batched calls fail after their delay.
+    	 * @param interrupted optional flag set when a batched call is interrupted.
+    	 */
+    	CountingBatchMicroservice(String serviceId, long delayMs, boolean failBatches, AtomicBoolean interrupted) {
+    		super(serviceId);
+    		this.delayMs = delayMs;
+    		this.failBatches = failBatches;
+    		this.interrupted = interrupted;
+    	}
+    	
+    	@Override
+    	public CompletableFuture<List<String>> retrieveBatchAsync(List<String> inputs, Executor executor) {
+    		batchCalls.incrementAndGet();
+    		batchedMessages.addAndGet(inputs.size());
+    		return InterruptibleFuture.submit(() -> {
+    			try {
+    				Thread.sleep(delayMs);
+    			} catch (InterruptedException e) {
+    				if (interrupted != null) {
+    					interrupted.set(true);
+    				}
+    				Thread.currentThread().interrupt();
+    				throw new RuntimeException(e);
+    			}
+    			if (failBatches) {
+    				throw new RuntimeException("Batch failure of " + getServiceId());
+    			}
+    			return inputs.stream().map(input -> getServiceId() + ":" + input.toUpperCase()).collect(Collectors.toList());
+    		}, executor);
+    	}
+    	
+    	@Override
+    	public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+    		singleCalls.incrementAndGet();
+    		return CompletableFuture.completedFuture(getServiceId() + ":" + input.toUpperCase());
+    	}
+    	
+    	int getBatchCalls() {
+    		return batchCalls.get();
+    	}
+    	
+    	int getBatchedMessages() {
+    		return batchedMessages.get();
+    	}
+    	
+    	int getSingleCalls() {
+    		return singleCalls.get();
+    	}
+    }
+    
+    /**
+     * Test helper scheduler whose clock only moves when advanced, and whose timers run on the system scheduler.
+     */
+    private static class ManualClockScheduler implements Scheduler {
+    	private final AtomicLong nanos = new AtomicLong();
+    	
+    	/**
+    	 * Moves the clock forward.
+    	 * 
+    	 * @param duration time to add to the clock.
+    	 */
+    	void advance(Duration duration) {
+    		nanos.addAndGet(duration.toNanos());
+    	}
+    	
+    	@Override
+    	public long nanoTime() {
+    		return nanos.get();
+    	}
+    	
+    	@Override
+    	public Future<?> schedule(Runnable task, long delay, TimeUnit unit) {
+    		return Scheduler.system().schedule(task, delay, unit);
+    	}
+    }
+    
+    /**
+     * Test helper microservice that supports controlled delay, deterministic failure,
+     * and optional completion-order tracing.
+     */
+    private static class ControlledDelayMicroservice extends Microservice {
+    	private static final AtomicInteger FAILURE_COUNTER = new AtomicInteger(0);
+    	
+    	private final String serviceId;
+    	private final long delayMs;
+    	private final boolean shouldFail;
+    	private final List<String> completionOrder;
+    	
+    	/**
+    	 * Creates a synthetic microservice with configurable behavior.
+    	 * 
+    	 * @param serviceId service identifier used for logs and completion tracking.
+    	 * @param delayMs artificial execution delay in milliseconds.
+    	 * @param shouldFail whether this microservice should fail.
+    	 * @param completionOrder optional thread-safe completion-order sink.
+    	 */
+    	ControlledDelayMicroservice(String serviceId, long delayMs, boolean shouldFail, List<String> completionOrder) {
+    		super(serviceId);
+    		this.serviceId = serviceId;
+    		this.delayMs = delayMs;
+    		this.shouldFail = shouldFail;
+    		this.completionOrder = completionOrder;
+    	}
+    	
+    	@Override
+    	public CompletableFuture<String> retrieveAsync(String input, Executor executor) {
+    		// Interruptible, so that a cancelled (e.g., timed out) call does not hold its thread.
+    		return InterruptibleFuture.submit(() -> {
+    			try {
+    				Thread.sleep(delayMs);
+    			} catch (InterruptedException e) {
+    				Thread.currentThread().interrupt();
+    				throw new RuntimeException("Interrupted: " + serviceId, e);
+    			}
+    			
+    			// Record the completion before the future completes, so it is visible to the caller's result.
+    			if (completionOrder != null) {
+    				completionOrder.add(serviceId);
+    			}
+    			if (shouldFail) {
+    				int failureId = FAILURE_COUNTER.incrementAndGet();
+    				throw new RuntimeException("Synthetic failure #" + failureId + " from " + serviceId);
+    			}
+    			return input.toUpperCase();
+    		}, executor);
     	}
     }
 }